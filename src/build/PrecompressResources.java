@@ -0,0 +1,56 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Writes a {@code .gz} copy next to every CSS and JavaScript file under the given
+ * directory, compressed at the highest level once at build time, so the resource chain
+ * can serve it to clients that accept gzip instead of compressing on every request.
+ * Run from the {@code process-resources} phase as a single-file program:
+ * {@code java src/build/PrecompressResources.java target/classes/static}.
+ */
+public class PrecompressResources {
+
+    private static final List<String> EXTENSIONS = List.of(".css", ".js");
+
+    public static void main(String[] args) throws IOException {
+        Path root = Path.of(args[0]);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        int written = 0;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.filter(PrecompressResources::isCompressible).toList()) {
+                if (compress(file)) {
+                    written++;
+                }
+            }
+        }
+        System.out.println("Precompressed " + written + " static resources in " + root);
+    }
+
+    private static boolean isCompressible(Path file) {
+        String name = file.getFileName().toString();
+        return Files.isRegularFile(file) && EXTENSIONS.stream().anyMatch(name::endsWith);
+    }
+
+    private static boolean compress(Path file) throws IOException {
+        Path target = file.resolveSibling(file.getFileName() + ".gz");
+        if (Files.exists(target) && Files.getLastModifiedTime(target).compareTo(Files.getLastModifiedTime(file)) >= 0) {
+            return false;
+        }
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target)) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            Files.copy(file, out);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+package com.billgenpro.datagen;
+
+import java.time.LocalDate;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Command-line entry point: generates a dataset and bulk-loads it into an existing database.
+ *
+ * Run with: mvn -Pdatagen test-compile exec:exec -Ddatagen.args="--url=jdbc:mysql://... --users=1000"
+ */
+public final class DataGenerator {
+
+    private DataGenerator() {}
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        String username = "root";
+        String password = "";
+        String userPassword = "password123";
+        int batchSize = 1000;
+        int threads = 4;
+        DatasetSpec defaults = DatasetSpec.defaults();
+        long seed = defaults.seed();
+        int firstUser = defaults.firstUser();
+        int users = defaults.users();
+        int invoicesPerUser = defaults.invoicesPerUser();
+        int receiptsPerUser = defaults.receiptsPerUser();
+        int customersPerUser = defaults.customersPerUser();
+        int maxItems = defaults.maxItems();
+        LocalDate startDate = defaults.startDate();
+        LocalDate endDate = defaults.endDate();
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "url" -> url = value;
+                case "username" -> username = value;
+                case "password" -> password = value;
+                case "user-password" -> userPassword = value;
+                case "batch-size" -> batchSize = Integer.parseInt(value);
+                case "threads" -> threads = Integer.parseInt(value);
+                case "seed" -> seed = Long.parseLong(value);
+                case "first-user" -> firstUser = Integer.parseInt(value);
+                case "users" -> users = Integer.parseInt(value);
+                case "invoices-per-user" -> invoicesPerUser = Integer.parseInt(value);
+                case "receipts-per-user" -> receiptsPerUser = Integer.parseInt(value);
+                case "customers-per-user" -> customersPerUser = Integer.parseInt(value);
+                case "max-items" -> maxItems = Integer.parseInt(value);
+                case "start-date" -> startDate = LocalDate.parse(value);
+                case "end-date" -> endDate = LocalDate.parse(value);
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        if (url == null) {
+            throw new IllegalArgumentException("--url is required");
+        }
+
+        DatasetSpec spec = new DatasetSpec(seed, firstUser, users, invoicesPerUser, receiptsPerUser,
+                customersPerUser, maxItems, startDate, endDate);
+        JdbcBulkLoader loader = new JdbcBulkLoader(new DriverManagerDataSource(url, username, password), batchSize, threads);
+        LoadStats stats = loader.load(new DatasetGenerator(spec), new BCryptPasswordEncoder().encode(userPassword));
+
+        System.out.printf("Loaded %,d users, %,d customers, %,d invoices (%,d items), %,d receipts (%,d items)%n",
+                stats.users(), stats.customers(), stats.invoices(), stats.invoiceItems(), stats.receipts(),
+                stats.receiptItems());
+        System.out.printf("%,d rows in %.1f s (%,.0f rows/s)%n",
+                stats.rows(), stats.elapsedNanos() / 1e9, stats.rowsPerSecond());
+    }
+}
@@ -0,0 +1,188 @@
+package com.billgenpro.datagen;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import com.billgenpro.model.BillTo;
+import com.billgenpro.model.Company;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceItem;
+import com.billgenpro.model.InvoiceStatus;
+import com.billgenpro.model.Receipt;
+import com.billgenpro.model.ReceiptItem;
+import com.billgenpro.model.User;
+
+/**
+ * Builds realistic users, invoices and receipts from a {@link DatasetSpec}.
+ *
+ * Every document is derived from its own random stream keyed by (seed, user, index),
+ * so any single document can be regenerated on its own and users can be generated
+ * in parallel without changing the result.
+ */
+public final class DatasetGenerator {
+
+    private static final String[] FIRST_NAMES = {
+        "Aarav", "Priya", "Rohan", "Ananya", "Vikram", "Meera", "Arjun", "Kavya", "Rahul", "Isha",
+        "Siddharth", "Neha", "Karan", "Pooja", "Aditya", "Sneha", "Nikhil", "Divya", "Varun", "Riya"
+    };
+    private static final String[] LAST_NAMES = {
+        "Sharma", "Patel", "Iyer", "Reddy", "Gupta", "Nair", "Mehta", "Rao", "Singh", "Das",
+        "Kapoor", "Menon", "Joshi", "Bose", "Kulkarni", "Chopra", "Pillai", "Verma", "Shah", "Sen"
+    };
+    private static final String[] BUSINESS_SUFFIXES = {"Traders", "Enterprises", "Solutions", "Industries", "& Co", "Retail"};
+    private static final String[] CITIES = {"Mumbai", "Bengaluru", "Chennai", "Kolkata", "Pune", "Hyderabad", "Delhi", "Jaipur"};
+    private static final String[] PRODUCTS = {
+        "Consulting", "Web Development", "Logo Design", "Annual Maintenance", "Cloud Hosting",
+        "Office Chairs", "Printer Cartridges", "Laptop Repair", "Catering", "Freight Charges",
+        "Photography", "Training Session", "Software License", "Packaging Material", "Electrical Work"
+    };
+    private static final String[] CASHIERS = {"Counter 1", "Counter 2", "Counter 3", "Front Desk"};
+
+    // Most invoices are paid; a minority are still open or overdue
+    private static final InvoiceStatus[] STATUS_POOL = {
+        InvoiceStatus.PAID, InvoiceStatus.PAID, InvoiceStatus.PAID, InvoiceStatus.PAID, InvoiceStatus.PAID,
+        InvoiceStatus.PAID, InvoiceStatus.PENDING, InvoiceStatus.PENDING, InvoiceStatus.PENDING, InvoiceStatus.OVERDUE
+    };
+
+    private static final int USER = 1;
+    private static final int INVOICE = 2;
+    private static final int RECEIPT = 3;
+    private static final int CUSTOMER = 4;
+
+    private final DatasetSpec spec;
+    private final int dateRangeDays;
+
+    public DatasetGenerator(DatasetSpec spec) {
+        this.spec = spec;
+        this.dateRangeDays = (int) ChronoUnit.DAYS.between(spec.startDate(), spec.endDate()) + 1;
+    }
+
+    public DatasetSpec getSpec() {
+        return spec;
+    }
+
+    public String email(int userIndex) {
+        return "user" + userIndex + "@billgenpro.test";
+    }
+
+    public User user(int userIndex, String encodedPassword) {
+        SplittableRandom random = random(USER, userIndex, 0);
+        return new User(pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES), email(userIndex), encodedPassword);
+    }
+
+    /**
+     * Customer {@code customerIndex} (0-based, below {@code customersPerUser}) of a user.
+     */
+    public String customerName(int userIndex, int customerIndex) {
+        SplittableRandom random = random(CUSTOMER, userIndex, customerIndex);
+        return pick(random, LAST_NAMES) + " " + pick(random, BUSINESS_SUFFIXES);
+    }
+
+    public Invoice invoice(int userIndex, int invoiceIndex) {
+        return invoice(userIndex, invoiceIndex, -1);
+    }
+
+    /**
+     * Same as {@link #invoice(int, int)} but with a fixed number of items instead of the skewed default.
+     */
+    public Invoice invoice(int userIndex, int invoiceIndex, int itemCount) {
+        SplittableRandom random = random(INVOICE, userIndex, invoiceIndex);
+        Invoice invoice = new Invoice();
+        invoice.setNumber("INV-" + userIndex + "-" + invoiceIndex);
+        invoice.setDate(date(random));
+        invoice.setStatus(pick(random, STATUS_POOL));
+        if (invoice.getStatus() == InvoiceStatus.PAID) {
+            invoice.setPaymentDate(invoice.getDate().plusDays(random.nextInt(45)));
+        }
+        invoice.setCompany(company(userIndex));
+        String customer = customerName(userIndex, skewedIndex(random, spec.customersPerUser()));
+        BillTo billTo = new BillTo(customer, address(random), phone(random));
+        billTo.setEmail(customer.toLowerCase().replaceAll("[^a-z]+", ".") + "@example.com");
+        invoice.setBillTo(billTo);
+        invoice.setShipTo(new BillTo());
+        invoice.setTaxPercentage(BigDecimal.valueOf(random.nextBoolean() ? 18 : 12));
+        invoice.setTemplateNumber(1 + random.nextInt(3));
+        int count = itemCount < 0 ? itemCount(random) : itemCount;
+        List<InvoiceItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new InvoiceItem(pick(random, PRODUCTS), "Line " + (i + 1), 1 + random.nextInt(10), amount(random)));
+        }
+        invoice.setItems(items);
+        return invoice;
+    }
+
+    public Receipt receipt(int userIndex, int receiptIndex) {
+        return receipt(userIndex, receiptIndex, -1);
+    }
+
+    public Receipt receipt(int userIndex, int receiptIndex, int itemCount) {
+        SplittableRandom random = random(RECEIPT, userIndex, receiptIndex);
+        Receipt receipt = new Receipt();
+        receipt.setNumber("RCP-" + userIndex + "-" + receiptIndex);
+        receipt.setDate(date(random));
+        receipt.setCompany(company(userIndex));
+        receipt.setBillTo(customerName(userIndex, skewedIndex(random, spec.customersPerUser())));
+        receipt.setCashier(pick(random, CASHIERS));
+        receipt.setTaxPercentage(BigDecimal.valueOf(5));
+        receipt.setFooter("Thank you for your business!");
+        int count = itemCount < 0 ? itemCount(random) : itemCount;
+        List<ReceiptItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new ReceiptItem(pick(random, PRODUCTS), null, 1 + random.nextInt(5), amount(random)));
+        }
+        receipt.setItems(items);
+        return receipt;
+    }
+
+    private Company company(int userIndex) {
+        SplittableRandom random = random(USER, userIndex, 1);
+        return new Company(pick(random, LAST_NAMES) + " " + pick(random, BUSINESS_SUFFIXES),
+                address(random), phone(random), "29ABCDE" + (1000 + userIndex % 9000) + "F1Z5");
+    }
+
+    private LocalDate date(SplittableRandom random) {
+        return spec.startDate().plusDays(random.nextInt(dateRangeDays));
+    }
+
+    // Pareto-distributed (alpha 1.5): mostly 1-3 items with a long tail up to maxItems
+    private int itemCount(SplittableRandom random) {
+        double pareto = 1.0 / Math.pow(1.0 - random.nextDouble(), 1.0 / 1.5);
+        return (int) Math.min(spec.maxItems(), Math.floor(pareto));
+    }
+
+    // Squaring a uniform value favours low indexes, so the first few customers dominate
+    private static int skewedIndex(SplittableRandom random, int bound) {
+        double u = random.nextDouble();
+        return (int) (u * u * bound);
+    }
+
+    // Log-uniform between 1.00 and 5000.00
+    private static BigDecimal amount(SplittableRandom random) {
+        long cents = Math.round(Math.exp(random.nextDouble(Math.log(100), Math.log(500_000))));
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static String address(SplittableRandom random) {
+        return (1 + random.nextInt(300)) + " " + pick(random, LAST_NAMES) + " Road, " + pick(random, CITIES);
+    }
+
+    private static String phone(SplittableRandom random) {
+        return "+91 9" + (100_000_000 + random.nextInt(900_000_000));
+    }
+
+    private static <T> T pick(SplittableRandom random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private SplittableRandom random(int kind, int userIndex, int index) {
+        long h = spec.seed();
+        h = h * 0x9E3779B97F4A7C15L + kind;
+        h = h * 0x9E3779B97F4A7C15L + userIndex;
+        h = h * 0x9E3779B97F4A7C15L + index;
+        return new SplittableRandom(h);
+    }
+}
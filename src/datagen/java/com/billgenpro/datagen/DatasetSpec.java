@@ -0,0 +1,38 @@
+package com.billgenpro.datagen;
+
+import java.time.LocalDate;
+
+/**
+ * Shape of a generated dataset. Two generators built from equal specs produce
+ * identical documents.
+ *
+ * @param seed             base seed for every random choice
+ * @param firstUser        index of the first generated user; lets a second run append new users
+ * @param users            number of users
+ * @param invoicesPerUser  invoices generated for every user
+ * @param receiptsPerUser  receipts generated for every user
+ * @param customersPerUser distinct bill-to customers per user; a few of them get most of the invoices
+ * @param maxItems         upper bound for the (heavy-tailed) number of items per document
+ * @param startDate        earliest document date
+ * @param endDate          latest document date
+ */
+public record DatasetSpec(long seed, int firstUser, int users, int invoicesPerUser, int receiptsPerUser,
+                          int customersPerUser, int maxItems, LocalDate startDate, LocalDate endDate) {
+
+    public DatasetSpec {
+        if (users < 0 || invoicesPerUser < 0 || receiptsPerUser < 0) {
+            throw new IllegalArgumentException("Counts must not be negative");
+        }
+        if (customersPerUser < 1 || maxItems < 1) {
+            throw new IllegalArgumentException("customersPerUser and maxItems must be at least 1");
+        }
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("endDate must not be before startDate");
+        }
+    }
+
+    public static DatasetSpec defaults() {
+        return new DatasetSpec(42, 1, 100, 1_000, 500, 50, 50,
+                LocalDate.of(2022, 1, 1), LocalDate.of(2024, 12, 31));
+    }
+}
@@ -0,0 +1,356 @@
+package com.billgenpro.datagen;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import com.billgenpro.model.BillTo;
+import com.billgenpro.model.Customer;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceItem;
+import com.billgenpro.model.InvoiceStatus;
+import com.billgenpro.model.Receipt;
+import com.billgenpro.model.ReceiptItem;
+import com.billgenpro.model.User;
+
+/**
+ * Writes a generated dataset straight into the application's tables with batched
+ * JDBC inserts, bypassing JPA. The schema must already exist (start the app once
+ * with {@code spring.jpa.hibernate.ddl-auto=update}).
+ *
+ * Users are spread over worker threads, each with its own connection. Documents are
+ * inserted in batches, the generated ids are read back, and then the items for the
+ * whole batch go in as one more batch. Every document batch is its own transaction.
+ * A user's customers are inserted before its documents, and their aggregates are
+ * written in one batched update once all of the user's documents are in.
+ *
+ * On MySQL, add {@code rewriteBatchedStatements=true} to the JDBC URL so each batch
+ * is sent as multi-row inserts; without it the driver sends rows one by one.
+ */
+public final class JdbcBulkLoader {
+
+    private static final String INSERT_USER =
+            "INSERT INTO users (name, email, password) VALUES (?, ?, ?)";
+    private static final String INSERT_CUSTOMER =
+            "INSERT INTO customers (user_id, name, normalized_name, invoice_count, billed_minor, paid_minor, receipt_count, "
+            + "receipt_total_minor) VALUES (?, ?, ?, 0, 0, 0, 0, 0)";
+    private static final String UPDATE_CUSTOMER =
+            "UPDATE customers SET email = ?, phone = ?, address = ?, invoice_count = ?, billed_minor = ?, paid_minor = ?, "
+            + "receipt_count = ?, receipt_total_minor = ? WHERE id = ?";
+    private static final String INSERT_INVOICE =
+            "INSERT INTO invoices (number, date, payment_date, company_name, company_address, company_phone, company_gst, "
+            + "bill_to_name, bill_to_address, bill_to_phone, bill_to_email, user_id, tax_percentage, template_number, "
+            + "status, primary_color, secondary_color, customer_id, grand_total_minor) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_INVOICE_ITEM =
+            "INSERT INTO invoice_items (name, description, quantity, amount, invoice_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_RECEIPT =
+            "INSERT INTO receipts (number, date, company_name, company_address, company_phone, company_gst, "
+            + "bill_to, cashier, user_id, tax_percentage, footer, template_number, customer_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_RECEIPT_ITEM =
+            "INSERT INTO receipt_items (name, description, quantity, amount, receipt_id) VALUES (?, ?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+    private final int batchSize;
+    private final int threads;
+
+    private final LongAdder users = new LongAdder();
+    private final LongAdder customers = new LongAdder();
+    private final LongAdder invoices = new LongAdder();
+    private final LongAdder invoiceItems = new LongAdder();
+    private final LongAdder receipts = new LongAdder();
+    private final LongAdder receiptItems = new LongAdder();
+
+    public JdbcBulkLoader(DataSource dataSource, int batchSize, int threads) {
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
+        this.threads = threads;
+    }
+
+    /**
+     * Inserts every user of the generator's spec with its invoices and receipts.
+     * All users share {@code encodedPassword}, so it is hashed only once by the caller.
+     */
+    public LoadStats load(DatasetGenerator generator, String encodedPassword) throws SQLException, InterruptedException {
+        DatasetSpec spec = generator.getSpec();
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> workers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                workers.add(pool.submit(() -> {
+                    try (Connection connection = dataSource.getConnection()) {
+                        connection.setAutoCommit(false);
+                        for (int u = spec.firstUser() + worker; u < spec.firstUser() + spec.users(); u += threads) {
+                            loadUser(connection, generator, u, encodedPassword);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : workers) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new IllegalStateException("Bulk load failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new LoadStats(users.sum(), customers.sum(), invoices.sum(), invoiceItems.sum(), receipts.sum(),
+                receiptItems.sum(), System.nanoTime() - start);
+    }
+
+    private void loadUser(Connection connection, DatasetGenerator generator, int userIndex, String encodedPassword)
+            throws SQLException {
+        DatasetSpec spec = generator.getSpec();
+        long userId = insertUser(connection, generator.user(userIndex, encodedPassword));
+        Map<String, CustomerRow> customerRows = insertCustomers(connection, generator, userIndex, userId);
+
+        List<Invoice> invoiceBatch = new ArrayList<>(batchSize);
+        for (int i = 1; i <= spec.invoicesPerUser(); i++) {
+            invoiceBatch.add(generator.invoice(userIndex, i));
+            if (invoiceBatch.size() == batchSize || i == spec.invoicesPerUser()) {
+                insertInvoices(connection, userId, customerRows, invoiceBatch);
+                connection.commit();
+                invoiceBatch.clear();
+            }
+        }
+
+        List<Receipt> receiptBatch = new ArrayList<>(batchSize);
+        for (int i = 1; i <= spec.receiptsPerUser(); i++) {
+            receiptBatch.add(generator.receipt(userIndex, i));
+            if (receiptBatch.size() == batchSize || i == spec.receiptsPerUser()) {
+                insertReceipts(connection, userId, customerRows, receiptBatch);
+                connection.commit();
+                receiptBatch.clear();
+            }
+        }
+
+        updateCustomers(connection, customerRows.values());
+        connection.commit();
+    }
+
+    private long insertUser(Connection connection, User user) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_USER, Statement.RETURN_GENERATED_KEYS)) {
+            statement.setString(1, user.getName());
+            statement.setString(2, user.getEmail());
+            statement.setString(3, user.getPassword());
+            statement.executeUpdate();
+            connection.commit();
+            users.increment();
+            return generatedKeys(statement, 1)[0];
+        }
+    }
+
+    /**
+     * Inserts the user's customers, keyed by normalized name. Generated names that
+     * normalize to the same key share one customer, as they would in the app.
+     */
+    private Map<String, CustomerRow> insertCustomers(Connection connection, DatasetGenerator generator, int userIndex,
+            long userId) throws SQLException {
+        Map<String, CustomerRow> rows = new HashMap<>();
+        List<CustomerRow> inserted = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_CUSTOMER, Statement.RETURN_GENERATED_KEYS)) {
+            for (int c = 0; c < generator.getSpec().customersPerUser(); c++) {
+                String name = generator.customerName(userIndex, c);
+                String normalized = Customer.normalizeName(name);
+                if (rows.containsKey(normalized)) {
+                    continue;
+                }
+                CustomerRow row = new CustomerRow();
+                rows.put(normalized, row);
+                inserted.add(row);
+                statement.setLong(1, userId);
+                statement.setString(2, name.trim());
+                statement.setString(3, normalized);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            long[] ids = generatedKeys(statement, inserted.size());
+            for (int i = 0; i < ids.length; i++) {
+                inserted.get(i).id = ids[i];
+            }
+        }
+        connection.commit();
+        customers.add(inserted.size());
+        return rows;
+    }
+
+    private void updateCustomers(Connection connection, Iterable<CustomerRow> rows) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_CUSTOMER)) {
+            for (CustomerRow row : rows) {
+                statement.setString(1, row.contact != null ? row.contact.getEmail() : null);
+                statement.setString(2, row.contact != null ? row.contact.getPhone() : null);
+                statement.setString(3, row.contact != null ? row.contact.getAddress() : null);
+                statement.setLong(4, row.invoiceCount);
+                statement.setLong(5, row.billedMinor);
+                statement.setLong(6, row.paidMinor);
+                statement.setLong(7, row.receiptCount);
+                statement.setLong(8, row.receiptTotalMinor);
+                statement.setLong(9, row.id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void insertInvoices(Connection connection, long userId, Map<String, CustomerRow> customerRows,
+            List<Invoice> batch) throws SQLException {
+        long[] ids;
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_INVOICE, Statement.RETURN_GENERATED_KEYS)) {
+            for (Invoice invoice : batch) {
+                CustomerRow customer = customerRows.get(Customer.normalizeName(invoice.getBillTo().getName()));
+                long totalMinor = invoice.getGrandTotalMinor();
+                customer.invoiceCount++;
+                customer.billedMinor += totalMinor;
+                if (invoice.getStatus() == InvoiceStatus.PAID) {
+                    customer.paidMinor += totalMinor;
+                }
+                customer.contact = invoice.getBillTo();
+                statement.setString(1, invoice.getNumber());
+                statement.setObject(2, invoice.getDate());
+                statement.setObject(3, invoice.getPaymentDate());
+                statement.setString(4, invoice.getCompany().getName());
+                statement.setString(5, invoice.getCompany().getAddress());
+                statement.setString(6, invoice.getCompany().getPhone());
+                statement.setString(7, invoice.getCompany().getGst());
+                statement.setString(8, invoice.getBillTo().getName());
+                statement.setString(9, invoice.getBillTo().getAddress());
+                statement.setString(10, invoice.getBillTo().getPhone());
+                statement.setString(11, invoice.getBillTo().getEmail());
+                statement.setLong(12, userId);
+                statement.setBigDecimal(13, invoice.getTaxPercentage());
+                statement.setInt(14, invoice.getTemplateNumber());
+                statement.setString(15, invoice.getStatus().name());
+                statement.setString(16, invoice.getPrimaryColor());
+                statement.setString(17, invoice.getSecondaryColor());
+                statement.setLong(18, customer.id);
+                statement.setLong(19, totalMinor);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            ids = generatedKeys(statement, batch.size());
+        }
+        invoices.add(batch.size());
+
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_INVOICE_ITEM)) {
+            int pending = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                for (InvoiceItem item : batch.get(i).getItems()) {
+                    statement.setString(1, item.getName());
+                    statement.setString(2, item.getDescription());
+                    statement.setInt(3, item.getQuantity());
+                    statement.setBigDecimal(4, item.getAmount());
+                    statement.setLong(5, ids[i]);
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        invoiceItems.add(pending);
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+                invoiceItems.add(pending);
+            }
+        }
+    }
+
+    private void insertReceipts(Connection connection, long userId, Map<String, CustomerRow> customerRows,
+            List<Receipt> batch) throws SQLException {
+        long[] ids;
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_RECEIPT, Statement.RETURN_GENERATED_KEYS)) {
+            for (Receipt receipt : batch) {
+                CustomerRow customer = customerRows.get(Customer.normalizeName(receipt.getBillTo()));
+                customer.receiptCount++;
+                customer.receiptTotalMinor += receipt.getGrandTotalMinor();
+                statement.setString(1, receipt.getNumber());
+                statement.setObject(2, receipt.getDate());
+                statement.setString(3, receipt.getCompany().getName());
+                statement.setString(4, receipt.getCompany().getAddress());
+                statement.setString(5, receipt.getCompany().getPhone());
+                statement.setString(6, receipt.getCompany().getGst());
+                statement.setString(7, receipt.getBillTo());
+                statement.setString(8, receipt.getCashier());
+                statement.setLong(9, userId);
+                statement.setBigDecimal(10, receipt.getTaxPercentage());
+                statement.setString(11, receipt.getFooter());
+                statement.setInt(12, receipt.getTemplateNumber());
+                statement.setLong(13, customer.id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            ids = generatedKeys(statement, batch.size());
+        }
+        receipts.add(batch.size());
+
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_RECEIPT_ITEM)) {
+            int pending = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                for (ReceiptItem item : batch.get(i).getItems()) {
+                    statement.setString(1, item.getName());
+                    statement.setString(2, item.getDescription());
+                    statement.setInt(3, item.getQuantity());
+                    statement.setBigDecimal(4, item.getAmount());
+                    statement.setLong(5, ids[i]);
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        receiptItems.add(pending);
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+                receiptItems.add(pending);
+            }
+        }
+    }
+
+    /**
+     * A customer row and the aggregates of the documents loaded for it so far.
+     */
+    private static final class CustomerRow {
+        long id;
+        BillTo contact;
+        long invoiceCount;
+        long billedMinor;
+        long paidMinor;
+        long receiptCount;
+        long receiptTotalMinor;
+    }
+
+    private static long[] generatedKeys(Statement statement, int expected) throws SQLException {
+        long[] ids = new long[expected];
+        int count = 0;
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            while (keys.next() && count < expected) {
+                ids[count++] = keys.getLong(1);
+            }
+        }
+        if (count != expected) {
+            throw new SQLException("Expected " + expected + " generated keys but the driver returned " + count);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,15 @@
+package com.billgenpro.datagen;
+
+/**
+ * Row counts and wall time of one {@link JdbcBulkLoader} run.
+ */
+public record LoadStats(long users, long customers, long invoices, long invoiceItems, long receipts, long receiptItems, long elapsedNanos) {
+
+    public long rows() {
+        return users + customers + invoices + invoiceItems + receipts + receiptItems;
+    }
+
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows() * 1_000_000_000.0 / elapsedNanos;
+    }
+}
@@ -0,0 +1,91 @@
+package com.billgenpro.benchmark;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.billgenpro.datagen.DatasetGenerator;
+import com.billgenpro.datagen.DatasetSpec;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.Receipt;
+import com.billgenpro.service.DocumentMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Deterministic in-memory documents for the benchmarks, taken from the shared dataset
+ * generator. Nothing here touches a database.
+ */
+final class BenchmarkFixtures {
+
+    private static final DatasetGenerator GENERATOR = new DatasetGenerator(DatasetSpec.defaults());
+
+    private BenchmarkFixtures() {}
+
+    static Invoice invoice(int itemCount) {
+        Invoice invoice = GENERATOR.invoice(1, 1, itemCount);
+        invoice.setId(1L);
+        return invoice;
+    }
+
+    static Receipt receipt(int itemCount) {
+        Receipt receipt = GENERATOR.receipt(1, 1, itemCount);
+        receipt.setId(1L);
+        return receipt;
+    }
+
+    /**
+     * {@code count} invoices of one user with the generator's skewed item counts.
+     */
+    static List<Invoice> invoices(int count) {
+        List<Invoice> invoices = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Invoice invoice = GENERATOR.invoice(1, i);
+            invoice.setId((long) i);
+            invoices.add(invoice);
+        }
+        return invoices;
+    }
+
+    /**
+     * Document metrics backed by an in-memory registry, as the services record timers on every call.
+     */
+    static DocumentMetrics documentMetrics() {
+        return documentMetrics(new SimpleMeterRegistry());
+    }
+
+    static DocumentMetrics documentMetrics(MeterRegistry registry) {
+        DocumentMetrics documentMetrics = new DocumentMetrics();
+        inject(documentMetrics, "meterRegistry", registry);
+        return documentMetrics;
+    }
+
+    /**
+     * Sets a private {@code @Autowired} field, standing in for the Spring context.
+     */
+    static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + fieldName + " into " + target.getClass(), e);
+        }
+    }
+
+    /**
+     * A repository stub whose boolean queries (the existsBy... checks) always answer false.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T repositoryStub(Class<T> repositoryType) {
+        return (T) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> repositoryType.getSimpleName() + "Stub";
+                    default -> method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                });
+    }
+}
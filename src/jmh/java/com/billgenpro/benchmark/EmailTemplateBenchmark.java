@@ -0,0 +1,64 @@
+package com.billgenpro.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.Receipt;
+import com.billgenpro.service.EmailBrandingService;
+import com.billgenpro.service.EmailService;
+
+/**
+ * Email bodies rendered per second, using the same template cache settings as production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private final EmailService emailService = new EmailService();
+    private final EmailBrandingService emailBrandingService = new EmailBrandingService();
+    private Invoice invoice;
+    private Receipt receipt;
+
+    @Setup
+    public void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        SpringTemplateEngine templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        BenchmarkFixtures.inject(emailService, "templateEngine", templateEngine);
+        BenchmarkFixtures.inject(emailService, "documentMetrics", BenchmarkFixtures.documentMetrics());
+
+        invoice = BenchmarkFixtures.invoice(10);
+        receipt = BenchmarkFixtures.receipt(10);
+    }
+
+    @Benchmark
+    public String invoiceEmail() {
+        return emailService.renderInvoiceBody(invoice, emailBrandingService.forInvoice(invoice), false);
+    }
+
+    @Benchmark
+    public String receiptEmail() {
+        return emailService.renderReceiptBody(receipt, emailBrandingService.forReceipt(receipt));
+    }
+}
@@ -0,0 +1,50 @@
+package com.billgenpro.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.billgenpro.model.Invoice;
+import com.billgenpro.service.ExcelService;
+
+/**
+ * Whole-workbook exports. The large sizes take seconds per call, so each measurement
+ * is a single invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExcelServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int rows;
+
+    private final ExcelService excelService = new ExcelService();
+    private List<Invoice> invoices;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.inject(excelService, "documentMetrics", BenchmarkFixtures.documentMetrics());
+        invoices = BenchmarkFixtures.invoices(rows);
+    }
+
+    @Benchmark
+    public byte[] generateInvoicesExcel() throws IOException {
+        return excelService.generateInvoicesExcel(invoices);
+    }
+}
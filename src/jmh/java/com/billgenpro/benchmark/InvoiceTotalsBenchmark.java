@@ -0,0 +1,95 @@
+package com.billgenpro.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceItem;
+
+/**
+ * Document totals on the long minor-unit path against the BigDecimal arithmetic it
+ * replaced. Run with {@code -prof gc} to compare allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvoiceTotalsBenchmark {
+
+    @Param({"1", "10", "1000", "10000"})
+    private int itemCount;
+
+    private Invoice invoice;
+
+    @Setup
+    public void setUp() {
+        invoice = BenchmarkFixtures.invoice(itemCount);
+    }
+
+    @Benchmark
+    public BigDecimal grandTotal() {
+        return invoice.getGrandTotal();
+    }
+
+    @Benchmark
+    public long grandTotalMinor() {
+        return invoice.getGrandTotalMinor();
+    }
+
+    /**
+     * Subtotal, tax and grand total as one export row needs them.
+     */
+    @Benchmark
+    public long exportRowMinor() {
+        long subTotal = invoice.getSubTotalMinor();
+        long grandTotal = invoice.getGrandTotalMinor();
+        return subTotal ^ (grandTotal - subTotal) ^ grandTotal;
+    }
+
+    @Benchmark
+    public BigDecimal grandTotalBigDecimal() {
+        return bigDecimalGrandTotal(invoice);
+    }
+
+    @Benchmark
+    public int exportRowBigDecimal() {
+        return bigDecimalSubTotal(invoice).hashCode() ^ bigDecimalTaxAmount(invoice).hashCode()
+                ^ bigDecimalGrandTotal(invoice).hashCode();
+    }
+
+    // The previous Invoice/InvoiceItem arithmetic, kept here as the baseline
+    private static BigDecimal bigDecimalLineTotal(InvoiceItem item) {
+        if (item.getQuantity() == null || item.getAmount() == null) {
+            return BigDecimal.ZERO;
+        }
+        return item.getAmount().multiply(BigDecimal.valueOf(item.getQuantity()));
+    }
+
+    private static BigDecimal bigDecimalSubTotal(Invoice invoice) {
+        return invoice.getItems().stream()
+                .map(InvoiceTotalsBenchmark::bigDecimalLineTotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static BigDecimal bigDecimalTaxAmount(Invoice invoice) {
+        return bigDecimalSubTotal(invoice).multiply(invoice.getTaxPercentage()).divide(BigDecimal.valueOf(100));
+    }
+
+    private static BigDecimal bigDecimalGrandTotal(Invoice invoice) {
+        return bigDecimalSubTotal(invoice).add(bigDecimalTaxAmount(invoice));
+    }
+}
@@ -0,0 +1,66 @@
+package com.billgenpro.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.service.DocumentMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Cost of the timer and byte counter wrapped around every generated document, against
+ * the bare call. Compare the difference with the PDF and Excel benchmark times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MetricsOverheadBenchmark {
+
+    @Param({"simple", "prometheus"})
+    private String registry;
+
+    private final byte[] document = new byte[4096];
+    private DocumentMetrics documentMetrics;
+
+    @Setup
+    public void setUp() {
+        MeterRegistry meterRegistry = registry.equals("prometheus")
+                ? new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)
+                : new SimpleMeterRegistry();
+        documentMetrics = BenchmarkFixtures.documentMetrics(meterRegistry);
+    }
+
+    @Benchmark
+    public byte[] bare() {
+        return generate();
+    }
+
+    @Benchmark
+    public byte[] timedPdf() {
+        return documentMetrics.recordPdf(DocumentType.INVOICE, 1, 10, this::generate);
+    }
+
+    private byte[] generate() {
+        return document;
+    }
+}
@@ -0,0 +1,64 @@
+package com.billgenpro.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.billgenpro.model.User;
+import com.billgenpro.repository.ArchivedDocumentRepository;
+import com.billgenpro.repository.InvoiceRepository;
+import com.billgenpro.repository.ReceiptRepository;
+import com.billgenpro.service.ArchiveService;
+import com.billgenpro.service.InvoiceService;
+import com.billgenpro.service.ReceiptService;
+
+/**
+ * Number generation against a repository stub, so only the generator itself is measured
+ * (the real uniqueness check is one indexed lookup per attempt).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class NumberGenerationBenchmark {
+
+    private final InvoiceService invoiceService = new InvoiceService();
+    private final ReceiptService receiptService = new ReceiptService();
+    private final User user = new User("Benchmark User", "bench@example.com", "secret");
+
+    @Setup
+    public void setUp() {
+        user.setId(1L);
+        BenchmarkFixtures.inject(invoiceService, "invoiceRepository", BenchmarkFixtures.repositoryStub(InvoiceRepository.class));
+        BenchmarkFixtures.inject(receiptService, "receiptRepository", BenchmarkFixtures.repositoryStub(ReceiptRepository.class));
+        // Numbers are also checked against the archive; a real service over a stub repository
+        ArchiveService archiveService = new ArchiveService();
+        BenchmarkFixtures.inject(archiveService, "archivedDocumentRepository",
+                BenchmarkFixtures.repositoryStub(ArchivedDocumentRepository.class));
+        BenchmarkFixtures.inject(invoiceService, "archiveService", archiveService);
+        BenchmarkFixtures.inject(receiptService, "archiveService", archiveService);
+    }
+
+    @Benchmark
+    public String invoiceNumber() {
+        return invoiceService.generateInvoiceNumber(user);
+    }
+
+    @Benchmark
+    public String receiptNumber() {
+        return receiptService.generateReceiptNumber(user);
+    }
+}
@@ -0,0 +1,91 @@
+package com.billgenpro.benchmark;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.billgenpro.model.Invoice;
+import com.billgenpro.service.LogoStore;
+import com.billgenpro.service.PdfService;
+
+/**
+ * Invoice PDF with and without a logo. With {@code cacheEntries=0} every render reads
+ * and decodes the stored PNG again, which is what the {@link LogoStore} cache saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfLogoBenchmark {
+
+    @Param({"0", "256"})
+    private int cacheEntries;
+
+    private final PdfService pdfService = new PdfService();
+    private Invoice plain;
+    private Invoice branded;
+
+    @Setup
+    public void setUp() throws Exception {
+        LogoStore logoStore = new LogoStore();
+        BenchmarkFixtures.inject(logoStore, "directory", Files.createTempDirectory("logos").toString());
+        BenchmarkFixtures.inject(logoStore, "maxPixels", 25_000_000L);
+        BenchmarkFixtures.inject(logoStore, "cacheMaxEntries", cacheEntries);
+        Method init = LogoStore.class.getDeclaredMethod("init");
+        init.setAccessible(true);
+        init.invoke(logoStore);
+
+        BenchmarkFixtures.inject(pdfService, "documentMetrics", BenchmarkFixtures.documentMetrics());
+        BenchmarkFixtures.inject(pdfService, "logoStore", logoStore);
+        plain = BenchmarkFixtures.invoice(10);
+        branded = BenchmarkFixtures.invoice(10);
+        branded.setLogoHash(logoStore.store(logo()));
+    }
+
+    @Benchmark
+    public byte[] withoutLogo() {
+        return pdfService.generateInvoicePdf(plain);
+    }
+
+    @Benchmark
+    public byte[] withLogo() {
+        return pdfService.generateInvoicePdf(branded);
+    }
+
+    // A typical upload: a 1200 x 480 transparent PNG with a mark and the company name
+    private static byte[] logo() throws IOException {
+        BufferedImage image = new BufferedImage(1200, 480, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(0x63, 0x66, 0xf1));
+        graphics.fillOval(40, 40, 400, 400);
+        graphics.setColor(new Color(0x1f, 0x29, 0x37));
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 120));
+        graphics.drawString("Acme Ltd", 480, 290);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,52 @@
+package com.billgenpro.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.Receipt;
+import com.billgenpro.service.PdfService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfServiceBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int itemCount;
+
+    private final PdfService pdfService = new PdfService();
+    private Invoice invoice;
+    private Receipt receipt;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.inject(pdfService, "documentMetrics", BenchmarkFixtures.documentMetrics());
+        invoice = BenchmarkFixtures.invoice(itemCount);
+        receipt = BenchmarkFixtures.receipt(itemCount);
+    }
+
+    @Benchmark
+    public byte[] generateInvoicePdf() {
+        return pdfService.generateInvoicePdf(invoice);
+    }
+
+    @Benchmark
+    public byte[] generateReceiptPdf() {
+        return pdfService.generateReceiptPdf(receipt);
+    }
+}
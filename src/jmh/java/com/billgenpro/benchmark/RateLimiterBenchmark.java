@@ -0,0 +1,75 @@
+package com.billgenpro.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.billgenpro.config.RateLimiter;
+
+/**
+ * Cost of one rate-limit check under 4 threads, for requests that get a token and for
+ * requests that are refused. With {@code users=1} every thread hits the same bucket,
+ * the worst case for CAS contention; with many users the threads spread over the map.
+ * {@code baseline} is the key lookup alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RateLimiterBenchmark {
+
+    @Param({"1", "10000"})
+    private int users;
+
+    private String[] keys;
+    private RateLimiter unlimited;
+    private RateLimiter exhausted;
+
+    @Setup
+    public void setUp() {
+        keys = new String[users];
+        for (int i = 0; i < users; i++) {
+            keys[i] = "user" + i + "@example.com";
+        }
+        // One token per nanosecond: never refuses
+        unlimited = new RateLimiter(60_000_000_000L, Integer.MAX_VALUE / 2);
+        exhausted = new RateLimiter(1, 1);
+        for (String key : keys) {
+            exhausted.tryAcquire(key);
+        }
+    }
+
+    @Benchmark
+    public String baseline() {
+        return key();
+    }
+
+    @Benchmark
+    public long allowed() {
+        return unlimited.tryAcquire(key());
+    }
+
+    @Benchmark
+    public long rejected() {
+        return exhausted.tryAcquire(key());
+    }
+
+    private String key() {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+}
@@ -0,0 +1,30 @@
+package com.billgenpro.loadtest;
+
+/**
+ * The operations a simulated client performs, with their share of the traffic mix.
+ */
+enum Endpoint {
+    LOGIN("POST /login", 0),
+    DASHBOARD("GET /dashboard", 25),
+    INVOICE_LIST("GET /invoices", 25),
+    INVOICE_FILTER("GET /invoices?filters", 15),
+    INVOICE_SAVE("POST /invoices/save", 10),
+    INVOICE_PDF("GET /invoices/{id}/pdf", 15),
+    INVOICE_EXPORT("GET /invoices/export", 10);
+
+    private final String label;
+    private final int weight;
+
+    Endpoint(String label, int weight) {
+        this.label = label;
+        this.weight = weight;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,64 @@
+package com.billgenpro.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Raw latency samples for one endpoint, plus requests turned away by the rate and
+ * concurrency limits (429/503), which are counted but kept out of the percentiles.
+ * Each client owns its own recorders, so no locking is needed; they are merged once
+ * the run is over.
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private int errors;
+    private int shed;
+
+    void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    void recordError() {
+        errors++;
+    }
+
+    void recordShed() {
+        shed++;
+    }
+
+    void merge(LatencyRecorder other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.samples[i]);
+        }
+        errors += other.errors;
+        shed += other.shed;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getErrors() {
+        return errors;
+    }
+
+    int getShed() {
+        return shed;
+    }
+
+    /**
+     * Nearest-rank percentile in milliseconds. Sorts the samples in place.
+     */
+    double percentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(samples, 0, count);
+        int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return samples[Math.max(rank - 1, 0)] / 1_000_000.0;
+    }
+}
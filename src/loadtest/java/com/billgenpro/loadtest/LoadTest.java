@@ -0,0 +1,105 @@
+package com.billgenpro.loadtest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.billgenpro.BillgenProApplication;
+
+/**
+ * Boots the application on a random port against an in-memory H2 database (MySQL mode),
+ * seeds it, drives it from many concurrent sessions and prints per-endpoint throughput
+ * and latency percentiles.
+ *
+ * Run with: mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--users=50 --clients=64 --duration=120"
+ */
+public final class LoadTest {
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        // devtools is on the runtime classpath; keep it from restarting the app or turning off template caching
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        System.setProperty("spring.devtools.add-properties", "false");
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BillgenProApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:billgenpro;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.threads.virtual.enabled=" + options.virtualThreads(),
+                        // An endpoint going over its @QueryBudget fails and shows up as errors in the report
+                        "billgenpro.query-budget.mode=fail",
+                        // A handful of seeded users stand in for all clients, so per-user rate limits are off
+                        "billgenpro.rate-limit.pdf.per-minute=0",
+                        "billgenpro.rate-limit.export.per-minute=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run();
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            List<LoadTestSeeder.SeededUser> users = LoadTestSeeder.seed(context, options);
+
+            System.out.printf("Running %d clients for %ds after %ds warmup (virtual threads: %s)%n",
+                    options.clients(), options.duration().toSeconds(), options.warmup().toSeconds(),
+                    options.virtualThreads());
+            long measureFrom = System.nanoTime() + options.warmup().toNanos();
+            long deadline = measureFrom + options.duration().toNanos();
+            List<LoadTestClient> clients = new ArrayList<>(options.clients());
+            ExecutorService pool = Executors.newFixedThreadPool(options.clients());
+            for (int i = 0; i < options.clients(); i++) {
+                LoadTestClient client = new LoadTestClient("http://localhost:" + port,
+                        users.get(i % users.size()), measureFrom, deadline, options.seed() + i);
+                clients.add(client);
+                pool.execute(client);
+            }
+            pool.shutdown();
+            pool.awaitTermination(options.warmup().plus(options.duration()).toSeconds() + 120, TimeUnit.SECONDS);
+
+            report(clients, options.duration().toMillis() / 1000.0);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void report(List<LoadTestClient> clients, double seconds) {
+        Map<Endpoint, LatencyRecorder> merged = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            merged.put(endpoint, new LatencyRecorder());
+        }
+        for (LoadTestClient client : clients) {
+            client.getRecorders().forEach((endpoint, recorder) -> merged.get(endpoint).merge(recorder));
+        }
+
+        String format = "%-26s %9s %7s %7s %9s %9s %9s %9s%n";
+        System.out.printf(format, "Endpoint", "Requests", "Errors", "Shed", "Req/s", "p50 ms", "p95 ms", "p99 ms");
+        int totalRequests = 0;
+        int totalErrors = 0;
+        int totalShed = 0;
+        for (Map.Entry<Endpoint, LatencyRecorder> entry : merged.entrySet()) {
+            LatencyRecorder recorder = entry.getValue();
+            totalRequests += recorder.getCount();
+            totalErrors += recorder.getErrors();
+            totalShed += recorder.getShed();
+            System.out.printf(format, entry.getKey().getLabel(), recorder.getCount(), recorder.getErrors(), recorder.getShed(),
+                    String.format("%.1f", recorder.getCount() / seconds),
+                    String.format("%.1f", recorder.percentileMillis(50)),
+                    String.format("%.1f", recorder.percentileMillis(95)),
+                    String.format("%.1f", recorder.percentileMillis(99)));
+        }
+        System.out.printf("Total: %d requests, %d errors, %d shed, %.1f req/s%n", totalRequests, totalErrors, totalShed,
+                totalRequests / seconds);
+    }
+}
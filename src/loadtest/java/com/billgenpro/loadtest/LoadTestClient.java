@@ -0,0 +1,193 @@
+package com.billgenpro.loadtest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One simulated browser session: logs in through the form, then issues a weighted
+ * mix of requests until the deadline. Latencies are only recorded after warmup.
+ */
+final class LoadTestClient implements Runnable {
+
+    private static final Pattern CSRF_INPUT = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+    private static final AtomicLong SAVE_SEQUENCE = new AtomicLong();
+
+    private final String baseUrl;
+    private final LoadTestSeeder.SeededUser user;
+    private final long measureFromNanos;
+    private final long deadlineNanos;
+    private final Random random;
+    private final HttpClient http;
+    private final Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+    private final int totalWeight;
+    private String csrfToken;
+
+    LoadTestClient(String baseUrl, LoadTestSeeder.SeededUser user, long measureFromNanos, long deadlineNanos, long seed) {
+        this.baseUrl = baseUrl;
+        this.user = user;
+        this.measureFromNanos = measureFromNanos;
+        this.deadlineNanos = deadlineNanos;
+        this.random = new Random(seed);
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new LatencyRecorder());
+        }
+        int weights = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            weights += endpoint.getWeight();
+        }
+        this.totalWeight = weights;
+    }
+
+    Map<Endpoint, LatencyRecorder> getRecorders() {
+        return recorders;
+    }
+
+    @Override
+    public void run() {
+        try {
+            login();
+            while (System.nanoTime() < deadlineNanos) {
+                execute(pick());
+            }
+        } catch (IOException e) {
+            System.err.println("Client for " + user.email() + " stopped: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void login() throws IOException, InterruptedException {
+        String loginPage = http.send(get("/login"), HttpResponse.BodyHandlers.ofString()).body();
+        String form = form("username", user.email(), "password", LoadTestSeeder.PASSWORD, "_csrf", extractCsrf(loginPage));
+        long start = System.nanoTime();
+        HttpResponse<Void> response = http.send(post("/login", form), HttpResponse.BodyHandlers.discarding());
+        String location = response.headers().firstValue("Location").orElse("");
+        record(Endpoint.LOGIN, start, response.statusCode() == 302 && location.endsWith("/dashboard"));
+        if (!location.endsWith("/dashboard")) {
+            throw new IOException("Login failed with status " + response.statusCode());
+        }
+        // The session (and its CSRF token) is replaced on login, so read the token again
+        csrfToken = extractCsrf(http.send(get("/invoices/new"), HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private Endpoint pick() {
+        int roll = random.nextInt(totalWeight);
+        for (Endpoint endpoint : Endpoint.values()) {
+            roll -= endpoint.getWeight();
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        return Endpoint.DASHBOARD;
+    }
+
+    private void execute(Endpoint endpoint) throws IOException, InterruptedException {
+        HttpRequest request = switch (endpoint) {
+            case DASHBOARD -> get("/dashboard");
+            case INVOICE_LIST -> get("/invoices");
+            case INVOICE_FILTER -> get("/invoices?status=" + (random.nextBoolean() ? "PAID" : "PENDING")
+                    + "&clientName=" + URLEncoder.encode(randomCustomer(), StandardCharsets.UTF_8));
+            case INVOICE_SAVE -> post("/invoices/save", newInvoiceForm());
+            case INVOICE_PDF -> get("/invoices/" + user.invoiceIds().get(random.nextInt(user.invoiceIds().size())) + "/pdf");
+            case INVOICE_EXPORT -> get("/invoices/export?status=PAID");
+            case LOGIN -> throw new IllegalStateException("Login is only performed once per client");
+        };
+        int expectedStatus = endpoint == Endpoint.INVOICE_SAVE ? 302 : 200;
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 429 || response.statusCode() == 503) {
+            recordShed(endpoint, start);
+        } else {
+            record(endpoint, start, response.statusCode() == expectedStatus);
+        }
+    }
+
+    private String newInvoiceForm() {
+        long sequence = SAVE_SEQUENCE.incrementAndGet();
+        return form("_csrf", csrfToken,
+                "number", "LT-" + sequence,
+                "date", "2024-06-01",
+                "status", "PENDING",
+                "templateNumber", "1",
+                "company.name", "Load Co",
+                "billTo.name", randomCustomer(),
+                "taxPercentage", "18",
+                "items[0].name", "Consulting",
+                "items[0].quantity", String.valueOf(1 + random.nextInt(10)),
+                "items[0].amount", "1500.00",
+                "items[1].name", "Support",
+                "items[1].quantity", "1",
+                "items[1].amount", "499.00");
+    }
+
+    private String randomCustomer() {
+        return user.customerNames().get(random.nextInt(user.customerNames().size()));
+    }
+
+    private void record(Endpoint endpoint, long startNanos, boolean success) {
+        long end = System.nanoTime();
+        // Logins all happen during warmup, so they are always kept
+        if (startNanos < measureFromNanos && endpoint != Endpoint.LOGIN) {
+            return;
+        }
+        LatencyRecorder recorder = recorders.get(endpoint);
+        recorder.record(end - startNanos);
+        if (!success) {
+            recorder.recordError();
+        }
+    }
+
+    private void recordShed(Endpoint endpoint, long startNanos) {
+        if (startNanos >= measureFromNanos) {
+            recorders.get(endpoint).recordShed();
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest post(String path, String form) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+    }
+
+    private static String form(String... pairs) {
+        StringJoiner joiner = new StringJoiner("&");
+        for (int i = 0; i < pairs.length; i += 2) {
+            joiner.add(URLEncoder.encode(pairs[i], StandardCharsets.UTF_8) + "="
+                    + URLEncoder.encode(pairs[i + 1], StandardCharsets.UTF_8));
+        }
+        return joiner.toString();
+    }
+
+    private static String extractCsrf(String html) throws IOException {
+        Matcher matcher = CSRF_INPUT.matcher(html);
+        if (!matcher.find()) {
+            throw new IOException("No CSRF token found in page");
+        }
+        return matcher.group(1);
+    }
+}
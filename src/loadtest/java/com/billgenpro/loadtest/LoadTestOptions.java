@@ -0,0 +1,43 @@
+package com.billgenpro.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Command-line options for {@link LoadTest}, given as {@code --name=value}.
+ */
+record LoadTestOptions(int users, int invoicesPerUser, int receiptsPerUser, int maxItems, int clients,
+                       Duration warmup, Duration duration, boolean virtualThreads, long seed) {
+
+    static LoadTestOptions parse(String[] args) {
+        int users = 20;
+        int invoicesPerUser = 200;
+        int receiptsPerUser = 50;
+        int maxItems = 20;
+        int clients = 32;
+        Duration warmup = Duration.ofSeconds(15);
+        Duration duration = Duration.ofSeconds(60);
+        boolean virtualThreads = false;
+        long seed = 42;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "users" -> users = Integer.parseInt(value);
+                case "invoices-per-user" -> invoicesPerUser = Integer.parseInt(value);
+                case "receipts-per-user" -> receiptsPerUser = Integer.parseInt(value);
+                case "max-items" -> maxItems = Integer.parseInt(value);
+                case "clients" -> clients = Integer.parseInt(value);
+                case "warmup" -> warmup = Duration.ofSeconds(Long.parseLong(value));
+                case "duration" -> duration = Duration.ofSeconds(Long.parseLong(value));
+                case "virtual-threads" -> virtualThreads = Boolean.parseBoolean(value);
+                case "seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        return new LoadTestOptions(users, invoicesPerUser, receiptsPerUser, maxItems, clients, warmup, duration, virtualThreads, seed);
+    }
+}
@@ -0,0 +1,58 @@
+package com.billgenpro.loadtest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.billgenpro.datagen.DatasetGenerator;
+import com.billgenpro.datagen.DatasetSpec;
+import com.billgenpro.datagen.JdbcBulkLoader;
+import com.billgenpro.datagen.LoadStats;
+
+/**
+ * Fills the embedded database with a generated dataset before the run.
+ */
+final class LoadTestSeeder {
+
+    static final String PASSWORD = "loadtest-password";
+
+    private static final int CUSTOMERS_PER_USER = 50;
+
+    private LoadTestSeeder() {}
+
+    static List<SeededUser> seed(ApplicationContext context, LoadTestOptions options) throws Exception {
+        DataSource dataSource = context.getBean(DataSource.class);
+        DatasetSpec spec = new DatasetSpec(options.seed(), 1, options.users(), options.invoicesPerUser(),
+                options.receiptsPerUser(), CUSTOMERS_PER_USER, options.maxItems(),
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        DatasetGenerator generator = new DatasetGenerator(spec);
+        // Hash once; every seeded user shares the same password
+        String encodedPassword = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        LoadStats stats = new JdbcBulkLoader(dataSource, 1000, Runtime.getRuntime().availableProcessors())
+                .load(generator, encodedPassword);
+        System.out.printf("Seeded %,d rows in %d ms (%,.0f rows/s)%n", stats.rows(),
+                stats.elapsedNanos() / 1_000_000, stats.rowsPerSecond());
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        List<SeededUser> seeded = new ArrayList<>(options.users());
+        for (int u = spec.firstUser(); u < spec.firstUser() + spec.users(); u++) {
+            String email = generator.email(u);
+            List<Long> invoiceIds = jdbcTemplate.queryForList(
+                    "SELECT i.id FROM invoices i JOIN users u ON u.id = i.user_id WHERE u.email = ?", Long.class, email);
+            List<String> customerNames = new ArrayList<>(CUSTOMERS_PER_USER);
+            for (int c = 0; c < CUSTOMERS_PER_USER; c++) {
+                customerNames.add(generator.customerName(u, c));
+            }
+            seeded.add(new SeededUser(email, invoiceIds, customerNames));
+        }
+        return seeded;
+    }
+
+    record SeededUser(String email, List<Long> invoiceIds, List<String> customerNames) {}
+}
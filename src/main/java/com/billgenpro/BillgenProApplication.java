@@ -2,8 +2,10 @@ package com.billgenpro;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BillgenProApplication {
     public static void main(String[] args) {
         SpringApplication.run(BillgenProApplication.class, args);
@@ -0,0 +1,105 @@
+package com.billgenpro.config;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrency limit that adjusts itself to observed latency (AIMD): every request
+ * that finishes within its target while the limit is in use raises the limit by
+ * {@code 1/limit}, so by about one per full round of requests; a slow one cuts it to
+ * 90%, at most once per {@code decreaseIntervalNanos} so one burst of slow requests
+ * counts as one signal. The limit stays between 1 and {@code maxLimit}.
+ *
+ * {@link #tryAcquire(double)} can admit a caller against only a share of the limit,
+ * which is how lower-priority work is turned away before higher-priority work.
+ */
+public class AdaptiveLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int maxLimit;
+    private final long decreaseIntervalNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private double limit;
+    private int inFlight;
+    private long lastDecrease;
+
+    public AdaptiveLimit(int maxLimit, long decreaseIntervalNanos) {
+        if (maxLimit < 1) {
+            throw new IllegalArgumentException("maxLimit must be at least 1");
+        }
+        this.maxLimit = maxLimit;
+        this.decreaseIntervalNanos = decreaseIntervalNanos;
+        this.limit = maxLimit;
+        this.lastDecrease = System.nanoTime() - decreaseIntervalNanos;
+    }
+
+    /**
+     * Takes a slot if fewer than {@code share} of the current limit (but at least one)
+     * are in use.
+     */
+    public boolean tryAcquire(double share) {
+        lock.lock();
+        try {
+            if (inFlight >= Math.max(1, (int) (limit * share))) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a slot taken by {@link #tryAcquire}, reporting whether the request was
+     * slower than its target.
+     */
+    public void release(boolean slow) {
+        lock.lock();
+        try {
+            int used = inFlight--;
+            if (slow) {
+                long now = System.nanoTime();
+                if (now - lastDecrease >= decreaseIntervalNanos) {
+                    limit = Math.max(1, limit * BACKOFF_RATIO);
+                    lastDecrease = now;
+                }
+            } else if (used * 2 >= limit) {
+                // Only grow while the limit is actually being used
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a slot without a latency sample, for a request that never ran.
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            inFlight--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.billgenpro.config;
+
+import java.time.Instant;
+
+/**
+ * The claims of a verified auth token.
+ *
+ * @param tokenId random id, used to revoke this token on logout
+ */
+public record AuthToken(String tokenId, Long userId, String email, Instant issuedAt, Instant expiresAt) {}
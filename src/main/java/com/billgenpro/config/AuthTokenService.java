@@ -0,0 +1,205 @@
+package com.billgenpro.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Issues and verifies the signed tokens used when {@code billgenpro.auth.mode=token}.
+ * A token is {@code <key id>.<payload>.<signature>}, where the payload carries a random
+ * token id, the user id, the email and the issue and expiry times, and the signature is
+ * HMAC-SHA256 over the first two parts. Verification needs only the keys and the
+ * in-memory {@link TokenRevocationList}, so any instance can check any token.
+ *
+ * Keys are configured as {@code billgenpro.auth.token.keys=<id>:<base64 secret>,...}.
+ * New tokens are signed with {@code billgenpro.auth.token.signing-key} (default: the
+ * first key); every listed key is accepted, so a key is rotated by adding the new one,
+ * switching the signing key, and removing the old one after one token lifetime.
+ */
+@Component
+@ConditionalOnProperty(name = "billgenpro.auth.mode", havingValue = "token")
+public class AuthTokenService {
+
+    public static final String COOKIE_NAME = "BILLGENPRO_TOKEN";
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthTokenService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Value("${billgenpro.auth.token.keys:}")
+    private String keysProperty;
+
+    @Value("${billgenpro.auth.token.signing-key:}")
+    private String signingKeyId;
+
+    @Value("${billgenpro.auth.token.ttl:12h}")
+    private Duration ttl;
+
+    private final Map<String, SecretKeySpec> keys = new LinkedHashMap<>();
+
+    @PostConstruct
+    void loadKeys() {
+        for (String entry : keysProperty.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int colon = entry.indexOf(':');
+            String id = colon > 0 ? entry.substring(0, colon).trim() : "";
+            if (id.isEmpty() || id.contains(".")) {
+                throw new IllegalStateException("billgenpro.auth.token.keys entries must look like <id>:<base64 secret>, "
+                        + "with no dot in the id");
+            }
+            byte[] secret = Base64.getDecoder().decode(entry.substring(colon + 1).trim());
+            if (secret.length < MIN_KEY_BYTES) {
+                throw new IllegalStateException("Token key " + id + " must be at least " + MIN_KEY_BYTES + " bytes");
+            }
+            keys.put(id, new SecretKeySpec(secret, ALGORITHM));
+        }
+        if (keys.isEmpty()) {
+            byte[] secret = new byte[MIN_KEY_BYTES];
+            new SecureRandom().nextBytes(secret);
+            keys.put("local", new SecretKeySpec(secret, ALGORITHM));
+            logger.warn("No billgenpro.auth.token.keys configured; using a random key. Tokens will not survive "
+                    + "a restart or be accepted by other instances.");
+        }
+        if (signingKeyId.isBlank()) {
+            signingKeyId = keys.keySet().iterator().next();
+        } else if (!keys.containsKey(signingKeyId)) {
+            throw new IllegalStateException("billgenpro.auth.token.signing-key " + signingKeyId
+                    + " is not in billgenpro.auth.token.keys");
+        }
+    }
+
+    public AuthToken issue(Long userId, String email) {
+        Instant now = Instant.now();
+        return new AuthToken(UUID.randomUUID().toString(), userId, email, now, now.plus(ttl));
+    }
+
+    public String encode(AuthToken token) {
+        String payload = token.tokenId() + "|" + token.userId() + "|" + token.issuedAt().getEpochSecond()
+                + "|" + token.expiresAt().getEpochSecond() + "|" + token.email();
+        String signed = signingKeyId + "." + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return signed + "." + ENCODER.encodeToString(sign(keys.get(signingKeyId), signed));
+    }
+
+    /**
+     * The token's claims if it is well-formed, signed by a configured key, unexpired and
+     * not revoked.
+     */
+    public Optional<AuthToken> verify(String value) {
+        int firstDot = value.indexOf('.');
+        int lastDot = value.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot) {
+            return Optional.empty();
+        }
+        SecretKeySpec key = keys.get(value.substring(0, firstDot));
+        if (key == null) {
+            return Optional.empty();
+        }
+        try {
+            byte[] signature = DECODER.decode(value.substring(lastDot + 1));
+            // Constant-time comparison, so response timing says nothing about the expected signature
+            if (!MessageDigest.isEqual(signature, sign(key, value.substring(0, lastDot)))) {
+                return Optional.empty();
+            }
+            String[] claims = new String(DECODER.decode(value.substring(firstDot + 1, lastDot)), StandardCharsets.UTF_8)
+                    .split("\\|", 5);
+            if (claims.length != 5) {
+                return Optional.empty();
+            }
+            AuthToken token = new AuthToken(claims[0], Long.valueOf(claims[1]),
+                    claims[4], Instant.ofEpochSecond(Long.parseLong(claims[2])), Instant.ofEpochSecond(Long.parseLong(claims[3])));
+            if (!token.expiresAt().isAfter(Instant.now()) || revocationList.isRevoked(token.tokenId())) {
+                return Optional.empty();
+            }
+            return Optional.of(token);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    public void revoke(AuthToken token) {
+        revocationList.revoke(token.tokenId(), token.expiresAt());
+    }
+
+    /**
+     * The raw token from an {@code Authorization: Bearer} header or, failing that, the
+     * auth cookie.
+     */
+    public String resolve(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return authorization.substring(7).trim();
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    public void writeCookie(HttpServletRequest request, HttpServletResponse response, String value) {
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie(request, value, ttl).toString());
+    }
+
+    public void clearCookie(HttpServletRequest request, HttpServletResponse response) {
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie(request, "", Duration.ZERO).toString());
+    }
+
+    public Duration getTtl() { return ttl; }
+
+    private static ResponseCookie cookie(HttpServletRequest request, String value, Duration maxAge) {
+        return ResponseCookie.from(COOKIE_NAME, value)
+                .httpOnly(true)
+                .secure(request.isSecure())
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(maxAge)
+                .build();
+    }
+
+    private static byte[] sign(SecretKeySpec key, String data) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC signing failed", e);
+        }
+    }
+}
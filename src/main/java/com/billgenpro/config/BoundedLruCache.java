@@ -0,0 +1,143 @@
+package com.billgenpro.config;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * An in-memory map that keeps at most {@code maxEntries} entries and, optionally, at most
+ * {@code maxWeight} in total value weight (bytes, say), dropping the least recently used
+ * entries first. Reads count as use.
+ *
+ * Every operation holds one {@link ReentrantLock} rather than synchronizing on the map:
+ * a virtual thread that blocks on a monitor pins its carrier thread, while one waiting
+ * on a {@code ReentrantLock} unmounts. The lock is only held for the map operation
+ * itself, so build values before storing them.
+ */
+public class BoundedLruCache<K, V> {
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    public BoundedLruCache(int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE, value -> 0);
+    }
+
+    public BoundedLruCache(int maxEntries, long maxWeight, ToLongFunction<? super V> weigher) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            return map.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            replace(key, value);
+            evictEldest();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the entry for {@code key} with whatever {@code remapping} returns for the
+     * current value (null if there is none), atomically; a null result removes the entry.
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        lock.lock();
+        try {
+            V value = remapping.apply(key, map.get(key));
+            if (value == null) {
+                remove(key);
+            } else {
+                replace(key, value);
+                evictEldest();
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public V remove(K key) {
+        lock.lock();
+        try {
+            V previous = map.remove(key);
+            if (previous != null) {
+                weight -= weigher.applyAsLong(previous);
+            }
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void removeIf(Predicate<? super V> filter) {
+        lock.lock();
+        try {
+            Iterator<V> values = map.values().iterator();
+            while (values.hasNext()) {
+                V value = values.next();
+                if (filter.test(value)) {
+                    weight -= weigher.applyAsLong(value);
+                    values.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long weight() {
+        lock.lock();
+        try {
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void replace(K key, V value) {
+        V previous = map.put(key, value);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+        weight += weigher.applyAsLong(value);
+    }
+
+    private void evictEldest() {
+        Iterator<Map.Entry<K, V>> eldest = map.entrySet().iterator();
+        while ((map.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            Map.Entry<K, V> entry = eldest.next();
+            weight -= weigher.applyAsLong(entry.getValue());
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.billgenpro.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * BCrypt, but run on a small pool of its own. Each hash burns tens of milliseconds of
+ * CPU on purpose, so a burst of logins (or a credential-stuffing run) hashed on request
+ * threads would take every core away from PDF and list traffic. Here at most
+ * {@code billgenpro.auth.password.hash-threads} hashes run at once, a bounded number
+ * wait behind them, and anything beyond that is rejected straight away: the login or
+ * registration fails with a "try again" message instead of queueing without limit.
+ *
+ * The work factor is {@code billgenpro.auth.password.strength}. Raising it re-hashes a
+ * user's password on their next successful login (see
+ * {@link CustomUserDetailsService#updatePassword}).
+ */
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Value("${billgenpro.auth.password.strength:10}")
+    private int strength;
+
+    // 0 = half the available processors
+    @Value("${billgenpro.auth.password.hash-threads:0}")
+    private int hashThreads;
+
+    @Value("${billgenpro.auth.password.queue-capacity:32}")
+    private int queueCapacity;
+
+    private BCryptPasswordEncoder delegate;
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong encodeCount = new AtomicLong();
+    private final AtomicLong encodeNanos = new AtomicLong();
+    private final AtomicLong matchesCount = new AtomicLong();
+    private final AtomicLong matchesNanos = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        delegate = new BCryptPasswordEncoder(strength);
+        int threads = hashThreads > 0 ? hashThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), workerThreads.factory("password-hash-"));
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> timed(encodeCount, encodeNanos, () -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> timed(matchesCount, matchesNanos, () -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * True for hashes made with a lower work factor. Skipped while hashes are queued: the
+     * upgrade costs a second hash on the login that triggers it, and a busy pool is the
+     * wrong time to spend it. The next quiet login picks it up.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return executor.getQueue().isEmpty() && delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int getQueueDepth() { return executor.getQueue().size(); }
+    public int getActiveCount() { return executor.getActiveCount(); }
+    public long getEncodeCount() { return encodeCount.get(); }
+    public double getEncodeNanos() { return encodeNanos.get(); }
+    public long getMatchesCount() { return matchesCount.get(); }
+    public double getMatchesNanos() { return matchesNanos.get(); }
+    public long getRejectedCount() { return rejected.get(); }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new AuthenticationServiceException("Too many sign-ins in progress. Please try again in a moment.");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Interrupted while checking the password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static <T> T timed(AtomicLong count, AtomicLong nanos, Callable<T> hash) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return hash.call();
+        } finally {
+            nanos.addAndGet(System.nanoTime() - start);
+            count.incrementAndGet();
+        }
+    }
+}
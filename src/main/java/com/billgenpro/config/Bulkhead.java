@@ -0,0 +1,20 @@
+package com.billgenpro.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs a controller endpoint inside its class's concurrency bulkhead and the shared
+ * limit for all heavy work. Requests that find no free slot are rejected with
+ * {@code 503 Service Unavailable} and {@code Retry-After} instead of queueing.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface Bulkhead {
+
+    EndpointClass value();
+}
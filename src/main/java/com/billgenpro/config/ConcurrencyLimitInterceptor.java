@@ -0,0 +1,140 @@
+package com.billgenpro.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admits {@link Bulkhead} endpoints through two {@link AdaptiveLimit}s: one per endpoint
+ * class, so a flood of exports can't use up the slots PDF downloads need, and one shared
+ * by all heavy work, so together they leave request threads and CPU for page loads. A
+ * request is slow when it takes longer than its class's target latency, and that
+ * lowers both limits.
+ *
+ * The shared limit sheds by priority. PDF downloads, which a user is waiting on, may
+ * fill all of it; emails only 75%; Excel exports, the most batch-like work, only half.
+ * As the limit shrinks under load, exports are turned away first.
+ */
+@Component
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String ACQUIRED_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".ACQUIRED";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    @Value("${billgenpro.concurrency.enabled:true}")
+    private boolean enabled;
+
+    @Value("${billgenpro.concurrency.max-limit:16}")
+    private int globalMaxLimit;
+
+    @Value("${billgenpro.concurrency.pdf.max-limit:8}")
+    private int pdfMaxLimit;
+
+    @Value("${billgenpro.concurrency.pdf.target-latency-ms:2000}")
+    private long pdfTargetMillis;
+
+    @Value("${billgenpro.concurrency.export.max-limit:2}")
+    private int exportMaxLimit;
+
+    @Value("${billgenpro.concurrency.export.target-latency-ms:10000}")
+    private long exportTargetMillis;
+
+    @Value("${billgenpro.concurrency.email.max-limit:8}")
+    private int emailMaxLimit;
+
+    @Value("${billgenpro.concurrency.email.target-latency-ms:1000}")
+    private long emailTargetMillis;
+
+    private AdaptiveLimit globalLimit;
+    private final Map<EndpointClass, AdaptiveLimit> bulkheads = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Long> targetNanos = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, AtomicLong> shed = new EnumMap<>(EndpointClass.class);
+
+    @PostConstruct
+    void createLimits() {
+        addBulkhead(EndpointClass.PDF, pdfMaxLimit, pdfTargetMillis);
+        addBulkhead(EndpointClass.EXPORT, exportMaxLimit, exportTargetMillis);
+        addBulkhead(EndpointClass.EMAIL, emailMaxLimit, emailTargetMillis);
+        // Decrease at most once per shortest target, so one wave of slow requests counts once
+        long shortestTarget = targetNanos.values().stream().mapToLong(Long::longValue).min().orElseThrow();
+        globalLimit = new AdaptiveLimit(globalMaxLimit, shortestTarget);
+    }
+
+    private void addBulkhead(EndpointClass endpointClass, int maxLimit, long targetMillis) {
+        long target = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        bulkheads.put(endpointClass, new AdaptiveLimit(maxLimit, target));
+        targetNanos.put(endpointClass, target);
+        shed.put(endpointClass, new AtomicLong());
+    }
+
+    private static double globalShare(EndpointClass endpointClass) {
+        return switch (endpointClass) {
+            case PDF -> 1.0;
+            case EMAIL -> 0.75;
+            case EXPORT -> 0.5;
+        };
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!enabled || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        Bulkhead bulkhead = handlerMethod.getMethodAnnotation(Bulkhead.class);
+        if (bulkhead == null) {
+            bulkhead = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), Bulkhead.class);
+        }
+        if (bulkhead == null) {
+            return true;
+        }
+        EndpointClass endpointClass = bulkhead.value();
+        AdaptiveLimit classLimit = bulkheads.get(endpointClass);
+        if (classLimit.tryAcquire(1.0)) {
+            if (globalLimit.tryAcquire(globalShare(endpointClass))) {
+                request.setAttribute(ACQUIRED_ATTRIBUTE, new Acquired(endpointClass, System.nanoTime()));
+                return true;
+            }
+            classLimit.cancel();
+        }
+        shed.get(endpointClass).incrementAndGet();
+        response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Too many " + endpointClass.key() + " requests in progress; try again shortly");
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ACQUIRED_ATTRIBUTE) instanceof Acquired acquired) {
+            request.removeAttribute(ACQUIRED_ATTRIBUTE);
+            boolean slow = System.nanoTime() - acquired.startNanos() > targetNanos.get(acquired.endpointClass());
+            bulkheads.get(acquired.endpointClass()).release(slow);
+            globalLimit.release(slow);
+        }
+    }
+
+    public int getLimit(EndpointClass endpointClass) { return bulkheads.get(endpointClass).getLimit(); }
+
+    public int getInFlight(EndpointClass endpointClass) { return bulkheads.get(endpointClass).getInFlight(); }
+
+    public long getShedCount(EndpointClass endpointClass) { return shed.get(endpointClass).get(); }
+
+    public int getGlobalLimit() { return globalLimit.getLimit(); }
+
+    public int getGlobalInFlight() { return globalLimit.getInFlight(); }
+
+    private record Acquired(EndpointClass endpointClass, long startNanos) {}
+}
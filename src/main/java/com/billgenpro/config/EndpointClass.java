@@ -0,0 +1,18 @@
+package com.billgenpro.config;
+
+/**
+ * Groups of endpoints that cost far more than a page view, limited and measured
+ * together: rendering a PDF, building an Excel export, and queueing an email.
+ */
+public enum EndpointClass {
+    PDF,
+    EXPORT,
+    EMAIL;
+
+    /**
+     * Lower-case name, as used in property names and metric tags.
+     */
+    public String key() {
+        return name().toLowerCase();
+    }
+}
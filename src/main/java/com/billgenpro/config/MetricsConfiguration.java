@@ -0,0 +1,335 @@
+package com.billgenpro.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.service.AgingReportService;
+import com.billgenpro.service.ArchiveService;
+import com.billgenpro.service.AuditService;
+import com.billgenpro.service.DashboardService;
+import com.billgenpro.service.DashboardUpdateService;
+import com.billgenpro.service.LogoStore;
+import com.billgenpro.service.EmailOutboxService;
+import com.billgenpro.service.EmailOutboxWorker;
+import com.billgenpro.service.IdempotencyService;
+import com.billgenpro.service.PdfPrerenderService;
+import com.billgenpro.service.ReminderRunStats;
+import com.billgenpro.service.ReminderService;
+import com.billgenpro.service.RequestCoalescer;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+/**
+ * Metrics beyond what Spring Boot registers on its own. Hikari pool, JVM and HTTP
+ * metrics and per-method Spring Data repository timers
+ * ({@code spring.data.repository.invocations}) come from the actuator auto-configuration.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    /**
+     * Publishes histogram buckets for request and repository timers so p95/p99 can be
+     * aggregated across instances in Prometheus.
+     */
+    @Bean
+    public MeterFilter latencyHistograms() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getName().equals("http.server.requests") || id.getName().equals("spring.data.repository.invocations")) {
+                    return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+                }
+                return config;
+            }
+        };
+    }
+
+    /**
+     * Tomcat only exposes its thread pool through JMX, so the MBean registry has to stay
+     * on for the {@code tomcat.threads.*} gauges. Runs after Boot's own customizer, which
+     * disables it by default.
+     */
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> tomcatMBeanRegistry() {
+        return factory -> factory.setDisableMBeanRegistry(false);
+    }
+
+    @Bean
+    public MeterBinder backgroundWorkMetrics(PdfPrerenderService pdfPrerenderService, RequestCoalescer requestCoalescer,
+                                            EmailOutboxWorker emailOutboxWorker, EmailOutboxService emailOutboxService) {
+        return registry -> {
+            Gauge.builder("billgenpro.pdf.prerender.queue.depth", pdfPrerenderService, PdfPrerenderService::getQueueDepth)
+                    .register(registry);
+            Gauge.builder("billgenpro.pdf.prerender.pending", pdfPrerenderService, PdfPrerenderService::getPendingCount)
+                    .register(registry);
+            Gauge.builder("billgenpro.pdf.prerender.lag", pdfPrerenderService, PdfPrerenderService::getLastRenderLagMillis)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.pdf.prerender.renders", pdfPrerenderService, PdfPrerenderService::getRenderedCount)
+                    .tag("result", "rendered")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.pdf.prerender.renders", pdfPrerenderService, PdfPrerenderService::getCoalescedCount)
+                    .tag("result", "coalesced")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.pdf.prerender.renders", pdfPrerenderService, PdfPrerenderService::getDroppedCount)
+                    .tag("result", "dropped")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.pdf.cache.requests", pdfPrerenderService, PdfPrerenderService::getCacheHitCount)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.pdf.cache.requests", pdfPrerenderService, PdfPrerenderService::getCacheMissCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("billgenpro.pdf.cache.size", pdfPrerenderService, PdfPrerenderService::getCachedBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+
+            FunctionCounter.builder("billgenpro.coalescer.requests", requestCoalescer, RequestCoalescer::getExecutedCount)
+                    .tag("result", "executed")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.coalescer.requests", requestCoalescer, RequestCoalescer::getCoalescedCount)
+                    .tag("result", "coalesced")
+                    .register(registry);
+            Gauge.builder("billgenpro.coalescer.in.flight", requestCoalescer, RequestCoalescer::getInFlightCount)
+                    .register(registry);
+
+            Gauge.builder("billgenpro.email.outbox.busy.workers", emailOutboxWorker, EmailOutboxWorker::getBusyWorkers)
+                    .register(registry);
+            // One indexed count query per scrape
+            Gauge.builder("billgenpro.email.outbox.queued", emailOutboxService, EmailOutboxService::getQueuedCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder reportMetrics(AgingReportService agingReportService, DashboardService dashboardService) {
+        return registry -> {
+            FunctionCounter.builder("billgenpro.report.cache.requests", agingReportService, AgingReportService::getCacheHitCount)
+                    .tag("report", "aging")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.report.cache.requests", agingReportService, AgingReportService::getCacheMissCount)
+                    .tag("report", "aging")
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.report.cache.requests", dashboardService, DashboardService::getCacheHitCount)
+                    .tag("report", "dashboard")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.report.cache.requests", dashboardService, DashboardService::getCacheMissCount)
+                    .tag("report", "dashboard")
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("billgenpro.report.cache.size", dashboardService, DashboardService::getCacheSize)
+                    .tag("report", "dashboard")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder logoMetrics(LogoStore logoStore) {
+        return registry -> {
+            FunctionCounter.builder("billgenpro.logos.uploads", logoStore, LogoStore::getStoredCount)
+                    .tag("result", "stored")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.logos.uploads", logoStore, LogoStore::getDeduplicatedCount)
+                    .tag("result", "deduplicated")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.logos.cache.requests", logoStore, LogoStore::getCacheHitCount)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.logos.cache.requests", logoStore, LogoStore::getCacheMissCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("billgenpro.logos.cache.size", logoStore, LogoStore::getCacheSize)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder archiveMetrics(ArchiveService archiveService) {
+        return registry -> {
+            FunctionCounter.builder("billgenpro.archive.documents", archiveService,
+                            service -> service.getArchivedCount(DocumentType.INVOICE))
+                    .tag("type", "invoice")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.archive.documents", archiveService,
+                            service -> service.getArchivedCount(DocumentType.RECEIPT))
+                    .tag("type", "receipt")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.archive.payload", archiveService, ArchiveService::getArchivedBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.archive.reads", archiveService, ArchiveService::getFallbackReadCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder reminderMetrics(ReminderService reminderService) {
+        return registry -> {
+            Gauge.builder("billgenpro.reminders.last.run", reminderService, lastRun(ReminderRunStats::getSent))
+                    .tag("result", "sent")
+                    .register(registry);
+            Gauge.builder("billgenpro.reminders.last.run", reminderService, lastRun(ReminderRunStats::getFailed))
+                    .tag("result", "failed")
+                    .register(registry);
+            Gauge.builder("billgenpro.reminders.last.run", reminderService, lastRun(ReminderRunStats::getSkipped))
+                    .tag("result", "skipped")
+                    .register(registry);
+            Gauge.builder("billgenpro.reminders.last.run.duration", reminderService,
+                            lastRun(ReminderRunStats::getDurationMillis))
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        };
+    }
+
+    // 0 until this instance has run reminders
+    private static ToDoubleFunction<ReminderService> lastRun(ToLongFunction<ReminderRunStats> value) {
+        return service -> service.getLastRun() != null ? value.applyAsLong(service.getLastRun()) : 0;
+    }
+
+    @Bean
+    public MeterBinder auditMetrics(AuditService auditService) {
+        return registry -> {
+            FunctionCounter.builder("billgenpro.audit.revisions", auditService, AuditService::getWrittenCount)
+                    .tag("result", "written")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.audit.revisions", auditService, AuditService::getUnchangedCount)
+                    .tag("result", "unchanged")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.audit.revisions", auditService, AuditService::getDroppedCount)
+                    .tag("result", "dropped")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.audit.revisions", auditService, AuditService::getFailedCount)
+                    .tag("result", "failed")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.audit.payload", auditService, AuditService::getWrittenBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("billgenpro.audit.queue.depth", auditService, AuditService::getQueueDepth)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder idempotencyMetrics(IdempotencyService idempotencyService) {
+        return registry -> {
+            FunctionCounter.builder("billgenpro.idempotency.lookups", idempotencyService, IdempotencyService::getCacheHitCount)
+                    .tag("result", "cache")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.idempotency.lookups", idempotencyService, IdempotencyService::getStoreHitCount)
+                    .tag("result", "database")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.idempotency.lookups", idempotencyService, IdempotencyService::getMissCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.idempotency.claimed", idempotencyService, IdempotencyService::getClaimedCount)
+                    .register(registry);
+            Gauge.builder("billgenpro.idempotency.cache.size", idempotencyService, IdempotencyService::getCacheSize)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder dashboardEventMetrics(DashboardUpdateService dashboardUpdateService) {
+        return registry -> {
+            Gauge.builder("billgenpro.dashboard.events.connections", dashboardUpdateService,
+                            DashboardUpdateService::getConnectionCount)
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.dashboard.events.sent", dashboardUpdateService,
+                            DashboardUpdateService::getSentCount)
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.dashboard.events.closed", dashboardUpdateService,
+                            DashboardUpdateService::getOverflowCount)
+                    .tag("reason", "overflow")
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.dashboard.events.closed", dashboardUpdateService,
+                            DashboardUpdateService::getRejectedCount)
+                    .tag("reason", "rejected")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordHashingMetrics(BoundedPasswordEncoder passwordEncoder) {
+        return registry -> {
+            FunctionTimer.builder("billgenpro.auth.password.hash", passwordEncoder,
+                            BoundedPasswordEncoder::getEncodeCount, BoundedPasswordEncoder::getEncodeNanos, TimeUnit.NANOSECONDS)
+                    .tag("operation", "encode")
+                    .register(registry);
+            FunctionTimer.builder("billgenpro.auth.password.hash", passwordEncoder,
+                            BoundedPasswordEncoder::getMatchesCount, BoundedPasswordEncoder::getMatchesNanos, TimeUnit.NANOSECONDS)
+                    .tag("operation", "matches")
+                    .register(registry);
+            Gauge.builder("billgenpro.auth.password.queue.depth", passwordEncoder, BoundedPasswordEncoder::getQueueDepth)
+                    .register(registry);
+            Gauge.builder("billgenpro.auth.password.active", passwordEncoder, BoundedPasswordEncoder::getActiveCount)
+                    .register(registry);
+            FunctionCounter.builder("billgenpro.auth.password.rejected", passwordEncoder, BoundedPasswordEncoder::getRejectedCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder rateLimitMetrics(RateLimitInterceptor rateLimitInterceptor) {
+        return registry -> {
+            for (EndpointClass endpointClass : EndpointClass.values()) {
+                FunctionCounter.builder("billgenpro.rate-limit.requests", rateLimitInterceptor,
+                                interceptor -> interceptor.getAllowedCount(endpointClass))
+                        .tag("class", endpointClass.key())
+                        .tag("result", "allowed")
+                        .register(registry);
+                FunctionCounter.builder("billgenpro.rate-limit.requests", rateLimitInterceptor,
+                                interceptor -> interceptor.getRejectedCount(endpointClass))
+                        .tag("class", endpointClass.key())
+                        .tag("result", "rejected")
+                        .register(registry);
+            }
+            Gauge.builder("billgenpro.rate-limit.buckets", rateLimitInterceptor, RateLimitInterceptor::getBucketCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder concurrencyLimitMetrics(ConcurrencyLimitInterceptor concurrencyLimitInterceptor) {
+        return registry -> {
+            for (EndpointClass endpointClass : EndpointClass.values()) {
+                Gauge.builder("billgenpro.concurrency.limit", concurrencyLimitInterceptor,
+                                interceptor -> interceptor.getLimit(endpointClass))
+                        .tag("bulkhead", endpointClass.key())
+                        .register(registry);
+                Gauge.builder("billgenpro.concurrency.in.flight", concurrencyLimitInterceptor,
+                                interceptor -> interceptor.getInFlight(endpointClass))
+                        .tag("bulkhead", endpointClass.key())
+                        .register(registry);
+                FunctionCounter.builder("billgenpro.concurrency.shed", concurrencyLimitInterceptor,
+                                interceptor -> interceptor.getShedCount(endpointClass))
+                        .tag("class", endpointClass.key())
+                        .register(registry);
+            }
+            Gauge.builder("billgenpro.concurrency.limit", concurrencyLimitInterceptor, ConcurrencyLimitInterceptor::getGlobalLimit)
+                    .tag("bulkhead", "global")
+                    .register(registry);
+            Gauge.builder("billgenpro.concurrency.in.flight", concurrencyLimitInterceptor, ConcurrencyLimitInterceptor::getGlobalInFlight)
+                    .tag("bulkhead", "global")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package com.billgenpro.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares how many SQL statements one call of a controller endpoint may issue,
+ * including lazy loads while the view renders. Going over the budget is logged,
+ * or fails the request when {@code billgenpro.query-budget.mode=fail}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface QueryBudget {
+
+    /**
+     * Maximum number of statements per request.
+     */
+    int value();
+}
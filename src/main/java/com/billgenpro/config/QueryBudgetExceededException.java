@@ -0,0 +1,11 @@
+package com.billgenpro.config;
+
+/**
+ * Thrown in {@code fail} mode by the statement that takes a request over its {@link QueryBudget}.
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+
+    public QueryBudgetExceededException(String endpoint, int budget, String sql) {
+        super(endpoint + " exceeded its query budget of " + budget + " statements; statement " + (budget + 1) + ": " + sql);
+    }
+}
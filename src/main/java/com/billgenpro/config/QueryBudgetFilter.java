@@ -0,0 +1,107 @@
+package com.billgenpro.config;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Counts the SQL statements each request issues (see {@link QueryCountingDataSourcePostProcessor}),
+ * reports them in a {@code Server-Timing} header and checks them against the endpoint's
+ * {@link QueryBudget}. Runs ahead of Spring Security so view rendering and lazy loads
+ * are included.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryBudgetFilter.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${billgenpro.query-budget.mode:log}")
+    private QueryBudgetMode mode;
+
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return mode == QueryBudgetMode.OFF;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestQueryStats stats = RequestQueryStats.start();
+        ServerTimingResponse timedResponse = new ServerTimingResponse(response, stats);
+        try {
+            filterChain.doFilter(request, timedResponse);
+            timedResponse.addServerTiming();
+        } finally {
+            RequestQueryStats.clear();
+            record(request, stats);
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestQueryStats stats) {
+        if (!stats.hasBudget()) {
+            return;
+        }
+        if (stats.isOverBudget()) {
+            logger.warn("{} {} issued {} SQL statements, over its budget of {} ({})", request.getMethod(),
+                    request.getRequestURI(), stats.getStatements(), stats.getBudget(), stats.getEndpoint());
+        }
+        summaries.computeIfAbsent(stats.getEndpoint(), endpoint -> DistributionSummary.builder("billgenpro.db.queries")
+                .description("SQL statements per request")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry))
+                .record(stats.getStatements());
+    }
+
+    /**
+     * Adds the header at the last moment it can still be sent, so statements issued
+     * while the view renders are counted up to the first flush.
+     */
+    private static final class ServerTimingResponse extends OnCommittedResponseWrapper {
+
+        private final RequestQueryStats stats;
+        private boolean added;
+
+        ServerTimingResponse(HttpServletResponse response, RequestQueryStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            addServerTiming();
+        }
+
+        void addServerTiming() {
+            if (added || isCommitted()) {
+                return;
+            }
+            added = true;
+            addHeader("Server-Timing", String.format(Locale.ROOT, "db;desc=\"%d queries\";dur=%.1f",
+                    stats.getStatements(), stats.getElapsedNanos() / 1_000_000.0));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.billgenpro.config;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Picks up the {@link QueryBudget} of the handler that serves the request, from the
+ * method or else its controller class.
+ */
+@Component
+public class QueryBudgetInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestQueryStats stats = RequestQueryStats.current();
+        if (stats == null || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        QueryBudget budget = handlerMethod.getMethodAnnotation(QueryBudget.class);
+        if (budget == null) {
+            budget = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), QueryBudget.class);
+        }
+        if (budget != null) {
+            stats.declareBudget(handlerMethod.getBeanType().getSimpleName() + "#" + handlerMethod.getMethod().getName(),
+                    budget.value());
+        }
+        return true;
+    }
+}
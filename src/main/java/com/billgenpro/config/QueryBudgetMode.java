@@ -0,0 +1,14 @@
+package com.billgenpro.config;
+
+/**
+ * What happens when a request goes over its {@link QueryBudget}
+ * ({@code billgenpro.query-budget.mode}).
+ */
+public enum QueryBudgetMode {
+    /** Statements are not counted and no Server-Timing header is sent. */
+    OFF,
+    /** Over-budget requests are logged as warnings. */
+    LOG,
+    /** The statement that goes over the budget throws {@link QueryBudgetExceededException}; meant for tests and load runs. */
+    FAIL
+}
@@ -0,0 +1,74 @@
+package com.billgenpro.config;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * Wraps the application's {@link DataSource} so every executed statement is counted
+ * and timed against the current request's {@link RequestQueryStats}. The pool itself
+ * is untouched; {@code unwrap} still reaches it for the Hikari metrics.
+ */
+@Component
+public class QueryCountingDataSourcePostProcessor implements BeanPostProcessor, EnvironmentAware {
+
+    private QueryBudgetMode mode = QueryBudgetMode.LOG;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        mode = environment.getProperty("billgenpro.query-budget.mode", QueryBudgetMode.class, QueryBudgetMode.LOG);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource || mode == QueryBudgetMode.OFF) {
+            return bean;
+        }
+        return ProxyDataSourceBuilder.create(dataSource)
+                .name(beanName)
+                .listener(new CountingListener(mode == QueryBudgetMode.FAIL))
+                .build();
+    }
+
+    private static final class CountingListener implements QueryExecutionListener {
+
+        private final boolean failOverBudget;
+
+        CountingListener(boolean failOverBudget) {
+            this.failOverBudget = failOverBudget;
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            RequestQueryStats stats = RequestQueryStats.current();
+            if (stats == null) {
+                return;
+            }
+            // Fail before the statement runs, so the reported query is the one over budget
+            if (failOverBudget && stats.hasBudget() && stats.getStatements() >= stats.getBudget()) {
+                throw new QueryBudgetExceededException(stats.getEndpoint(), stats.getBudget(),
+                        queryInfoList.isEmpty() ? "?" : queryInfoList.get(0).getQuery());
+            }
+            stats.statementStarted();
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            RequestQueryStats stats = RequestQueryStats.current();
+            if (stats != null) {
+                stats.statementFinished();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.billgenpro.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Applies the per-user limits of {@link RateLimited} endpoints. Buckets are keyed by the
+ * authenticated user name, which identifies the user without a database lookup; a
+ * limit of 0 per minute turns its class off.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    @Value("${billgenpro.rate-limit.pdf.per-minute:60}")
+    private long pdfPerMinute;
+
+    @Value("${billgenpro.rate-limit.pdf.burst:20}")
+    private int pdfBurst;
+
+    @Value("${billgenpro.rate-limit.export.per-minute:10}")
+    private long exportPerMinute;
+
+    @Value("${billgenpro.rate-limit.export.burst:5}")
+    private int exportBurst;
+
+    @Value("${billgenpro.rate-limit.email.per-minute:20}")
+    private long emailPerMinute;
+
+    @Value("${billgenpro.rate-limit.email.burst:10}")
+    private int emailBurst;
+
+    private final Map<EndpointClass, RateLimiter> limiters = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, AtomicLong> allowed = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, AtomicLong> rejected = new EnumMap<>(EndpointClass.class);
+
+    @PostConstruct
+    void createLimiters() {
+        addLimiter(EndpointClass.PDF, pdfPerMinute, pdfBurst);
+        addLimiter(EndpointClass.EXPORT, exportPerMinute, exportBurst);
+        addLimiter(EndpointClass.EMAIL, emailPerMinute, emailBurst);
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            allowed.put(endpointClass, new AtomicLong());
+            rejected.put(endpointClass, new AtomicLong());
+        }
+    }
+
+    private void addLimiter(EndpointClass endpointClass, long perMinute, int burst) {
+        if (perMinute > 0) {
+            limiters.put(endpointClass, new RateLimiter(perMinute, burst));
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        RateLimited rateLimited = handlerMethod.getMethodAnnotation(RateLimited.class);
+        if (rateLimited == null) {
+            rateLimited = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), RateLimited.class);
+        }
+        String user = request.getRemoteUser();
+        if (rateLimited == null || user == null) {
+            return true;
+        }
+        EndpointClass endpointClass = rateLimited.value();
+        RateLimiter limiter = limiters.get(endpointClass);
+        long waitNanos = limiter == null ? 0 : limiter.tryAcquire(user);
+        if (waitNanos == 0) {
+            allowed.get(endpointClass).incrementAndGet();
+            return true;
+        }
+        rejected.get(endpointClass).incrementAndGet();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(),
+                "Too many " + endpointClass.key() + " requests; try again in " + retryAfterSeconds + " s");
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${billgenpro.rate-limit.sweep-ms:60000}")
+    public void evictIdleBuckets() {
+        limiters.values().forEach(RateLimiter::evictIdle);
+    }
+
+    public long getAllowedCount(EndpointClass endpointClass) { return allowed.get(endpointClass).get(); }
+
+    public long getRejectedCount(EndpointClass endpointClass) { return rejected.get(endpointClass).get(); }
+
+    public int getBucketCount() {
+        return limiters.values().stream().mapToInt(RateLimiter::size).sum();
+    }
+}
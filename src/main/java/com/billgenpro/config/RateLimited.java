@@ -0,0 +1,19 @@
+package com.billgenpro.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a controller endpoint under its class's per-user rate limit. Requests over the
+ * limit get {@code 429 Too Many Requests} with a {@code Retry-After} header.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RateLimited {
+
+    EndpointClass value();
+}
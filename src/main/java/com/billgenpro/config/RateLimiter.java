@@ -0,0 +1,68 @@
+package com.billgenpro.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets, one per key, that refill at {@code permitsPerMinute} and hold at most
+ * {@code burst} tokens.
+ *
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be full
+ * again (the "generic cell rate" form of a token bucket): taking a token pushes that
+ * time one refill interval further, and a request is refused when doing so would put
+ * it more than {@code burst} intervals ahead of now. Acquiring is one CAS on the
+ * caller's own bucket, so users never contend with each other, and the map itself is
+ * lock-striped.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(long permitsPerMinute, int burst) {
+        if (permitsPerMinute <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerMinute and burst must be positive");
+        }
+        this.intervalNanos = 60_000_000_000L / permitsPerMinute;
+        this.capacityNanos = intervalNanos * burst;
+    }
+
+    /**
+     * Takes a token from {@code key}'s bucket.
+     *
+     * @return 0 if the request may proceed, otherwise the nanoseconds until a token is available
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long next = (fullAt - now > 0 ? fullAt : now) + intervalNanos;
+            long ahead = next - now;
+            if (ahead > capacityNanos) {
+                return ahead - capacityNanos;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have refilled completely; they behave exactly like a new one.
+     * A request racing with the removal may take a token from the dropped bucket, which
+     * at worst lets one extra request through.
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,36 @@
+package com.billgenpro.config;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import com.billgenpro.service.ReminderRunStats;
+import com.billgenpro.service.ReminderService;
+
+/**
+ * {@code /actuator/reminders}: the last overdue-reminder run on this instance ({@code GET},
+ * 404 before the first), and an on-demand run ({@code POST}), which starts in the background.
+ * Only served once {@code reminders} is added to {@code management.endpoints.web.exposure.include},
+ * and, like every actuator path other than health and prometheus, only to a logged-in caller.
+ */
+@Component
+@Endpoint(id = "reminders")
+public class ReminderEndpoint {
+
+    @Autowired
+    private ReminderService reminderService;
+
+    @ReadOperation
+    public ReminderRunStats lastRun() {
+        return reminderService.getLastRun();
+    }
+
+    @WriteOperation
+    public Map<String, Boolean> run() {
+        return Map.of("started", reminderService.startRun());
+    }
+}
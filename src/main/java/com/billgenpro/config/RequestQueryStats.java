@@ -0,0 +1,57 @@
+package com.billgenpro.config;
+
+/**
+ * Statements issued by the current HTTP request and the time spent in them. Bound to
+ * the request thread by {@link QueryBudgetFilter}; queries from background workers
+ * run without stats and are not counted.
+ */
+public final class RequestQueryStats {
+
+    private static final ThreadLocal<RequestQueryStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long elapsedNanos;
+    private long statementStartNanos;
+    private int budget = -1;
+    private String endpoint;
+
+    static RequestQueryStats start() {
+        RequestQueryStats stats = new RequestQueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static RequestQueryStats current() {
+        return CURRENT.get();
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    void statementStarted() {
+        statementStartNanos = System.nanoTime();
+    }
+
+    void statementFinished() {
+        statements++;
+        elapsedNanos += System.nanoTime() - statementStartNanos;
+    }
+
+    void declareBudget(String endpoint, int budget) {
+        this.endpoint = endpoint;
+        this.budget = budget;
+    }
+
+    public int getStatements() { return statements; }
+
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    public int getBudget() { return budget; }
+
+    public String getEndpoint() { return endpoint; }
+
+    public boolean hasBudget() { return budget >= 0; }
+
+    public boolean isOverBudget() { return hasBudget() && statements > budget; }
+}
@@ -1,42 +1,116 @@
 package com.billgenpro.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.logout.LogoutFilter;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
+import com.billgenpro.model.User;
+import com.billgenpro.repository.UserRepository;
+
+/**
+ * Two interchangeable setups, chosen with {@code billgenpro.auth.mode}:
+ * <ul>
+ *   <li>{@code session} (default): form login with the authentication held in the
+ *       {@code HttpSession}, so several instances need sticky sessions.</li>
+ *   <li>{@code token}: the same form login, but success hands out a signed token cookie
+ *       (see {@link AuthTokenService}) and no session is kept. CSRF tokens move to a
+ *       cookie as well, so any instance can serve any request. API clients send the
+ *       same token as a bearer header, which needs no CSRF token.</li>
+ * </ul>
+ * Both check passwords with the {@link BoundedPasswordEncoder} bean.
+ */
 @Configuration
 @EnableWebSecurity
 public class SecurityConfiguration {
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @ConditionalOnProperty(name = "billgenpro.auth.mode", havingValue = "session", matchIfMissing = true)
+    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+        authorizeRequests(http)
+            .formLogin(form -> form
+                .loginPage("/login")
+                .defaultSuccessUrl("/dashboard", true)
+                .failureUrl("/login?error=true")
+                .permitAll()
+            )
+            .logout(logout -> logout
+                .logoutUrl("/logout")
+                .logoutSuccessUrl("/")
+                .permitAll()
+            );
+
+        return http.build();
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        http
-            .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/", "/register", "/login", "/css/**", "/js/**", "/images/**", "/error").permitAll()
-                .anyRequest().authenticated()
+    @ConditionalOnProperty(name = "billgenpro.auth.mode", havingValue = "token")
+    public SecurityFilterChain tokenSecurityFilterChain(HttpSecurity http, AuthTokenService authTokenService,
+                                                        UserRepository userRepository) throws Exception {
+        authorizeRequests(http, "/api/auth/token")
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .securityContext(context -> context.securityContextRepository(new RequestAttributeSecurityContextRepository()))
+            .requestCache(cache -> cache.requestCache(new NullRequestCache()))
+            .csrf(csrf -> csrf
+                .csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
+                // Browsers never attach an Authorization header on their own, so bearer requests can't be forged
+                .ignoringRequestMatchers(request -> request.getHeader(HttpHeaders.AUTHORIZATION) != null,
+                        new AntPathRequestMatcher("/api/auth/token"))
+            )
+            // Ahead of logout, so the logout handler can see which token to revoke
+            .addFilterBefore(new TokenAuthenticationFilter(authTokenService), LogoutFilter.class)
+            .exceptionHandling(exceptions -> exceptions
+                .defaultAuthenticationEntryPointFor(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED),
+                        new AntPathRequestMatcher("/api/**"))
             )
             .formLogin(form -> form
                 .loginPage("/login")
-                .defaultSuccessUrl("/dashboard", true)
+                .successHandler((request, response, authentication) -> {
+                    User user = userRepository.findByEmail(authentication.getName())
+                            .orElseThrow(() -> new IllegalStateException("Authenticated user not found"));
+                    authTokenService.writeCookie(request, response,
+                            authTokenService.encode(authTokenService.issue(user.getId(), user.getEmail())));
+                    response.sendRedirect(request.getContextPath() + "/dashboard");
+                })
                 .failureUrl("/login?error=true")
                 .permitAll()
             )
             .logout(logout -> logout
                 .logoutUrl("/logout")
+                .addLogoutHandler((request, response, authentication) -> {
+                    if (request.getAttribute(TokenAuthenticationFilter.TOKEN_ATTRIBUTE) instanceof AuthToken token) {
+                        authTokenService.revoke(token);
+                    }
+                    authTokenService.clearCookie(request, response);
+                })
                 .logoutSuccessUrl("/")
                 .permitAll()
             );
 
         return http.build();
     }
-}
 
+    private static HttpSecurity authorizeRequests(HttpSecurity http, String... extraPublicPaths) throws Exception {
+        return http
+            .authorizeHttpRequests(auth -> {
+                auth.requestMatchers("/", "/register", "/login", "/css/**", "/js/**", "/images/**", "/error").permitAll();
+                if (extraPublicPaths.length > 0) {
+                    auth.requestMatchers(extraPublicPaths).permitAll();
+                }
+                // Only the endpoints listed in management.endpoints.web.exposure.include are served
+                auth.requestMatchers("/actuator/health/**", "/actuator/prometheus").permitAll()
+                    .anyRequest().authenticated();
+            });
+    }
+}
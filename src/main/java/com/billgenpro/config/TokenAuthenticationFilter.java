@@ -0,0 +1,53 @@
+package com.billgenpro.config;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Authenticates requests from a bearer header or the auth cookie, with no session or
+ * database lookup. The authentication's name is the email, as with form login, so
+ * controllers work the same in both modes. Requests without a valid token carry on
+ * unauthenticated and the usual entry point applies.
+ *
+ * Not a bean on purpose: Spring Boot would also register it as a servlet filter.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    /** Request attribute holding the verified {@link AuthToken}, for logout. */
+    public static final String TOKEN_ATTRIBUTE = TokenAuthenticationFilter.class.getName() + ".token";
+
+    private static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("USER"));
+
+    private final AuthTokenService authTokenService;
+
+    public TokenAuthenticationFilter(AuthTokenService authTokenService) {
+        this.authTokenService = authTokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String value = authTokenService.resolve(request);
+        Optional<AuthToken> token = value != null ? authTokenService.verify(value) : Optional.empty();
+        if (token.isPresent()) {
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(token.get().email(), null, AUTHORITIES));
+            SecurityContextHolder.setContext(context);
+            request.setAttribute(TOKEN_ATTRIBUTE, token.get());
+        }
+        filterChain.doFilter(request, response);
+    }
+}
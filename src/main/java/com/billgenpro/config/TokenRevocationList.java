@@ -0,0 +1,86 @@
+package com.billgenpro.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.billgenpro.model.RevokedToken;
+import com.billgenpro.repository.RevokedTokenRepository;
+
+/**
+ * Ids of logged-out tokens that have not expired yet, held in memory so token checks
+ * never touch the database. Revocations are written to {@code revoked_tokens} and every
+ * instance polls that table, so a logout on one node reaches the others within one
+ * poll interval.
+ */
+@Component
+@ConditionalOnProperty(name = "billgenpro.auth.mode", havingValue = "token")
+public class TokenRevocationList {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    // Re-read a little history on every poll: a revocation stamped just before the last
+    // poll may have committed just after it
+    private static final Duration POLL_OVERLAP = Duration.ofMinutes(1);
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    // token id -> expiry; entries are dropped once the token would be rejected anyway
+    private final ConcurrentHashMap<String, Instant> revoked = new ConcurrentHashMap<>();
+
+    private volatile Instant lastPoll = Instant.EPOCH;
+
+    public boolean isRevoked(String tokenId) {
+        return revoked.containsKey(tokenId);
+    }
+
+    public void revoke(String tokenId, Instant expiresAt) {
+        Instant now = Instant.now();
+        if (!expiresAt.isAfter(now)) {
+            return;
+        }
+        revoked.put(tokenId, expiresAt);
+        try {
+            revokedTokenRepository.save(new RevokedToken(tokenId, expiresAt, now));
+        } catch (DataIntegrityViolationException e) {
+            // Already revoked, e.g. a repeated logout
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    @Scheduled(fixedDelayString = "${billgenpro.auth.token.revocation-poll-ms:10000}")
+    public void poll() {
+        Instant now = Instant.now();
+        Instant since = lastPoll.equals(Instant.EPOCH) ? Instant.EPOCH : lastPoll.minus(POLL_OVERLAP);
+        try {
+            for (RevokedToken token : revokedTokenRepository.findRevokedSince(since, now)) {
+                revoked.put(token.getTokenId(), token.getExpiresAt());
+            }
+            lastPoll = now;
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh revoked tokens; keeping the current list", e);
+        }
+        revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+    }
+
+    @Scheduled(fixedDelayString = "${billgenpro.auth.token.revocation-purge-ms:3600000}",
+               initialDelayString = "${billgenpro.auth.token.revocation-purge-ms:3600000}")
+    public void purgeExpired() {
+        int purged = revokedTokenRepository.deleteExpired(Instant.now());
+        if (purged > 0) {
+            logger.debug("Purged {} expired token revocations", purged);
+        }
+    }
+}
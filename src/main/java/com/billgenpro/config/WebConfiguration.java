@@ -0,0 +1,89 @@
+package com.billgenpro.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    @Autowired
+    private QueryBudgetInterceptor queryBudgetInterceptor;
+
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Autowired
+    private ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+    @Value("${billgenpro.web.static-max-age:365d}")
+    private Duration staticMaxAge;
+
+    @Value("${billgenpro.web.compression.enabled:true}")
+    private boolean compressionEnabled;
+
+    @Value("${billgenpro.web.compression.min-response-size:1KB}")
+    private DataSize compressionMinResponseSize;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(queryBudgetInterceptor);
+        registry.addInterceptor(rateLimitInterceptor);
+        // After the rate limit, so requests it rejects never hold a slot
+        registry.addInterceptor(concurrencyLimitInterceptor);
+    }
+
+    /**
+     * Stylesheets and scripts are linked with a content hash in the file name
+     * ({@code /css/base-<md5>.css}, rewritten by {@link #resourceUrlEncodingFilter()}), so
+     * they can be cached for good: a changed file gets a new URL. Clients that accept gzip
+     * get the {@code .gz} copy written at build time.
+     */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (String directory : new String[] {"css", "js"}) {
+            registry.addResourceHandler("/" + directory + "/**")
+                    .addResourceLocations("classpath:/static/" + directory + "/")
+                    .setCacheControl(CacheControl.maxAge(staticMaxAge).cachePublic().immutable())
+                    .resourceChain(true)
+                    .addResolver(new EncodedResourceResolver())
+                    .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+        }
+    }
+
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+
+    /**
+     * Compresses rendered pages, which repeat the same markup for every table row. CSRF
+     * tokens in those pages are masked per request by Spring Security, so compression
+     * doesn't leak them.
+     */
+    @Bean
+    public WebServerFactoryCustomizer<ConfigurableServletWebServerFactory> responseCompression() {
+        return factory -> {
+            Compression compression = new Compression();
+            compression.setEnabled(compressionEnabled);
+            compression.setMimeTypes(new String[] {"text/html", "text/css", "text/javascript", "application/javascript",
+                    "application/json", "text/plain"});
+            compression.setMinResponseSize(compressionMinResponseSize);
+            factory.setCompression(compression);
+        };
+    }
+}
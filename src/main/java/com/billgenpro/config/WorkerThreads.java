@@ -0,0 +1,36 @@
+package com.billgenpro.config;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Thread factories for the application's own background pools. When
+ * {@code spring.threads.virtual.enabled=true} (which also moves Tomcat, {@code @Async}
+ * and {@code @Scheduled} work onto virtual threads) the pools get virtual threads too;
+ * their size limits still apply, so concurrency stays bounded either way.
+ */
+@Component
+public class WorkerThreads {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    public ThreadFactory factory(String namePrefix) {
+        if (virtualThreads) {
+            return Thread.ofVirtual().name(namePrefix, 1).factory();
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public boolean isVirtual() {
+        return virtualThreads;
+    }
+}
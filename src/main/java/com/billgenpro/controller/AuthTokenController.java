@@ -0,0 +1,56 @@
+package com.billgenpro.controller;
+
+import com.billgenpro.config.AuthToken;
+import com.billgenpro.config.AuthTokenService;
+import com.billgenpro.model.User;
+import com.billgenpro.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Hands out bearer tokens to API clients in token auth mode. Send the token back as
+ * {@code Authorization: Bearer <token>}; {@code POST /logout} with that header revokes it.
+ */
+@RestController
+@RequestMapping("/api/auth")
+@ConditionalOnProperty(name = "billgenpro.auth.mode", havingValue = "token")
+public class AuthTokenController {
+
+    @Autowired
+    private AuthenticationConfiguration authenticationConfiguration;
+
+    @Autowired
+    private AuthTokenService authTokenService;
+
+    @Autowired
+    private UserService userService;
+
+    public record TokenRequest(String email, String password) {}
+
+    @PostMapping("/token")
+    public ResponseEntity<Map<String, Object>> issueToken(@RequestBody TokenRequest tokenRequest) throws Exception {
+        try {
+            authenticationConfiguration.getAuthenticationManager().authenticate(
+                    UsernamePasswordAuthenticationToken.unauthenticated(tokenRequest.email(), tokenRequest.password()));
+        } catch (AuthenticationException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid email or password"));
+        }
+        User user = userService.findByEmail(tokenRequest.email());
+        AuthToken token = authTokenService.issue(user.getId(), user.getEmail());
+        return ResponseEntity.ok(Map.of(
+                "token", authTokenService.encode(token),
+                "tokenType", "Bearer",
+                "expiresAt", token.expiresAt().toString()));
+    }
+}
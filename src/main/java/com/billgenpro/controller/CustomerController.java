@@ -0,0 +1,38 @@
+package com.billgenpro.controller;
+
+import com.billgenpro.config.QueryBudget;
+import com.billgenpro.model.User;
+import com.billgenpro.service.CustomerService;
+import com.billgenpro.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+@Controller
+@RequestMapping("/customers")
+public class CustomerController {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private UserService userService;
+
+    private User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String email = authentication.getName();
+        return userService.findByEmail(email);
+    }
+
+    @GetMapping
+    @QueryBudget(2)
+    public String listCustomers(Model model) {
+        User currentUser = getCurrentUser();
+        model.addAttribute("customers", customerService.getCustomersByUser(currentUser));
+        return "customers/list";
+    }
+}
@@ -1,28 +1,33 @@
 package com.billgenpro.controller;
 
-import com.billgenpro.model.InvoiceStatus;
+import com.billgenpro.config.QueryBudget;
 import com.billgenpro.model.User;
-import com.billgenpro.service.InvoiceService;
-import com.billgenpro.service.ReceiptService;
+import com.billgenpro.service.DashboardService;
+import com.billgenpro.service.DashboardUpdateService;
 import com.billgenpro.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.io.IOException;
+import java.util.Optional;
 
 @Controller
 public class HomeController {
 
     @Autowired
-    private InvoiceService invoiceService;
+    private DashboardService dashboardService;
 
     @Autowired
-    private ReceiptService receiptService;
+    private DashboardUpdateService dashboardUpdateService;
 
     @Autowired
     private UserService userService;
@@ -39,39 +44,45 @@ public class HomeController {
     }
 
     @GetMapping("/dashboard")
+    @QueryBudget(12)
     public String dashboard(Model model) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth != null && auth.isAuthenticated() && !"anonymousUser".equals(auth.getPrincipal())) {
             String email = auth.getName();
             User user = userService.findByEmail(email);
 
-            // Invoice statistics
-            BigDecimal totalRevenuePaid = invoiceService.getTotalRevenueByUser(user);
-            BigDecimal totalRevenueUnpaid = invoiceService.getUnpaidRevenueByUser(user);
-            Long totalInvoices = invoiceService.getInvoiceCountByUser(user);
-            Long paidCount = invoiceService.getInvoiceCountByUserAndStatus(user, InvoiceStatus.PAID);
-            Long pendingCount = invoiceService.getInvoiceCountByUserAndStatus(user, InvoiceStatus.PENDING);
-            Long overdueCount = invoiceService.getInvoiceCountByUserAndStatus(user, InvoiceStatus.OVERDUE);
+            DashboardService.DashboardStats stats = dashboardService.getStats(user);
 
-            // Receipt statistics
-            Long totalReceipts = receiptService.getReceiptCountByUser(user);
-
-            // Daily revenue (from both invoices and receipts)
-            LocalDate today = LocalDate.now();
-            BigDecimal dailyInvoiceRevenue = invoiceService.getDailyRevenueByUser(user, today);
-            BigDecimal dailyReceiptRevenue = receiptService.getDailyRevenueByUser(user, today);
-            BigDecimal totalDailyRevenue = dailyInvoiceRevenue.add(dailyReceiptRevenue);
-
-            model.addAttribute("totalRevenuePaid", totalRevenuePaid);
-            model.addAttribute("totalRevenueUnpaid", totalRevenueUnpaid);
-            model.addAttribute("totalInvoices", totalInvoices);
-            model.addAttribute("paidCount", paidCount);
-            model.addAttribute("pendingCount", pendingCount);
-            model.addAttribute("overdueCount", overdueCount);
-            model.addAttribute("totalReceipts", totalReceipts);
-            model.addAttribute("totalDailyRevenue", totalDailyRevenue);
+            model.addAttribute("totalRevenuePaid", stats.totalRevenuePaid());
+            model.addAttribute("totalRevenueUnpaid", stats.totalRevenueUnpaid());
+            model.addAttribute("totalInvoices", stats.totalInvoices());
+            model.addAttribute("paidCount", stats.paidCount());
+            model.addAttribute("pendingCount", stats.pendingCount());
+            model.addAttribute("overdueCount", stats.overdueCount());
+            model.addAttribute("totalReceipts", stats.totalReceipts());
+            model.addAttribute("totalDailyRevenue", stats.totalDailyRevenue());
             model.addAttribute("username", user.getName());
         }
         return "dashboard";
     }
-}
\ No newline at end of file
+
+    /**
+     * Server-Sent Events stream that keeps an open dashboard's figures current (see
+     * {@link DashboardUpdateService}).
+     */
+    @GetMapping(path = "/dashboard/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @QueryBudget(0)
+    public SseEmitter dashboardEvents(HttpServletResponse response) throws IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        Optional<SseEmitter> emitter = dashboardUpdateService.subscribe(auth.getName());
+        if (emitter.isEmpty()) {
+            // EventSource gives up on an error status; the page still shows the figures it was rendered with
+            response.setHeader(HttpHeaders.RETRY_AFTER, "30");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many live dashboards open");
+            return null;
+        }
+        // Stops nginx from holding events back in its response buffer
+        response.setHeader("X-Accel-Buffering", "no");
+        return emitter.get();
+    }
+}
@@ -1,11 +1,18 @@
 package com.billgenpro.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -17,23 +24,40 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.billgenpro.config.Bulkhead;
+import com.billgenpro.config.EndpointClass;
+import com.billgenpro.config.QueryBudget;
+import com.billgenpro.config.RateLimited;
 import com.billgenpro.model.BillTo;
 import com.billgenpro.model.Company;
 import com.billgenpro.model.Invoice;
 import com.billgenpro.model.InvoiceItem;
 import com.billgenpro.model.User;
 import com.billgenpro.model.InvoiceStatus;
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.service.ArchiveService;
+import com.billgenpro.service.AuditService;
+import com.billgenpro.service.EmailOutboxService;
 import com.billgenpro.service.EmailService;
 import com.billgenpro.service.InvoiceService;
-import com.billgenpro.service.PdfService;
+import com.billgenpro.service.LogoStore;
+import com.billgenpro.service.PdfPrerenderService;
+import com.billgenpro.service.RequestCoalescer;
+import com.billgenpro.service.UserDataVersionService;
 import com.billgenpro.service.UserService;
 import com.billgenpro.service.ExcelService;
+import com.billgenpro.service.IdempotencyService;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 @Controller
@@ -44,7 +68,7 @@ public class InvoiceController {
     private InvoiceService invoiceService;
 
     @Autowired
-    private PdfService pdfService;
+    private PdfPrerenderService pdfPrerenderService;
 
     @Autowired
     private UserService userService;
@@ -52,9 +76,30 @@ public class InvoiceController {
     @Autowired(required = false)
     private EmailService emailService;
 
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
     @Autowired
     private ExcelService excelService;
 
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private UserDataVersionService userDataVersionService;
+
+    @Autowired
+    private LogoStore logoStore;
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private AuditService auditService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String email = authentication.getName();
@@ -62,6 +107,8 @@ public class InvoiceController {
     }
 
     @GetMapping
+    // One more statement when filtering by client: the matching customer ids
+    @QueryBudget(3)
     public String listInvoices(Model model,
                                @org.springframework.web.bind.annotation.RequestParam(required = false) String startDate,
                                @org.springframework.web.bind.annotation.RequestParam(required = false) String endDate,
@@ -104,6 +151,7 @@ public class InvoiceController {
     }
 
     @GetMapping("/new")
+    @QueryBudget(4)
     public String newInvoice(Model model) {
         User currentUser = getCurrentUser();
         Invoice invoice = new Invoice();
@@ -120,44 +168,100 @@ public class InvoiceController {
         invoice.setItems(items);
         
         model.addAttribute("invoice", invoice);
+        model.addAttribute("idempotencyKey", IdempotencyService.newKey());
         return "invoices/form";
     }
 
     @GetMapping("/{id}")
+    // One more statement for an archived invoice: the live lookup misses first
+    @QueryBudget(4)
     public String viewInvoice(@PathVariable Long id, Model model) {
         User currentUser = getCurrentUser();
-        Invoice invoice = invoiceService.getInvoiceByIdAndUser(id, currentUser)
+        Optional<Invoice> live = invoiceService.getInvoiceByIdAndUser(id, currentUser);
+        Invoice invoice = live.or(() -> archiveService.findInvoice(id, currentUser))
                 .orElseThrow(() -> new RuntimeException("Invoice not found or you don't have permission to view it"));
         model.addAttribute("invoice", invoice);
+        model.addAttribute("archived", live.isEmpty());
+        model.addAttribute("emailDeliveries", emailOutboxService.getRecentDeliveries(DocumentType.INVOICE, id));
         return "invoices/view";
     }
 
     @GetMapping("/{id}/edit")
+    @QueryBudget(2)
     public String editInvoice(@PathVariable Long id, Model model) {
         User currentUser = getCurrentUser();
         Invoice invoice = invoiceService.getInvoiceByIdAndUser(id, currentUser)
                 .orElseThrow(() -> new RuntimeException("Invoice not found or you don't have permission to edit it"));
         model.addAttribute("invoice", invoice);
+        model.addAttribute("idempotencyKey", IdempotencyService.newKey());
         return "invoices/form";
     }
 
     @PostMapping("/save")
-    public String saveInvoice(@Valid @ModelAttribute Invoice invoice, BindingResult result, Model model) {
+    public String saveInvoice(@Valid @ModelAttribute Invoice invoice, BindingResult result,
+                              @RequestParam(value = "logoFile", required = false) MultipartFile logoFile,
+                              @RequestParam(value = "removeLogo", defaultValue = "false") boolean removeLogo,
+                              @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyHeader,
+                              @RequestParam(value = "idempotencyKey", required = false) String idempotencyParam,
+                              Model model, HttpServletResponse response) {
+        String idempotencyKey = resolveIdempotencyKey(idempotencyHeader, idempotencyParam);
+        User currentUser = getCurrentUser();
+        // A retry of a save that already went through gets the same answer, without saving again
+        if (idempotencyKey != null
+                && idempotencyService.findResult(DocumentType.INVOICE, currentUser, idempotencyKey).isPresent()) {
+            return "redirect:/invoices";
+        }
+        // Posting the form again after an error must keep the key it was opened with
+        model.addAttribute("idempotencyKey", idempotencyKey != null ? idempotencyKey : IdempotencyService.newKey());
+
         if (result.hasErrors()) {
             return "invoices/form";
         }
 
+        if (removeLogo) {
+            invoice.setLogoHash(null);
+        } else if (logoFile != null && !logoFile.isEmpty()) {
+            try {
+                invoice.setLogoHash(logoStore.store(logoFile.getBytes()));
+            } catch (IllegalArgumentException | IOException e) {
+                result.rejectValue("logoHash", "logo.invalid", e.getMessage());
+                return "invoices/form";
+            }
+        }
+
         // Remove empty items
         if (invoice.getItems() != null) {
             invoice.getItems().removeIf(item -> 
                 item.getName() == null || item.getName().trim().isEmpty());
         }
 
-        User currentUser = getCurrentUser();
-        invoiceService.saveInvoice(invoice, currentUser);
+        try {
+            invoiceService.saveInvoice(invoice, currentUser, idempotencyKey);
+        } catch (OptimisticLockingFailureException e) {
+            // Someone else saved this invoice since the form was opened; nothing was written
+            response.setStatus(HttpServletResponse.SC_CONFLICT);
+            result.reject("invoice.conflict",
+                    "This invoice was changed by someone else after you opened it. Reload it to see their changes, then edit again.");
+            return "invoices/form";
+        } catch (DataIntegrityViolationException e) {
+            // Lost the race to a concurrent retry with the same key, which saved it; this attempt was rolled back
+            if (idempotencyKey != null
+                    && idempotencyService.findResult(DocumentType.INVOICE, currentUser, idempotencyKey).isPresent()) {
+                return "redirect:/invoices";
+            }
+            throw e;
+        }
         return "redirect:/invoices";
     }
 
+    private static String resolveIdempotencyKey(String header, String formField) {
+        try {
+            return IdempotencyService.resolveKey(header, formField);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}/delete")
     public String deleteInvoice(@PathVariable Long id) {
         User currentUser = getCurrentUser();
@@ -166,12 +270,20 @@ public class InvoiceController {
     }
 
     @GetMapping("/{id}/pdf")
+    @RateLimited(EndpointClass.PDF)
+    @Bulkhead(EndpointClass.PDF)
+    @QueryBudget(3)
     public ResponseEntity<byte[]> downloadPdf(@PathVariable Long id) {
         User currentUser = getCurrentUser();
         Invoice invoice = invoiceService.getInvoiceByIdAndUser(id, currentUser)
+                .or(() -> archiveService.findInvoice(id, currentUser))
                 .orElseThrow(() -> new RuntimeException("Invoice not found or you don't have permission to access it"));
 
-        byte[] pdfBytes = pdfService.generateInvoicePdf(invoice);
+        // Double-clicks and client retries share one render. Keyed by the document's version, so a download
+        // after an edit never joins a render of the old one; archived copies carry no version and never change
+        RequestCoalescer.Key key = new RequestCoalescer.Key("invoice-pdf", currentUser.getId(), id,
+                invoice.getVersion() != null ? invoice.getVersion() : -1);
+        byte[] pdfBytes = requestCoalescer.execute(key, () -> pdfPrerenderService.getInvoicePdf(invoice));
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
@@ -211,24 +323,44 @@ public class InvoiceController {
             """;
     }
 
+    /**
+     * The invoice's change history, oldest first; still there after it is deleted or archived.
+     */
+    @GetMapping("/{id}/history")
+    @ResponseBody
+    @QueryBudget(2)
+    public List<AuditService.Revision> invoiceHistory(@PathVariable Long id) {
+        return auditService.getHistory(DocumentType.INVOICE, id, getCurrentUser());
+    }
+
+    /**
+     * The invoice as it was right after the given revision of its history.
+     */
+    @GetMapping("/{id}/history/{revision}")
+    @QueryBudget(2)
+    public ResponseEntity<AuditService.Snapshot> invoiceVersion(@PathVariable Long id, @PathVariable int revision) {
+        return ResponseEntity.of(auditService.getVersion(DocumentType.INVOICE, id, getCurrentUser(), revision));
+    }
+
     @PostMapping("/{id}/send-email")
+    @RateLimited(EndpointClass.EMAIL)
+    @Bulkhead(EndpointClass.EMAIL)
     public String sendInvoiceEmail(@PathVariable Long id, 
                                    @org.springframework.web.bind.annotation.RequestParam String recipientEmail) {
         User currentUser = getCurrentUser();
         Invoice invoice = invoiceService.getInvoiceByIdAndUser(id, currentUser)
                 .orElseThrow(() -> new RuntimeException("Invoice not found or you don't have permission to access it"));
         
-        if (emailService == null) {
+        if (emailService == null || !emailService.isConfigured()) {
             return "redirect:/invoices/" + id + "?emailError=Email service is not configured. Please configure mail properties in application.properties";
         }
         
         try {
-            emailService.sendInvoiceEmail(invoice, recipientEmail);
-            return "redirect:/invoices/" + id + "?emailSent=true";
-        } catch (IllegalStateException e) {
-            return "redirect:/invoices/" + id + "?emailError=" + java.net.URLEncoder.encode(e.getMessage(), java.nio.charset.StandardCharsets.UTF_8);
+            // Delivery happens in the background; progress is shown on the invoice page
+            emailOutboxService.enqueue(DocumentType.INVOICE, invoice.getId(), currentUser, recipientEmail);
+            return "redirect:/invoices/" + id + "?emailQueued=true";
         } catch (Exception e) {
-            return "redirect:/invoices/" + id + "?emailError=" + java.net.URLEncoder.encode("Failed to send email: " + e.getMessage(), java.nio.charset.StandardCharsets.UTF_8);
+            return "redirect:/invoices/" + id + "?emailError=" + java.net.URLEncoder.encode("Failed to queue email: " + e.getMessage(), java.nio.charset.StandardCharsets.UTF_8);
         }
     }
 
@@ -241,12 +373,15 @@ public class InvoiceController {
             InvoiceStatus newStatus = InvoiceStatus.valueOf(status.toUpperCase());
             invoiceService.updateInvoiceStatus(id, currentUser, newStatus);
             return "redirect:/invoices?statusUpdated=true";
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | OptimisticLockingFailureException e) {
             return "redirect:/invoices?statusError=true";
         }
     }
 
     @GetMapping("/export")
+    @RateLimited(EndpointClass.EXPORT)
+    @Bulkhead(EndpointClass.EXPORT)
+    @QueryBudget(4)
     public ResponseEntity<byte[]> exportInvoices(
             @org.springframework.web.bind.annotation.RequestParam(required = false) String startDate,
             @org.springframework.web.bind.annotation.RequestParam(required = false) String endDate,
@@ -273,14 +408,25 @@ public class InvoiceController {
                 // Invalid date or status, ignore filters
             }
             
-            List<Invoice> invoices;
-            if (start != null || end != null || (clientName != null && !clientName.isEmpty()) || statusEnum != null) {
-                invoices = invoiceService.filterInvoicesByUser(currentUser, start, end, clientName, statusEnum);
-            } else {
-                invoices = invoiceService.getAllInvoicesByUser(currentUser);
-            }
-            
-            byte[] excelBytes = excelService.generateInvoicesExcel(invoices);
+            LocalDate filterStart = start;
+            LocalDate filterEnd = end;
+            InvoiceStatus filterStatus = statusEnum;
+            RequestCoalescer.Key key = new RequestCoalescer.Key("invoice-export", currentUser.getId(),
+                    Arrays.asList(start, end, clientName, statusEnum),
+                    userDataVersionService.currentVersion(currentUser.getId()));
+            byte[] excelBytes = requestCoalescer.execute(key, () -> {
+                List<Invoice> invoices;
+                if (filterStart != null || filterEnd != null || (clientName != null && !clientName.isEmpty()) || filterStatus != null) {
+                    invoices = invoiceService.filterInvoicesByUser(currentUser, filterStart, filterEnd, clientName, filterStatus);
+                } else {
+                    invoices = invoiceService.getAllInvoicesByUser(currentUser);
+                }
+                try {
+                    return excelService.generateInvoicesExcel(invoices);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
@@ -0,0 +1,41 @@
+package com.billgenpro.controller;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import com.billgenpro.config.QueryBudget;
+import com.billgenpro.service.LogoStore;
+
+/**
+ * Serves uploaded logos at the size the invoice pages show them. The URL is the hash
+ * of the upload, so a response can be cached for good: a different logo has a
+ * different URL.
+ */
+@Controller
+@RequestMapping("/logos")
+public class LogoController {
+
+    @Autowired
+    private LogoStore logoStore;
+
+    @GetMapping("/{hash}")
+    @QueryBudget(0)
+    public ResponseEntity<Resource> logo(@PathVariable String hash) {
+        return logoStore.find(hash, LogoStore.Variant.WEB)
+                .<ResponseEntity<Resource>>map(path -> ResponseEntity.ok()
+                        .contentType(MediaType.IMAGE_PNG)
+                        .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable())
+                        .body(new FileSystemResource(path)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
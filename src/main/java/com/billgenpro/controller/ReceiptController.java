@@ -1,15 +1,30 @@
 package com.billgenpro.controller;
 
+import com.billgenpro.config.Bulkhead;
+import com.billgenpro.config.EndpointClass;
+import com.billgenpro.config.QueryBudget;
+import com.billgenpro.config.RateLimited;
 import com.billgenpro.model.Receipt;
 import com.billgenpro.model.ReceiptItem;
 import com.billgenpro.model.Company;
 import com.billgenpro.model.User;
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.service.ArchiveService;
+import com.billgenpro.service.AuditService;
+import com.billgenpro.service.EmailOutboxService;
+import com.billgenpro.service.EmailService;
 import com.billgenpro.service.ReceiptService;
-import com.billgenpro.service.PdfService;
+import com.billgenpro.service.PdfPrerenderService;
+import com.billgenpro.service.RequestCoalescer;
+import com.billgenpro.service.UserDataVersionService;
 import com.billgenpro.service.UserService;
 import com.billgenpro.service.ExcelService;
+import com.billgenpro.service.IdempotencyService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -18,11 +33,16 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @Controller
 @RequestMapping("/receipts")
@@ -32,7 +52,7 @@ public class ReceiptController {
     private ReceiptService receiptService;
 
     @Autowired
-    private PdfService pdfService;
+    private PdfPrerenderService pdfPrerenderService;
 
     @Autowired
     private UserService userService;
@@ -40,6 +60,27 @@ public class ReceiptController {
     @Autowired
     private ExcelService excelService;
 
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private UserDataVersionService userDataVersionService;
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private AuditService auditService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String email = authentication.getName();
@@ -47,6 +88,7 @@ public class ReceiptController {
     }
 
     @GetMapping
+    @QueryBudget(2)
     public String listReceipts(Model model) {
         User currentUser = getCurrentUser();
         model.addAttribute("receipts", receiptService.getAllReceiptsByUser(currentUser));
@@ -54,6 +96,7 @@ public class ReceiptController {
     }
 
     @GetMapping("/new")
+    @QueryBudget(4)
     public String newReceipt(Model model) {
         User currentUser = getCurrentUser();
         Receipt receipt = new Receipt();
@@ -67,29 +110,50 @@ public class ReceiptController {
         receipt.setItems(items);
         
         model.addAttribute("receipt", receipt);
+        model.addAttribute("idempotencyKey", IdempotencyService.newKey());
         return "receipts/form";
     }
 
     @GetMapping("/{id}")
+    // One more statement for an archived receipt: the live lookup misses first
+    @QueryBudget(4)
     public String viewReceipt(@PathVariable Long id, Model model) {
         User currentUser = getCurrentUser();
-        Receipt receipt = receiptService.getReceiptByIdAndUser(id, currentUser)
+        Optional<Receipt> live = receiptService.getReceiptByIdAndUser(id, currentUser);
+        Receipt receipt = live.or(() -> archiveService.findReceipt(id, currentUser))
                 .orElseThrow(() -> new RuntimeException("Receipt not found or you don't have permission to view it"));
         model.addAttribute("receipt", receipt);
+        model.addAttribute("archived", live.isEmpty());
+        model.addAttribute("emailDeliveries", emailOutboxService.getRecentDeliveries(DocumentType.RECEIPT, id));
         return "receipts/view";
     }
 
     @GetMapping("/{id}/edit")
+    @QueryBudget(2)
     public String editReceipt(@PathVariable Long id, Model model) {
         User currentUser = getCurrentUser();
         Receipt receipt = receiptService.getReceiptByIdAndUser(id, currentUser)
                 .orElseThrow(() -> new RuntimeException("Receipt not found or you don't have permission to edit it"));
         model.addAttribute("receipt", receipt);
+        model.addAttribute("idempotencyKey", IdempotencyService.newKey());
         return "receipts/form";
     }
 
     @PostMapping("/save")
-    public String saveReceipt(@Valid @ModelAttribute Receipt receipt, BindingResult result, Model model) {
+    public String saveReceipt(@Valid @ModelAttribute Receipt receipt, BindingResult result,
+                              @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyHeader,
+                              @RequestParam(value = "idempotencyKey", required = false) String idempotencyParam,
+                              Model model, HttpServletResponse response) {
+        String idempotencyKey = resolveIdempotencyKey(idempotencyHeader, idempotencyParam);
+        User currentUser = getCurrentUser();
+        // A retry of a save that already went through gets the same answer, without saving again
+        if (idempotencyKey != null
+                && idempotencyService.findResult(DocumentType.RECEIPT, currentUser, idempotencyKey).isPresent()) {
+            return "redirect:/receipts";
+        }
+        // Posting the form again after an error must keep the key it was opened with
+        model.addAttribute("idempotencyKey", idempotencyKey != null ? idempotencyKey : IdempotencyService.newKey());
+
         if (result.hasErrors()) {
             return "receipts/form";
         }
@@ -100,11 +164,33 @@ public class ReceiptController {
                 item.getName() == null || item.getName().trim().isEmpty());
         }
 
-        User currentUser = getCurrentUser();
-        receiptService.saveReceipt(receipt, currentUser);
+        try {
+            receiptService.saveReceipt(receipt, currentUser, idempotencyKey);
+        } catch (OptimisticLockingFailureException e) {
+            // Someone else saved this receipt since the form was opened; nothing was written
+            response.setStatus(HttpServletResponse.SC_CONFLICT);
+            result.reject("receipt.conflict",
+                    "This receipt was changed by someone else after you opened it. Reload it to see their changes, then edit again.");
+            return "receipts/form";
+        } catch (DataIntegrityViolationException e) {
+            // Lost the race to a concurrent retry with the same key, which saved it; this attempt was rolled back
+            if (idempotencyKey != null
+                    && idempotencyService.findResult(DocumentType.RECEIPT, currentUser, idempotencyKey).isPresent()) {
+                return "redirect:/receipts";
+            }
+            throw e;
+        }
         return "redirect:/receipts";
     }
 
+    private static String resolveIdempotencyKey(String header, String formField) {
+        try {
+            return IdempotencyService.resolveKey(header, formField);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}/delete")
     public String deleteReceipt(@PathVariable Long id) {
         User currentUser = getCurrentUser();
@@ -113,12 +199,20 @@ public class ReceiptController {
     }
 
     @GetMapping("/{id}/pdf")
+    @RateLimited(EndpointClass.PDF)
+    @Bulkhead(EndpointClass.PDF)
+    @QueryBudget(3)
     public ResponseEntity<byte[]> downloadPdf(@PathVariable Long id) {
         User currentUser = getCurrentUser();
         Receipt receipt = receiptService.getReceiptByIdAndUser(id, currentUser)
+                .or(() -> archiveService.findReceipt(id, currentUser))
                 .orElseThrow(() -> new RuntimeException("Receipt not found or you don't have permission to access it"));
 
-        byte[] pdfBytes = pdfService.generateReceiptPdf(receipt);
+        // Keyed by the document's version, so a download after an edit never joins a render of the old one;
+        // archived copies carry no version and never change
+        RequestCoalescer.Key key = new RequestCoalescer.Key("receipt-pdf", currentUser.getId(), id,
+                receipt.getVersion() != null ? receipt.getVersion() : -1);
+        byte[] pdfBytes = requestCoalescer.execute(key, () -> pdfPrerenderService.getReceiptPdf(receipt));
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
@@ -129,12 +223,62 @@ public class ReceiptController {
                 .body(pdfBytes);
     }
 
+    /**
+     * The receipt's change history, oldest first; still there after it is deleted or archived.
+     */
+    @GetMapping("/{id}/history")
+    @ResponseBody
+    @QueryBudget(2)
+    public List<AuditService.Revision> receiptHistory(@PathVariable Long id) {
+        return auditService.getHistory(DocumentType.RECEIPT, id, getCurrentUser());
+    }
+
+    /**
+     * The receipt as it was right after the given revision of its history.
+     */
+    @GetMapping("/{id}/history/{revision}")
+    @QueryBudget(2)
+    public ResponseEntity<AuditService.Snapshot> receiptVersion(@PathVariable Long id, @PathVariable int revision) {
+        return ResponseEntity.of(auditService.getVersion(DocumentType.RECEIPT, id, getCurrentUser(), revision));
+    }
+
+    @PostMapping("/{id}/send-email")
+    @RateLimited(EndpointClass.EMAIL)
+    @Bulkhead(EndpointClass.EMAIL)
+    public String sendReceiptEmail(@PathVariable Long id, @RequestParam String recipientEmail) {
+        User currentUser = getCurrentUser();
+        Receipt receipt = receiptService.getReceiptByIdAndUser(id, currentUser)
+                .orElseThrow(() -> new RuntimeException("Receipt not found or you don't have permission to access it"));
+
+        if (!emailService.isConfigured()) {
+            return "redirect:/receipts/" + id + "?emailError=Email service is not configured. Please configure mail properties in application.properties";
+        }
+
+        try {
+            emailOutboxService.enqueue(DocumentType.RECEIPT, receipt.getId(), currentUser, recipientEmail);
+            return "redirect:/receipts/" + id + "?emailQueued=true";
+        } catch (Exception e) {
+            return "redirect:/receipts/" + id + "?emailError=" + java.net.URLEncoder.encode("Failed to queue email: " + e.getMessage(), java.nio.charset.StandardCharsets.UTF_8);
+        }
+    }
+
     @GetMapping("/export")
+    @RateLimited(EndpointClass.EXPORT)
+    @Bulkhead(EndpointClass.EXPORT)
+    @QueryBudget(3)
     public ResponseEntity<byte[]> exportReceipts() {
         try {
             User currentUser = getCurrentUser();
-            List<Receipt> receipts = receiptService.getAllReceiptsByUser(currentUser);
-            byte[] excelBytes = excelService.generateReceiptsExcel(receipts);
+            RequestCoalescer.Key key = new RequestCoalescer.Key("receipt-export", currentUser.getId(), null,
+                    userDataVersionService.currentVersion(currentUser.getId()));
+            byte[] excelBytes = requestCoalescer.execute(key, () -> {
+                List<Receipt> receipts = receiptService.getAllReceiptsByUser(currentUser);
+                try {
+                    return excelService.generateReceiptsExcel(receipts);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
@@ -0,0 +1,102 @@
+package com.billgenpro.controller;
+
+import com.billgenpro.config.Bulkhead;
+import com.billgenpro.config.EndpointClass;
+import com.billgenpro.config.QueryBudget;
+import com.billgenpro.config.RateLimited;
+import com.billgenpro.model.AgingReport;
+import com.billgenpro.model.User;
+import com.billgenpro.service.AgingReportService;
+import com.billgenpro.service.ExcelService;
+import com.billgenpro.service.RequestCoalescer;
+import com.billgenpro.service.UserDataVersionService;
+import com.billgenpro.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+@Controller
+@RequestMapping("/reports")
+public class ReportController {
+
+    @Autowired
+    private AgingReportService agingReportService;
+
+    @Autowired
+    private ExcelService excelService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private UserDataVersionService userDataVersionService;
+
+    private User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String email = authentication.getName();
+        return userService.findByEmail(email);
+    }
+
+    @GetMapping("/aging")
+    @QueryBudget(3)
+    public String agingReport(Model model, @RequestParam(required = false) String asOf) {
+        User currentUser = getCurrentUser();
+        model.addAttribute("report", agingReportService.getAgingReport(currentUser, parseAsOf(asOf)));
+        model.addAttribute("bucketLabels", AgingReport.BUCKET_LABELS);
+        return "reports/aging";
+    }
+
+    @GetMapping("/aging/export")
+    @RateLimited(EndpointClass.EXPORT)
+    @Bulkhead(EndpointClass.EXPORT)
+    @QueryBudget(3)
+    public ResponseEntity<byte[]> exportAgingReport(@RequestParam(required = false) String asOf) {
+        User currentUser = getCurrentUser();
+        LocalDate reportDate = parseAsOf(asOf);
+        RequestCoalescer.Key key = new RequestCoalescer.Key("aging-export", currentUser.getId(), reportDate,
+                userDataVersionService.currentVersion(currentUser.getId()));
+        byte[] excelBytes = requestCoalescer.execute(key, () -> {
+            try {
+                return excelService.generateAgingExcel(agingReportService.getAgingReport(currentUser, reportDate));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+        headers.setContentDispositionFormData("attachment", "aging-" + reportDate.format(DateTimeFormatter.ISO_DATE) + ".xlsx");
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(excelBytes);
+    }
+
+    private LocalDate parseAsOf(String asOf) {
+        if (asOf != null && !asOf.isEmpty()) {
+            try {
+                return LocalDate.parse(asOf, DateTimeFormatter.ISO_DATE);
+            } catch (DateTimeParseException e) {
+                // Invalid date, report as of today
+            }
+        }
+        return LocalDate.now();
+    }
+}
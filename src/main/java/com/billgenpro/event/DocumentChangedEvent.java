@@ -0,0 +1,37 @@
+package com.billgenpro.event;
+
+/**
+ * Published by the document services whenever an invoice or receipt is created,
+ * updated, deleted or moved to the archive. Listeners that need the committed state should use
+ * {@code @TransactionalEventListener} so they only run after the write is visible.
+ */
+public class DocumentChangedEvent {
+
+    public enum ChangeType {
+        SAVED,
+        STATUS_CHANGED,
+        DELETED,
+        // Moved out of the live tables by ArchiveService; still readable, but never changes again
+        ARCHIVED
+    }
+
+    private final DocumentType documentType;
+    private final Long documentId;
+    private final Long userId;
+    private final ChangeType changeType;
+
+    public DocumentChangedEvent(DocumentType documentType, Long documentId, Long userId, ChangeType changeType) {
+        this.documentType = documentType;
+        this.documentId = documentId;
+        this.userId = userId;
+        this.changeType = changeType;
+    }
+
+    public DocumentType getDocumentType() { return documentType; }
+
+    public Long getDocumentId() { return documentId; }
+
+    public Long getUserId() { return userId; }
+
+    public ChangeType getChangeType() { return changeType; }
+}
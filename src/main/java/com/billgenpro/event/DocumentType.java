@@ -0,0 +1,6 @@
+package com.billgenpro.event;
+
+public enum DocumentType {
+    INVOICE,
+    RECEIPT
+}
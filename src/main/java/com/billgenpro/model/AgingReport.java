@@ -0,0 +1,101 @@
+package com.billgenpro.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Accounts-receivable aging as of one day: what each customer owed then, split by how
+ * old the invoices were (0-30, 31-60, 61-90 and over 90 days). Amounts are in minor
+ * units (see {@link Money}), with {@link BigDecimal} getters for templates.
+ */
+public class AgingReport {
+
+    public static final String[] BUCKET_LABELS = {"0-30 days", "31-60 days", "61-90 days", "90+ days"};
+
+    private final LocalDate asOf;
+    private final List<Row> rows;
+    private final Row total;
+
+    public AgingReport(LocalDate asOf, List<Row> rows) {
+        this.asOf = asOf;
+        this.rows = List.copyOf(rows);
+        long invoiceCount = 0;
+        long[] buckets = new long[BUCKET_LABELS.length];
+        for (Row row : this.rows) {
+            invoiceCount += row.invoiceCount;
+            for (int b = 0; b < buckets.length; b++) {
+                buckets[b] = Math.addExact(buckets[b], row.buckets[b]);
+            }
+        }
+        this.total = new Row(null, "Total", invoiceCount, buckets);
+    }
+
+    public LocalDate getAsOf() { return asOf; }
+
+    public List<Row> getRows() { return rows; }
+
+    public Row getTotal() { return total; }
+
+    public boolean isEmpty() { return rows.isEmpty(); }
+
+    /**
+     * One customer's receivables. Invoices without a client name share a row with a
+     * {@code null} customer id.
+     */
+    public static final class Row {
+
+        private final Long customerId;
+        private final String customerName;
+        private final long invoiceCount;
+        private final long[] buckets;
+
+        // Called from the aggregation query; SUM of an empty group is null
+        public Row(Long customerId, String customerName, Long invoiceCount,
+                   Long upTo30Minor, Long upTo60Minor, Long upTo90Minor, Long over90Minor) {
+            this(customerId, customerName != null ? customerName : "(no client)",
+                    invoiceCount != null ? invoiceCount : 0,
+                    new long[] {orZero(upTo30Minor), orZero(upTo60Minor), orZero(upTo90Minor), orZero(over90Minor)});
+        }
+
+        private Row(Long customerId, String customerName, long invoiceCount, long[] buckets) {
+            this.customerId = customerId;
+            this.customerName = customerName;
+            this.invoiceCount = invoiceCount;
+            this.buckets = buckets;
+        }
+
+        private static long orZero(Long value) {
+            return value != null ? value : 0L;
+        }
+
+        public Long getCustomerId() { return customerId; }
+
+        public String getCustomerName() { return customerName; }
+
+        public long getInvoiceCount() { return invoiceCount; }
+
+        /**
+         * Amount in bucket {@code index} of {@link AgingReport#BUCKET_LABELS}.
+         */
+        public long getBucketMinor(int index) { return buckets[index]; }
+
+        public long getTotalMinor() {
+            long total = 0;
+            for (long bucket : buckets) {
+                total = Math.addExact(total, bucket);
+            }
+            return total;
+        }
+
+        public BigDecimal getUpTo30() { return Money.toBigDecimal(buckets[0]); }
+
+        public BigDecimal getUpTo60() { return Money.toBigDecimal(buckets[1]); }
+
+        public BigDecimal getUpTo90() { return Money.toBigDecimal(buckets[2]); }
+
+        public BigDecimal getOver90() { return Money.toBigDecimal(buckets[3]); }
+
+        public BigDecimal getTotal() { return Money.toBigDecimal(getTotalMinor()); }
+    }
+}
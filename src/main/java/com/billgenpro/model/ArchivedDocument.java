@@ -0,0 +1,97 @@
+package com.billgenpro.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import com.billgenpro.event.DocumentType;
+
+import jakarta.persistence.*;
+
+/**
+ * A paid invoice or a receipt moved out of the live tables by the archive job. The
+ * document itself is kept as gzip-compressed JSON in {@code payload}; only the columns
+ * that lookups and reports need (owner, number, date, total) are stored alongside it.
+ * The original id is kept, so links and email history keep pointing at it.
+ */
+@Entity
+@Table(name = "archived_documents", indexes = {
+    @Index(name = "uk_archived_documents_type_document", columnList = "document_type, document_id", unique = true),
+    @Index(name = "idx_archived_documents_user_type_number", columnList = "user_id, document_type, number")
+})
+public class ArchivedDocument {
+
+    /** Count and summed total of one user's archived documents of one type. */
+    public record Totals(DocumentType documentType, Long count, Long totalMinor) {}
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", nullable = false, length = 16)
+    private DocumentType documentType;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    private String number;
+
+    private LocalDate date;
+
+    @Column(name = "total_minor", nullable = false)
+    private long totalMinor;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+
+    @Lob
+    @Column(name = "payload", nullable = false, length = 16777215)
+    private byte[] payload;
+
+    // Constructors
+    public ArchivedDocument() {}
+
+    public ArchivedDocument(DocumentType documentType, Long documentId, User user, String number, LocalDate date,
+                            long totalMinor, byte[] payload) {
+        this.documentType = documentType;
+        this.documentId = documentId;
+        this.user = user;
+        this.number = number;
+        this.date = date;
+        this.totalMinor = totalMinor;
+        this.payload = payload;
+        this.archivedAt = Instant.now();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public DocumentType getDocumentType() { return documentType; }
+    public void setDocumentType(DocumentType documentType) { this.documentType = documentType; }
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public String getNumber() { return number; }
+    public void setNumber(String number) { this.number = number; }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public long getTotalMinor() { return totalMinor; }
+    public void setTotalMinor(long totalMinor) { this.totalMinor = totalMinor; }
+
+    public Instant getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(Instant archivedAt) { this.archivedAt = archivedAt; }
+
+    public byte[] getPayload() { return payload; }
+    public void setPayload(byte[] payload) { this.payload = payload; }
+}
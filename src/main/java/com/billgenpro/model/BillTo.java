@@ -7,6 +7,7 @@ public class BillTo {
     private String name;
     private String address;
     private String phone;
+    private String email;
 
     // Constructors
     public BillTo() {}
@@ -26,4 +27,7 @@ public class BillTo {
 
     public String getPhone() { return phone; }
     public void setPhone(String phone) { this.phone = phone; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
 }
\ No newline at end of file
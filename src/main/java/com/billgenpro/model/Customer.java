@@ -0,0 +1,124 @@
+package com.billgenpro.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * A client of one user, shared by that user's invoices and receipts. Customers are
+ * matched on their normalized name, so "Acme  Traders" and "acme traders" are the same
+ * client.
+ *
+ * The counters and totals are maintained by the invoice and receipt services with
+ * atomic deltas whenever a document is saved, deleted or changes status, so client
+ * lists never have to read documents. Totals are in minor units (see {@link Money}).
+ * Entity updates only write changed columns, so editing contact details never writes
+ * back aggregate values that were loaded before a concurrent delta.
+ */
+@Entity
+@DynamicUpdate
+@Table(name = "customers", indexes = {
+    @Index(name = "uk_customers_user_name", columnList = "user_id, normalized_name", unique = true)
+})
+public class Customer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(name = "normalized_name", nullable = false)
+    private String normalizedName;
+
+    private String email;
+    private String phone;
+    private String address;
+
+    // Aggregates
+    @Column(name = "invoice_count", nullable = false)
+    private long invoiceCount;
+
+    @Column(name = "billed_minor", nullable = false)
+    private long billedMinor;
+
+    @Column(name = "paid_minor", nullable = false)
+    private long paidMinor;
+
+    @Column(name = "receipt_count", nullable = false)
+    private long receiptCount;
+
+    @Column(name = "receipt_total_minor", nullable = false)
+    private long receiptTotalMinor;
+
+    // Constructors
+    public Customer() {}
+
+    public Customer(User user, String name) {
+        this.user = user;
+        this.name = name.trim();
+        this.normalizedName = normalizeName(name);
+    }
+
+    /**
+     * Trimmed, whitespace-collapsed, lower-case form of a client name, or {@code null}
+     * when the name is blank.
+     */
+    public static String normalizeName(String name) {
+        if (name == null) {
+            return null;
+        }
+        String normalized = name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    // Calculated fields
+    public long getOutstandingMinor() {
+        return billedMinor - paidMinor;
+    }
+
+    public BigDecimal getBilled() { return Money.toBigDecimal(billedMinor); }
+
+    public BigDecimal getPaid() { return Money.toBigDecimal(paidMinor); }
+
+    public BigDecimal getOutstanding() { return Money.toBigDecimal(getOutstandingMinor()); }
+
+    public BigDecimal getReceiptTotal() { return Money.toBigDecimal(receiptTotalMinor); }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getNormalizedName() { return normalizedName; }
+    public void setNormalizedName(String normalizedName) { this.normalizedName = normalizedName; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public String getPhone() { return phone; }
+    public void setPhone(String phone) { this.phone = phone; }
+
+    public String getAddress() { return address; }
+    public void setAddress(String address) { this.address = address; }
+
+    public long getInvoiceCount() { return invoiceCount; }
+
+    public long getBilledMinor() { return billedMinor; }
+
+    public long getPaidMinor() { return paidMinor; }
+
+    public long getReceiptCount() { return receiptCount; }
+
+    public long getReceiptTotalMinor() { return receiptTotalMinor; }
+}
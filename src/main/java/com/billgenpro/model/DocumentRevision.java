@@ -0,0 +1,101 @@
+package com.billgenpro.model;
+
+import java.time.Instant;
+
+import com.billgenpro.event.DocumentType;
+
+import jakarta.persistence.*;
+
+/**
+ * One entry in the append-only change history of an invoice or receipt. {@code changes}
+ * holds only what this write changed (gzip-compressed JSON: changed fields and line-item
+ * splices), so an edit of one line on a long invoice stores that line alone. A document's
+ * revisions, replayed in {@code documentVersion} order, rebuild any earlier version of it; see
+ * {@link com.billgenpro.service.AuditService}. Rows are never updated or deleted.
+ */
+@Entity
+@Table(name = "document_revisions", indexes = {
+    @Index(name = "idx_document_revisions_document", columnList = "document_type, document_id, document_version, id")
+})
+public class DocumentRevision {
+
+    public enum Action {
+        // Full state: the document was created, or history starts here for an older document
+        CREATED,
+        BASELINE,
+        UPDATED,
+        STATUS_CHANGED,
+        DELETED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", nullable = false, length = 16)
+    private DocumentType documentType;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    // The document version this write produced, taken in the saving transaction. Rows are written
+    // in whatever order their transactions committed, so this, not the id, orders the history.
+    // Rows from before the column existed start at 0 and fall back to id order
+    @Column(name = "document_version", nullable = false, columnDefinition = "bigint default 0")
+    private Long documentVersion;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Action action;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Lob
+    @Column(name = "changes", nullable = false, length = 16777215)
+    private byte[] changes;
+
+    // Constructors
+    public DocumentRevision() {}
+
+    public DocumentRevision(DocumentType documentType, Long documentId, Long documentVersion, User user, Action action,
+                            Instant createdAt, byte[] changes) {
+        this.documentType = documentType;
+        this.documentId = documentId;
+        this.documentVersion = documentVersion;
+        this.user = user;
+        this.action = action;
+        this.createdAt = createdAt;
+        this.changes = changes;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public DocumentType getDocumentType() { return documentType; }
+    public void setDocumentType(DocumentType documentType) { this.documentType = documentType; }
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public Long getDocumentVersion() { return documentVersion; }
+    public void setDocumentVersion(Long documentVersion) { this.documentVersion = documentVersion; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public Action getAction() { return action; }
+    public void setAction(Action action) { this.action = action; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public byte[] getChanges() { return changes; }
+    public void setChanges(byte[] changes) { this.changes = changes; }
+}
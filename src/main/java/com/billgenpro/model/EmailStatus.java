@@ -0,0 +1,24 @@
+package com.billgenpro.model;
+
+public enum EmailStatus {
+    QUEUED("Queued", "#6366f1"),
+    SENDING("Sending", "#0ea5e9"),
+    SENT("Sent", "#10b981"),
+    FAILED("Failed", "#ef4444");
+
+    private final String displayName;
+    private final String color;
+
+    EmailStatus(String displayName, String color) {
+        this.displayName = displayName;
+        this.color = color;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getColor() {
+        return color;
+    }
+}
@@ -0,0 +1,71 @@
+package com.billgenpro.model;
+
+import java.time.Instant;
+
+import com.billgenpro.event.DocumentType;
+
+import jakarta.persistence.*;
+
+/**
+ * A client-supplied idempotency key and the document the save that first used it
+ * produced. Written in the same transaction as that save, so a key is taken exactly
+ * when the save committed. Rows are only needed until {@code expiresAt}; see
+ * {@link com.billgenpro.service.IdempotencyService}.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "uk_idempotency_keys_user_type_key", columnList = "user_id, document_type, idempotency_key", unique = true),
+    @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+public class IdempotencyKey {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", nullable = false, length = 16)
+    private DocumentType documentType;
+
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String key;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    // Constructors
+    public IdempotencyKey() {}
+
+    public IdempotencyKey(User user, DocumentType documentType, String key, Long documentId, Instant expiresAt) {
+        this.user = user;
+        this.documentType = documentType;
+        this.key = key;
+        this.documentId = documentId;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public DocumentType getDocumentType() { return documentType; }
+    public void setDocumentType(DocumentType documentType) { this.documentType = documentType; }
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -1,21 +1,32 @@
 package com.billgenpro.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PositiveOrZero;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import com.billgenpro.model.InvoiceStatus;
 
 @Entity
-@Table(name = "invoices")
+@Table(name = "invoices", indexes = {
+    @Index(name = "idx_invoices_status_id", columnList = "status, id"),
+    @Index(name = "idx_invoices_user_customer_date", columnList = "user_id, customer_id, date")
+})
 public class Invoice {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Bumped on every write; a save carrying an older value is rejected instead of overwriting.
+    // Rows from before the column existed start at 0
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @NotBlank(message = "Invoice number is required")
     private String number;
 
@@ -35,7 +46,8 @@ public class Invoice {
     @AttributeOverrides({
         @AttributeOverride(name = "name", column = @Column(name = "bill_to_name")),
         @AttributeOverride(name = "address", column = @Column(name = "bill_to_address")),
-        @AttributeOverride(name = "phone", column = @Column(name = "bill_to_phone"))
+        @AttributeOverride(name = "phone", column = @Column(name = "bill_to_phone")),
+        @AttributeOverride(name = "email", column = @Column(name = "bill_to_email"))
     })
     private BillTo billTo;
 
@@ -43,10 +55,13 @@ public class Invoice {
     @AttributeOverrides({
         @AttributeOverride(name = "name", column = @Column(name = "ship_to_name")),
         @AttributeOverride(name = "address", column = @Column(name = "ship_to_address")),
-        @AttributeOverride(name = "phone", column = @Column(name = "ship_to_phone"))
+        @AttributeOverride(name = "phone", column = @Column(name = "ship_to_phone")),
+        @AttributeOverride(name = "email", column = @Column(name = "ship_to_email"))
     })
     private BillTo shipTo;
 
+    // List pages and exports read items through lazy collections; batch them instead of one query per row
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "invoice", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<InvoiceItem> items = new ArrayList<>();
 
@@ -54,9 +69,22 @@ public class Invoice {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Resolved from billTo.name on every save; null when the invoice has no client name
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_id")
+    private Customer customer;
+
     @PositiveOrZero(message = "Tax percentage must be positive")
     private BigDecimal taxPercentage = BigDecimal.ZERO;
 
+    // Basis-point form of taxPercentage, recomputed when taxPercentage is replaced
+    @Transient
+    private volatile Money.Converted taxBasisPoints;
+
+    // Copy of getGrandTotalMinor() for set-based reports; refreshed on every save
+    @Column(name = "grand_total_minor")
+    private Long storedGrandTotalMinor;
+
     @Column(columnDefinition = "TEXT")
     private String notes;
 
@@ -70,35 +98,79 @@ public class Invoice {
     @Column(name = "logo_url", length = 500)
     private String logoUrl;
 
+    // SHA-256 of an uploaded logo in the LogoStore; this is the one printed on the PDF
+    @Column(name = "logo_hash", length = 64)
+    private String logoHash;
+
     @Column(name = "primary_color", length = 7)
     private String primaryColor = "#6366f1";
 
     @Column(name = "secondary_color", length = 7)
     private String secondaryColor = "#0ea5e9";
 
+    @Column(name = "last_reminder_at")
+    private LocalDateTime lastReminderAt;
+
     // Constructors
     public Invoice() {}
 
-    // Calculated fields
+    // Calculated fields, in minor units; see Money for the rounding rules
+    public long getSubTotalMinor() {
+        long subTotal = 0;
+        // Indexed loop: no iterator or stream per call on list pages and exports
+        for (int i = 0, n = items.size(); i < n; i++) {
+            subTotal = Math.addExact(subTotal, items.get(i).getTotalMinor());
+        }
+        return subTotal;
+    }
+
+    public long getTaxAmountMinor() {
+        return taxOn(getSubTotalMinor());
+    }
+
+    public long getGrandTotalMinor() {
+        long subTotal = getSubTotalMinor();
+        return Math.addExact(subTotal, taxOn(subTotal));
+    }
+
+    private long taxOn(long subTotalMinor) {
+        BigDecimal current = taxPercentage;
+        Money.Converted converted = taxBasisPoints;
+        if (converted == null || converted.source() != current) {
+            converted = new Money.Converted(current, Money.toBasisPoints(current));
+            taxBasisPoints = converted;
+        }
+        return Money.percentOf(subTotalMinor, converted.value());
+    }
+
+    /**
+     * Copies the computed grand total into its column. Called on insert and by every
+     * service path that changes items or the tax rate.
+     */
+    @PrePersist
+    public void refreshStoredTotal() {
+        storedGrandTotalMinor = getGrandTotalMinor();
+    }
+
     public BigDecimal getSubTotal() {
-        return items.stream()
-                .map(InvoiceItem::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return Money.toBigDecimal(getSubTotalMinor());
     }
 
     public BigDecimal getTaxAmount() {
-        BigDecimal subTotal = getSubTotal();
-        return subTotal.multiply(taxPercentage).divide(BigDecimal.valueOf(100));
+        return Money.toBigDecimal(getTaxAmountMinor());
     }
 
     public BigDecimal getGrandTotal() {
-        return getSubTotal().add(getTaxAmount());
+        return Money.toBigDecimal(getGrandTotalMinor());
     }
 
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     public String getNumber() { return number; }
     public void setNumber(String number) { this.number = number; }
 
@@ -135,6 +207,9 @@ public class Invoice {
     public Integer getTemplateNumber() { return templateNumber; }
     public void setTemplateNumber(Integer templateNumber) { this.templateNumber = templateNumber; }
 
+    public Customer getCustomer() { return customer; }
+    public void setCustomer(Customer customer) { this.customer = customer; }
+
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
 
@@ -144,12 +219,20 @@ public class Invoice {
     public String getLogoUrl() { return logoUrl; }
     public void setLogoUrl(String logoUrl) { this.logoUrl = logoUrl; }
 
+    public String getLogoHash() { return logoHash; }
+    public void setLogoHash(String logoHash) { this.logoHash = logoHash; }
+
     public String getPrimaryColor() { return primaryColor; }
     public void setPrimaryColor(String primaryColor) { this.primaryColor = primaryColor; }
 
     public String getSecondaryColor() { return secondaryColor; }
     public void setSecondaryColor(String secondaryColor) { this.secondaryColor = secondaryColor; }
 
+    public Long getStoredGrandTotalMinor() { return storedGrandTotalMinor; }
+
+    public LocalDateTime getLastReminderAt() { return lastReminderAt; }
+    public void setLastReminderAt(LocalDateTime lastReminderAt) { this.lastReminderAt = lastReminderAt; }
+
     // Auto-calculate status based on payment date
     public InvoiceStatus calculateStatus() {
         if (paymentDate != null) {
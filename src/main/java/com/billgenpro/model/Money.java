@@ -0,0 +1,101 @@
+package com.billgenpro.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money arithmetic on {@code long} minor units (paise), so totals can be computed per
+ * row on list pages and exports without allocating a {@link BigDecimal} per step.
+ *
+ * Rounding rules:
+ * <ul>
+ *   <li>Unit amounts are rounded to two decimals, half up, when they enter the minor-unit world.</li>
+ *   <li>Line totals and subtotals are exact: quantity times unit amount, summed.</li>
+ *   <li>Tax percentages are rounded to two decimals (basis points), half up.</li>
+ *   <li>Tax is rounded once per document, half up, to the nearest paisa; the grand total
+ *       is subtotal plus that rounded tax, so the printed figures always add up.</li>
+ * </ul>
+ * Overflow throws {@link ArithmeticException} rather than wrapping.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private static final long MINOR_PER_UNIT = 100;
+    private static final long BASIS_POINTS_PER_UNIT = 10_000;
+
+    private Money() {}
+
+    /**
+     * A value together with its converted {@code long} form, for entities that cache the
+     * conversion. Held behind one reference, so a reader on another thread sees either
+     * the old pair or the new one, never the new value with the old conversion.
+     */
+    record Converted(BigDecimal source, long value) {}
+
+    /**
+     * Converts an amount to minor units; {@code null} counts as zero.
+     */
+    public static long toMinor(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts a percentage such as {@code 18.5} to basis points ({@code 1850}); {@code null} counts as zero.
+     */
+    public static long toBasisPoints(BigDecimal percent) {
+        if (percent == null) {
+            return 0;
+        }
+        return percent.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static long lineTotal(long unitMinor, int quantity) {
+        return Math.multiplyExact(unitMinor, quantity);
+    }
+
+    /**
+     * The given share of an amount, rounded half up (away from zero) to whole minor units.
+     */
+    public static long percentOf(long minor, long basisPoints) {
+        long product = Math.multiplyExact(minor, basisPoints);
+        long quotient = product / BASIS_POINTS_PER_UNIT;
+        long remainder = Math.abs(product % BASIS_POINTS_PER_UNIT);
+        if (remainder * 2 >= BASIS_POINTS_PER_UNIT) {
+            quotient += Long.signum(product);
+        }
+        return quotient;
+    }
+
+    public static BigDecimal toBigDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    /**
+     * Nearest double, for spreadsheet cells. Not for further arithmetic.
+     */
+    public static double toDouble(long minor) {
+        return minor / (double) MINOR_PER_UNIT;
+    }
+
+    /**
+     * Plain two-decimal form without grouping, e.g. {@code 1234.50} or {@code -0.05}.
+     */
+    public static String format(long minor) {
+        StringBuilder text = new StringBuilder(24);
+        if (minor < 0) {
+            text.append('-');
+        }
+        // Long.MIN_VALUE has no positive counterpart, so split before negating
+        long units = Math.abs(minor / MINOR_PER_UNIT);
+        int cents = (int) Math.abs(minor % MINOR_PER_UNIT);
+        text.append(units).append('.');
+        if (cents < 10) {
+            text.append('0');
+        }
+        return text.append(cents).toString();
+    }
+}
@@ -1,6 +1,7 @@
 package com.billgenpro.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PositiveOrZero;
 import java.math.BigDecimal;
@@ -9,12 +10,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "receipts")
+@Table(name = "receipts", indexes = {
+    @Index(name = "idx_receipts_user_customer_date", columnList = "user_id, customer_id, date")
+})
 public class Receipt {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Bumped on every write; a save carrying an older value is rejected instead of overwriting.
+    // Rows from before the column existed start at 0
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @NotBlank(message = "Receipt number is required")
     private String number;
 
@@ -32,6 +41,8 @@ public class Receipt {
     private String billTo;
     private String cashier;
 
+    // List pages and exports read items through lazy collections; batch them instead of one query per row
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "receipt", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<ReceiptItem> items = new ArrayList<>();
 
@@ -39,9 +50,18 @@ public class Receipt {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // Resolved from billTo on every save; null when the receipt has no customer name
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_id")
+    private Customer customer;
+
     @PositiveOrZero(message = "Tax percentage must be positive")
     private BigDecimal taxPercentage = BigDecimal.ZERO;
 
+    // Basis-point form of taxPercentage, recomputed when taxPercentage is replaced
+    @Transient
+    private volatile Money.Converted taxBasisPoints;
+
     @Column(columnDefinition = "TEXT")
     private String notes;
 
@@ -53,26 +73,54 @@ public class Receipt {
     // Constructors
     public Receipt() {}
 
-    // Calculated fields
+    // Calculated fields, in minor units; see Money for the rounding rules
+    public long getSubTotalMinor() {
+        long subTotal = 0;
+        // Indexed loop: no iterator or stream per call on list pages and exports
+        for (int i = 0, n = items.size(); i < n; i++) {
+            subTotal = Math.addExact(subTotal, items.get(i).getTotalMinor());
+        }
+        return subTotal;
+    }
+
+    public long getTaxAmountMinor() {
+        return taxOn(getSubTotalMinor());
+    }
+
+    public long getGrandTotalMinor() {
+        long subTotal = getSubTotalMinor();
+        return Math.addExact(subTotal, taxOn(subTotal));
+    }
+
+    private long taxOn(long subTotalMinor) {
+        BigDecimal current = taxPercentage;
+        Money.Converted converted = taxBasisPoints;
+        if (converted == null || converted.source() != current) {
+            converted = new Money.Converted(current, Money.toBasisPoints(current));
+            taxBasisPoints = converted;
+        }
+        return Money.percentOf(subTotalMinor, converted.value());
+    }
+
     public BigDecimal getSubTotal() {
-        return items.stream()
-                .map(ReceiptItem::getTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return Money.toBigDecimal(getSubTotalMinor());
     }
 
     public BigDecimal getTaxAmount() {
-        BigDecimal subTotal = getSubTotal();
-        return subTotal.multiply(taxPercentage).divide(BigDecimal.valueOf(100));
+        return Money.toBigDecimal(getTaxAmountMinor());
     }
 
     public BigDecimal getGrandTotal() {
-        return getSubTotal().add(getTaxAmount());
+        return Money.toBigDecimal(getGrandTotalMinor());
     }
 
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     public String getNumber() { return number; }
     public void setNumber(String number) { this.number = number; }
 
@@ -108,6 +156,9 @@ public class Receipt {
     public Integer getTemplateNumber() { return templateNumber; }
     public void setTemplateNumber(Integer templateNumber) { this.templateNumber = templateNumber; }
 
+    public Customer getCustomer() { return customer; }
+    public void setCustomer(Customer customer) { this.customer = customer; }
+
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
 }
\ No newline at end of file
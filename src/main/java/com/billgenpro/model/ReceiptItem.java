@@ -10,6 +10,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PositiveOrZero;
 
@@ -31,6 +32,10 @@ public class ReceiptItem {
     @PositiveOrZero(message = "Amount must be positive")
     private BigDecimal amount = BigDecimal.ZERO;
 
+    // Minor-unit copy of amount, recomputed when amount is replaced (by a setter or by Hibernate)
+    @Transient
+    private volatile Money.Converted amountMinor;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "receipt_id")
     private Receipt receipt;
@@ -45,12 +50,26 @@ public class ReceiptItem {
         this.amount = amount;
     }
 
-    // Calculated field
-    public BigDecimal getTotal() {
-        if (quantity == null || amount == null) {
-            return BigDecimal.ZERO;
+    // Calculated fields
+    public long getAmountMinor() {
+        BigDecimal current = amount;
+        Money.Converted converted = amountMinor;
+        if (converted == null || converted.source() != current) {
+            converted = new Money.Converted(current, Money.toMinor(current));
+            amountMinor = converted;
+        }
+        return converted.value();
+    }
+
+    public long getTotalMinor() {
+        if (quantity == null) {
+            return 0;
         }
-        return amount.multiply(BigDecimal.valueOf(quantity));
+        return Money.lineTotal(getAmountMinor(), quantity);
+    }
+
+    public BigDecimal getTotal() {
+        return Money.toBigDecimal(getTotalMinor());
     }
 
     // Getters and Setters
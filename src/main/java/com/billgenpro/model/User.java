@@ -28,6 +28,12 @@ public class User {
     @Column(nullable = false)
     private String password;
 
+    // Bumped in the same transaction as every write to the user's documents; see UserDataVersionService.
+    // Only ever changed by that UPDATE, so saving a User never writes it back
+    @Column(name = "data_version", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private long dataVersion;
+
     public User() {
     }
 
@@ -68,5 +74,9 @@ public class User {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public long getDataVersion() {
+        return dataVersion;
+    }
 }
 
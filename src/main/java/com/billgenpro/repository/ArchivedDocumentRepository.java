@@ -0,0 +1,31 @@
+package com.billgenpro.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.ArchivedDocument;
+import com.billgenpro.model.User;
+
+@Repository
+public interface ArchivedDocumentRepository extends JpaRepository<ArchivedDocument, Long> {
+
+    @Query("SELECT a FROM ArchivedDocument a WHERE a.documentType = :documentType AND a.documentId = :documentId AND a.user = :user")
+    Optional<ArchivedDocument> findByDocumentAndUser(@Param("documentType") DocumentType documentType,
+                                                     @Param("documentId") Long documentId,
+                                                     @Param("user") User user);
+
+    @Query("SELECT COUNT(a) > 0 FROM ArchivedDocument a WHERE a.user = :user AND a.documentType = :documentType AND a.number = :number")
+    boolean existsByNumberAndUser(@Param("documentType") DocumentType documentType, @Param("number") String number,
+                                  @Param("user") User user);
+
+    // One row per document type, from the stored totals; the payloads are never read
+    @Query("SELECT new com.billgenpro.model.ArchivedDocument$Totals(a.documentType, COUNT(a), COALESCE(SUM(a.totalMinor), 0)) " +
+           "FROM ArchivedDocument a WHERE a.user = :user GROUP BY a.documentType")
+    List<ArchivedDocument.Totals> sumTotalsByUser(@Param("user") User user);
+}
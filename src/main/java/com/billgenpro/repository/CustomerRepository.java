@@ -0,0 +1,59 @@
+package com.billgenpro.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.billgenpro.model.Customer;
+import com.billgenpro.model.User;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+
+    Optional<Customer> findByUserAndNormalizedName(User user, String normalizedName);
+
+    // A locking read sees rows committed after this transaction's snapshot, such as one a
+    // concurrent save inserted after our first lookup missed
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Customer c WHERE c.user = :user AND c.normalizedName = :normalizedName")
+    Optional<Customer> findByUserAndNormalizedNameForUpdate(@Param("user") User user,
+                                                           @Param("normalizedName") String normalizedName);
+
+    // Does nothing when the user already has a customer with this name. A concurrent insert
+    // of the same name waits on uk_customers_user_name instead of failing the transaction
+    @Modifying
+    @Query(value = "INSERT INTO customers (user_id, name, normalized_name, invoice_count, billed_minor, " +
+                   "paid_minor, receipt_count, receipt_total_minor) " +
+                   "VALUES (:userId, :name, :normalizedName, 0, 0, 0, 0, 0) ON DUPLICATE KEY UPDATE id = id",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("name") String name,
+                       @Param("normalizedName") String normalizedName);
+
+    @Query("SELECT c FROM Customer c WHERE c.user = :user ORDER BY c.billedMinor - c.paidMinor DESC, c.name")
+    List<Customer> findByUserOrderByOutstanding(@Param("user") User user);
+
+    // A range seek on uk_customers_user_name: the user id, then the normalized name prefix.
+    // The pattern escapes its own wildcards with '!'
+    @Query("SELECT c.id FROM Customer c WHERE c.user = :user AND c.normalizedName LIKE :pattern ESCAPE '!'")
+    List<Long> findIdsByUserAndNamePattern(@Param("user") User user, @Param("pattern") String pattern);
+
+    // Aggregates move by deltas in one statement, so concurrent saves never lose an update
+    @Modifying
+    @Query("UPDATE Customer c SET c.invoiceCount = c.invoiceCount + :count, " +
+           "c.billedMinor = c.billedMinor + :billed, c.paidMinor = c.paidMinor + :paid WHERE c.id = :id")
+    int addInvoiceTotals(@Param("id") Long id, @Param("count") long count,
+                         @Param("billed") long billedMinor, @Param("paid") long paidMinor);
+
+    @Modifying
+    @Query("UPDATE Customer c SET c.receiptCount = c.receiptCount + :count, " +
+           "c.receiptTotalMinor = c.receiptTotalMinor + :total WHERE c.id = :id")
+    int addReceiptTotals(@Param("id") Long id, @Param("count") long count, @Param("total") long totalMinor);
+}
@@ -0,0 +1,34 @@
+package com.billgenpro.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.DocumentRevision;
+import com.billgenpro.model.User;
+
+@Repository
+public interface DocumentRevisionRepository extends JpaRepository<DocumentRevision, Long> {
+
+    @Query("SELECT r FROM DocumentRevision r WHERE r.documentType = :documentType AND r.documentId = :documentId " +
+           "AND r.user = :user ORDER BY r.documentVersion, r.id")
+    List<DocumentRevision> findByDocumentAndUser(@Param("documentType") DocumentType documentType,
+                                                 @Param("documentId") Long documentId,
+                                                 @Param("user") User user);
+
+    // Where the history of each of these documents starts, for a whole writer batch at once
+    @Query("SELECT r.documentId AS documentId, MIN(r.documentVersion) AS startVersion FROM DocumentRevision r " +
+           "WHERE r.documentType = :documentType AND r.documentId IN :documentIds GROUP BY r.documentId")
+    List<HistoryStart> findHistoryStarts(@Param("documentType") DocumentType documentType,
+                                         @Param("documentIds") Collection<Long> documentIds);
+
+    interface HistoryStart {
+        Long getDocumentId();
+        Long getStartVersion();
+    }
+}
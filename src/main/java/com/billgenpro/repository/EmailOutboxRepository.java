@@ -0,0 +1,42 @@
+package com.billgenpro.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.EmailOutboxMessage;
+import com.billgenpro.model.EmailStatus;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    @Query("SELECT m.id FROM EmailOutboxMessage m WHERE m.status = com.billgenpro.model.EmailStatus.QUEUED " +
+           "AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Claiming row by row lets several workers (or instances) poll the same table safely
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = com.billgenpro.model.EmailStatus.SENDING, m.claimedAt = :now " +
+           "WHERE m.id = :id AND m.status = com.billgenpro.model.EmailStatus.QUEUED")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = com.billgenpro.model.EmailStatus.QUEUED " +
+           "WHERE m.status = com.billgenpro.model.EmailStatus.SENDING AND m.claimedAt < :claimedBefore")
+    int releaseStaleClaims(@Param("claimedBefore") LocalDateTime claimedBefore);
+
+    @Query("SELECT m FROM EmailOutboxMessage m WHERE m.documentType = :documentType AND m.documentId = :documentId " +
+           "ORDER BY m.createdAt DESC")
+    List<EmailOutboxMessage> findRecentForDocument(@Param("documentType") DocumentType documentType,
+                                                   @Param("documentId") Long documentId,
+                                                   Pageable pageable);
+
+    long countByStatus(EmailStatus status);
+}
@@ -0,0 +1,31 @@
+package com.billgenpro.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.IdempotencyKey;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    // Served by uk_idempotency_keys_user_type_key. Not filtered on expiresAt: until the row
+    // is purged it still holds the key, so it must still answer for it
+    @Query("SELECT k FROM IdempotencyKey k WHERE k.user.id = :userId AND k.documentType = :documentType " +
+           "AND k.key = :key")
+    Optional<IdempotencyKey> findByKey(@Param("userId") Long userId,
+                                       @Param("documentType") DocumentType documentType,
+                                       @Param("key") String key);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
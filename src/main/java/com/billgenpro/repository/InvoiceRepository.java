@@ -1,17 +1,22 @@
 package com.billgenpro.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.billgenpro.model.AgingReport;
 import com.billgenpro.model.Invoice;
 import com.billgenpro.model.InvoiceStatus;
 import com.billgenpro.model.User;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
@@ -19,7 +24,8 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     @Query("SELECT i FROM Invoice i ORDER BY i.date DESC")
     List<Invoice> findAllOrderByDateDesc();
     
-    @Query("SELECT i FROM Invoice i WHERE i.user = :user ORDER BY i.date DESC")
+    // Every caller renders totals, so items come with the list rather than one batch per 100 rows
+    @Query("SELECT DISTINCT i FROM Invoice i LEFT JOIN FETCH i.items WHERE i.user = :user ORDER BY i.date DESC")
     List<Invoice> findByUserOrderByDateDesc(@Param("user") User user);
     
     @Query("SELECT DISTINCT i FROM Invoice i LEFT JOIN FETCH i.items WHERE i.id = :id")
@@ -39,20 +45,112 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     boolean existsByNumberAndUser(@Param("number") String number, @Param("user") User user);
 
     // Filter methods
-    @Query("SELECT i FROM Invoice i WHERE i.user = :user " +
+    @Query("SELECT DISTINCT i FROM Invoice i LEFT JOIN FETCH i.items WHERE i.user = :user " +
            "AND (:startDate IS NULL OR i.date >= :startDate) " +
            "AND (:endDate IS NULL OR i.date <= :endDate) " +
-           "AND (:clientName IS NULL OR LOWER(i.billTo.name) LIKE LOWER(CONCAT('%', :clientName, '%'))) " +
            "AND (:status IS NULL OR i.status = :status) " +
            "ORDER BY i.date DESC")
     List<Invoice> findByUserWithFilters(@Param("user") User user,
                                         @Param("startDate") LocalDate startDate,
                                         @Param("endDate") LocalDate endDate,
-                                        @Param("clientName") String clientName,
                                         @Param("status") InvoiceStatus status);
 
-    @Query("SELECT i FROM Invoice i LEFT JOIN FETCH i.items WHERE i.user = :user AND i.status = 'PAID'")
-    List<Invoice> findPaidInvoicesByUserWithItems(@Param("user") User user);
+    // Client filter: seeks idx_invoices_user_customer_date instead of scanning bill-to names
+    @Query("SELECT DISTINCT i FROM Invoice i LEFT JOIN FETCH i.items WHERE i.user = :user " +
+           "AND i.customer.id IN :customerIds " +
+           "AND (:startDate IS NULL OR i.date >= :startDate) " +
+           "AND (:endDate IS NULL OR i.date <= :endDate) " +
+           "AND (:status IS NULL OR i.status = :status) " +
+           "ORDER BY i.date DESC")
+    List<Invoice> findByUserAndCustomersWithFilters(@Param("user") User user,
+                                                    @Param("customerIds") Collection<Long> customerIds,
+                                                    @Param("startDate") LocalDate startDate,
+                                                    @Param("endDate") LocalDate endDate,
+                                                    @Param("status") InvoiceStatus status);
+
+    @Query("SELECT COALESCE(SUM(i.storedGrandTotalMinor), 0) FROM Invoice i WHERE i.user = :user AND i.status = 'PAID'")
+    long sumPaidTotalsByUser(@Param("user") User user);
+
+    @Query("SELECT COALESCE(SUM(i.storedGrandTotalMinor), 0) FROM Invoice i WHERE i.user = :user AND i.status <> 'PAID'")
+    long sumUnpaidTotalsByUser(@Param("user") User user);
+
+    /**
+     * Receivables as of {@code asOf}, one row per customer, bucketed by invoice age in one
+     * pass over the stored totals. An invoice counts if it was issued by {@code asOf} and
+     * was not yet paid then: still unpaid, or paid after {@code asOf}.
+     */
+    @Query("SELECT new com.billgenpro.model.AgingReport$Row(c.id, c.name, COUNT(i), " +
+           "SUM(CASE WHEN i.date >= :from30 THEN i.storedGrandTotalMinor ELSE 0L END), " +
+           "SUM(CASE WHEN i.date < :from30 AND i.date >= :from60 THEN i.storedGrandTotalMinor ELSE 0L END), " +
+           "SUM(CASE WHEN i.date < :from60 AND i.date >= :from90 THEN i.storedGrandTotalMinor ELSE 0L END), " +
+           "SUM(CASE WHEN i.date < :from90 THEN i.storedGrandTotalMinor ELSE 0L END)) " +
+           "FROM Invoice i LEFT JOIN i.customer c WHERE i.user = :user AND i.date <= :asOf " +
+           "AND (i.status <> 'PAID' OR i.paymentDate > :asOf) " +
+           "GROUP BY c.id, c.name ORDER BY SUM(i.storedGrandTotalMinor) DESC")
+    List<AgingReport.Row> findAgingRowsByUser(@Param("user") User user,
+                                              @Param("asOf") LocalDate asOf,
+                                              @Param("from30") LocalDate from30,
+                                              @Param("from60") LocalDate from60,
+                                              @Param("from90") LocalDate from90);
+
+    @Query("SELECT COALESCE(SUM(i.storedGrandTotalMinor), 0) FROM Invoice i " +
+           "WHERE i.user = :user AND i.status = 'PAID' AND i.date = :date")
+    long sumPaidTotalsByUserAndDate(@Param("user") User user, @Param("date") LocalDate date);
+
+    // Keyset paging for reminder runs: callers pass the last id they saw instead of an offset.
+    // Invoices without a client email are left out here, so a run never loads them
+    @Query("SELECT i.id FROM Invoice i WHERE i.id > :afterId " +
+           "AND i.status IN :statuses AND i.paymentDate IS NULL AND i.date < :dueBefore " +
+           "AND (i.lastReminderAt IS NULL OR i.lastReminderAt < :remindedBefore) " +
+           "AND i.billTo.email IS NOT NULL AND TRIM(i.billTo.email) <> '' " +
+           "ORDER BY i.id")
+    List<Long> findReminderCandidateIds(@Param("afterId") Long afterId,
+                                        @Param("statuses") Collection<InvoiceStatus> statuses,
+                                        @Param("dueBefore") LocalDate dueBefore,
+                                        @Param("remindedBefore") LocalDateTime remindedBefore,
+                                        Pageable pageable);
+
+    @Query("SELECT DISTINCT i FROM Invoice i LEFT JOIN FETCH i.items WHERE i.id IN :ids")
+    List<Invoice> findAllByIdWithItems(@Param("ids") Collection<Long> ids);
+
+    // Overdue invoices a reminder run leaves out: no client email, or reminded too recently
+    @Query("SELECT COUNT(i) FROM Invoice i WHERE i.status IN :statuses AND i.paymentDate IS NULL " +
+           "AND i.date < :dueBefore AND (i.billTo.email IS NULL OR TRIM(i.billTo.email) = '' " +
+           "OR i.lastReminderAt >= :remindedBefore)")
+    long countReminderSkips(@Param("statuses") Collection<InvoiceStatus> statuses,
+                            @Param("dueBefore") LocalDate dueBefore,
+                            @Param("remindedBefore") LocalDateTime remindedBefore);
+
+    // Conditional, so of two runs racing for the same invoice only one stamps it
+    @Modifying
+    @Query("UPDATE Invoice i SET i.lastReminderAt = :claimedAt WHERE i.id IN :ids " +
+           "AND (i.lastReminderAt IS NULL OR i.lastReminderAt < :remindedBefore)")
+    int claimForReminder(@Param("ids") Collection<Long> ids,
+                         @Param("claimedAt") LocalDateTime claimedAt,
+                         @Param("remindedBefore") LocalDateTime remindedBefore);
+
+    @Query("SELECT i.id FROM Invoice i WHERE i.id IN :ids AND i.lastReminderAt = :claimedAt")
+    List<Long> findIdsRemindedAt(@Param("ids") Collection<Long> ids, @Param("claimedAt") LocalDateTime claimedAt);
+
+    @Modifying
+    @Query("UPDATE Invoice i SET i.lastReminderAt = :previous WHERE i.id = :id AND i.lastReminderAt = :claimedAt")
+    int releaseReminderClaim(@Param("id") Long id,
+                             @Param("claimedAt") LocalDateTime claimedAt,
+                             @Param("previous") LocalDateTime previous);
+
+    Optional<Invoice> findFirstByUserIdOrderByIdDesc(Long userId);
+
+    // Keyset paging for the customer backfill
+    @Query("SELECT i.id FROM Invoice i WHERE i.id > :afterId AND i.customer IS NULL AND TRIM(i.billTo.name) <> '' ORDER BY i.id")
+    List<Long> findIdsWithoutCustomer(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Keyset paging for the stored-total backfill
+    @Query("SELECT i.id FROM Invoice i WHERE i.id > :afterId AND i.storedGrandTotalMinor IS NULL ORDER BY i.id")
+    List<Long> findIdsWithoutStoredTotal(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Archive candidates, walked by id through idx_invoices_status_id
+    @Query("SELECT i.id FROM Invoice i WHERE i.status = 'PAID' AND i.id > :afterId AND i.date < :before ORDER BY i.id")
+    List<Long> findArchivableIds(@Param("afterId") Long afterId, @Param("before") LocalDate before, Pageable pageable);
 
     long countByUser(User user);
 
@@ -1,8 +1,11 @@
 package com.billgenpro.repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -17,7 +20,7 @@ public interface ReceiptRepository extends JpaRepository<Receipt, Long> {
     @Query("SELECT r FROM Receipt r ORDER BY r.date DESC")
     List<Receipt> findAllOrderByDateDesc();
     
-    @Query("SELECT r FROM Receipt r WHERE r.user = :user ORDER BY r.date DESC")
+    @Query("SELECT DISTINCT r FROM Receipt r LEFT JOIN FETCH r.items WHERE r.user = :user ORDER BY r.date DESC")
     List<Receipt> findByUserOrderByDateDesc(@Param("user") User user);
     
     @Query("SELECT r FROM Receipt r WHERE r.user = :user AND r.number LIKE %:number%")
@@ -26,6 +29,9 @@ public interface ReceiptRepository extends JpaRepository<Receipt, Long> {
     @Query("SELECT r FROM Receipt r WHERE r.id = :id AND r.user = :user")
     Optional<Receipt> findByIdAndUser(@Param("id") Long id, @Param("user") User user);
     
+    @Query("SELECT DISTINCT r FROM Receipt r LEFT JOIN FETCH r.items WHERE r.id = :id")
+    Optional<Receipt> findByIdWithItems(@Param("id") Long id);
+    
     @Query("SELECT DISTINCT r FROM Receipt r LEFT JOIN FETCH r.items WHERE r.id = :id AND r.user = :user")
     Optional<Receipt> findByIdAndUserWithItems(@Param("id") Long id, @Param("user") User user);
     
@@ -35,4 +41,19 @@ public interface ReceiptRepository extends JpaRepository<Receipt, Long> {
     
     @Query("SELECT COUNT(r) > 0 FROM Receipt r WHERE r.number = :number AND r.user = :user")
     boolean existsByNumberAndUser(@Param("number") String number, @Param("user") User user);
+
+    @Query("SELECT DISTINCT r FROM Receipt r LEFT JOIN FETCH r.items WHERE r.user = :user AND r.date = :date")
+    List<Receipt> findByUserAndDateWithItems(@Param("user") User user, @Param("date") LocalDate date);
+
+    long countByUser(User user);
+
+    @Query("SELECT DISTINCT r FROM Receipt r LEFT JOIN FETCH r.items WHERE r.id IN :ids")
+    List<Receipt> findAllByIdWithItems(@Param("ids") Collection<Long> ids);
+
+    // Keyset paging for the customer backfill
+    @Query("SELECT r.id FROM Receipt r WHERE r.id > :afterId AND r.customer IS NULL AND TRIM(r.billTo) <> '' ORDER BY r.id")
+    List<Long> findIdsWithoutCustomer(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT r.id FROM Receipt r WHERE r.id > :afterId AND r.date < :before ORDER BY r.id")
+    List<Long> findArchivableIds(@Param("afterId") Long afterId, @Param("before") LocalDate before, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.billgenpro.service;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.billgenpro.config.BoundedLruCache;
+import com.billgenpro.model.AgingReport;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.InvoiceRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Builds receivables aging reports from one aggregation query over the stored invoice
+ * totals, so no invoice or item is loaded.
+ *
+ * Reports are cached per user and day in a bounded LRU map, stamped with the user's
+ * {@link UserDataVersionService} version. Any committed invoice or receipt write bumps
+ * that version, so the next request recomputes instead of serving a stale report.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AgingReportService {
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private UserDataVersionService userDataVersionService;
+
+    @Value("${billgenpro.reports.aging.cache-max-entries:1000}")
+    private int cacheMaxEntries;
+
+    private BoundedLruCache<ReportKey, CachedReport> cache;
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        cache = new BoundedLruCache<>(cacheMaxEntries);
+    }
+
+    public AgingReport getAgingReport(User user, LocalDate asOf) {
+        ReportKey key = new ReportKey(user.getId(), asOf);
+        // Read before querying: a write that commits meanwhile leaves the entry already stale
+        long version = userDataVersionService.currentVersion(user.getId());
+        AgingReport cached = lookup(key, version);
+        if (cached != null) {
+            return cached;
+        }
+        AgingReport report = new AgingReport(asOf, invoiceRepository.findAgingRowsByUser(user, asOf,
+                asOf.minusDays(30), asOf.minusDays(60), asOf.minusDays(90)));
+        store(key, version, report);
+        return report;
+    }
+
+    public long getCacheHitCount() { return cacheHits.get(); }
+
+    public long getCacheMissCount() { return cacheMisses.get(); }
+
+    private AgingReport lookup(ReportKey key, long version) {
+        CachedReport entry = cache.get(key);
+        if (entry != null && entry.version() == version) {
+            cacheHits.incrementAndGet();
+            return entry.report();
+        }
+        cacheMisses.incrementAndGet();
+        return null;
+    }
+
+    private void store(ReportKey key, long version, AgingReport report) {
+        cache.put(key, new CachedReport(version, report));
+    }
+
+    private record ReportKey(Long userId, LocalDate asOf) {}
+
+    private record CachedReport(long version, AgingReport report) {}
+}
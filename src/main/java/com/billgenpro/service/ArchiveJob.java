@@ -0,0 +1,111 @@
+package com.billgenpro.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.repository.InvoiceRepository;
+import com.billgenpro.repository.ReceiptRepository;
+
+/**
+ * Moves old paid invoices and receipts into the {@link ArchiveService} archive. Walks the
+ * live tables by id in keyset pages, like {@link InvoiceTotalsBackfill}, and archives
+ * each page in its own transaction, so a run can stop at any point (shutdown, a failed
+ * batch) and the next one simply carries on with whatever is still live. A short pause
+ * between batches keeps a large first run from monopolising the database.
+ */
+@Component
+public class ArchiveJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveJob.class);
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Value("${billgenpro.archive.min-age-days:365}")
+    private int minAgeDays;
+
+    @Value("${billgenpro.archive.batch-size:200}")
+    private int batchSize;
+
+    @Value("${billgenpro.archive.batch-pause-ms:100}")
+    private long batchPauseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${billgenpro.archive.cron:-}")
+    public void scheduledRun() {
+        runArchive();
+    }
+
+    /**
+     * Archives everything old enough and returns how many documents were moved, or -1 if
+     * a run was already in progress.
+     */
+    public int runArchive() {
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("Skipping archive run: one is already in progress");
+            return -1;
+        }
+        try {
+            // At least a day, so today's documents (and today's revenue) always stay live
+            LocalDate before = LocalDate.now().minusDays(Math.max(1, minAgeDays));
+            int invoices = archive(DocumentType.INVOICE, before,
+                    (afterId, page) -> invoiceRepository.findArchivableIds(afterId, before, page),
+                    archiveService::archiveInvoices);
+            int receipts = archive(DocumentType.RECEIPT, before,
+                    (afterId, page) -> receiptRepository.findArchivableIds(afterId, before, page),
+                    archiveService::archiveReceipts);
+            if (invoices + receipts > 0) {
+                logger.info("Archived {} invoices and {} receipts dated before {}", invoices, receipts, before);
+            }
+            return invoices + receipts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Archive run interrupted; the next run continues where it stopped");
+            return 0;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int archive(DocumentType documentType, LocalDate before,
+                        BiFunction<Long, PageRequest, List<Long>> nextIds,
+                        BiFunction<List<Long>, LocalDate, Integer> moveBatch) throws InterruptedException {
+        int moved = 0;
+        long afterId = 0L;
+        while (true) {
+            List<Long> ids = nextIds.apply(afterId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                return moved;
+            }
+            afterId = ids.get(ids.size() - 1);
+            try {
+                moved += moveBatch.apply(ids, before);
+            } catch (DataAccessException e) {
+                // Rolled back as a whole (e.g. another instance archived the same rows); skip it
+                logger.warn("Could not archive {} batch ending at id {}", documentType, afterId, e);
+            }
+            if (batchPauseMillis > 0) {
+                Thread.sleep(batchPauseMillis);
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.billgenpro.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.billgenpro.event.DocumentChangedEvent;
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.ArchivedDocument;
+import com.billgenpro.model.BillTo;
+import com.billgenpro.model.Company;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceItem;
+import com.billgenpro.model.InvoiceStatus;
+import com.billgenpro.model.Receipt;
+import com.billgenpro.model.ReceiptItem;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.ArchivedDocumentRepository;
+import com.billgenpro.repository.InvoiceRepository;
+import com.billgenpro.repository.ReceiptRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cold storage for documents nobody edits any more: paid invoices and receipts older
+ * than {@code billgenpro.archive.min-age-days}. {@link ArchiveJob} moves them here in
+ * batches; each one becomes a single {@link ArchivedDocument} row holding the document
+ * as gzip-compressed JSON, and its rows in the live tables (document and items) are
+ * deleted. List pages, exports and per-document queries then only walk recent data.
+ *
+ * Archived documents stay reachable under their old id: the controllers fall back to
+ * {@link #findInvoice}/{@link #findReceipt} when the live lookup misses, and get back a
+ * detached, read-only copy to show or render. Their totals still count on the dashboard
+ * through {@link #getTotals}, and customer totals never drop them because archiving does
+ * not go through {@link CustomerService}.
+ */
+@Service
+@Transactional
+public class ArchiveService {
+
+    /** Archived documents of one user, per type, as the dashboard adds them in. */
+    public record Totals(long invoiceCount, long invoiceTotalMinor, long receiptCount, long receiptTotalMinor) {
+        public static final Totals NONE = new Totals(0, 0, 0, 0);
+    }
+
+    @Autowired
+    private ArchivedDocumentRepository archivedDocumentRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserDataVersionService userDataVersionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final Map<DocumentType, AtomicLong> archived = new EnumMap<>(Map.of(
+            DocumentType.INVOICE, new AtomicLong(), DocumentType.RECEIPT, new AtomicLong()));
+    private final AtomicLong archivedBytes = new AtomicLong();
+    private final AtomicLong fallbackReads = new AtomicLong();
+
+    /**
+     * Moves the given invoices into the archive, in this transaction. Each one is checked
+     * again after loading, so an invoice marked unpaid or re-dated since its id was
+     * picked stays where it is. Returns how many were moved.
+     */
+    public int archiveInvoices(List<Long> ids, LocalDate before) {
+        int moved = 0;
+        for (Invoice invoice : invoiceRepository.findAllByIdWithItems(ids)) {
+            if (invoice.getStatus() != InvoiceStatus.PAID || !invoice.getDate().isBefore(before)) {
+                continue;
+            }
+            List<ItemSnapshot> items = new ArrayList<>(invoice.getItems().size());
+            for (InvoiceItem item : invoice.getItems()) {
+                items.add(new ItemSnapshot(item.getName(), item.getDescription(), item.getQuantity(), item.getAmount()));
+            }
+            InvoiceSnapshot snapshot = new InvoiceSnapshot(invoice.getNumber(), invoice.getDate(), invoice.getPaymentDate(),
+                    invoice.getCompany(), invoice.getBillTo(), invoice.getShipTo(), items, invoice.getTaxPercentage(),
+                    invoice.getNotes(), invoice.getTemplateNumber(), invoice.getLogoUrl(), invoice.getLogoHash(),
+                    invoice.getPrimaryColor(), invoice.getSecondaryColor());
+            store(new ArchivedDocument(DocumentType.INVOICE, invoice.getId(), invoice.getUser(), invoice.getNumber(),
+                    invoice.getDate(), invoice.getGrandTotalMinor(), compress(snapshot)));
+            invoiceRepository.delete(invoice);
+            publishArchived(DocumentType.INVOICE, invoice.getId(), invoice.getUser());
+            moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * Moves the given receipts into the archive, in this transaction. Returns how many
+     * were moved.
+     */
+    public int archiveReceipts(List<Long> ids, LocalDate before) {
+        int moved = 0;
+        for (Receipt receipt : receiptRepository.findAllByIdWithItems(ids)) {
+            if (!receipt.getDate().isBefore(before)) {
+                continue;
+            }
+            List<ItemSnapshot> items = new ArrayList<>(receipt.getItems().size());
+            for (ReceiptItem item : receipt.getItems()) {
+                items.add(new ItemSnapshot(item.getName(), item.getDescription(), item.getQuantity(), item.getAmount()));
+            }
+            ReceiptSnapshot snapshot = new ReceiptSnapshot(receipt.getNumber(), receipt.getDate(), receipt.getCompany(),
+                    receipt.getBillTo(), receipt.getCashier(), items, receipt.getTaxPercentage(), receipt.getNotes(),
+                    receipt.getFooter(), receipt.getTemplateNumber());
+            store(new ArchivedDocument(DocumentType.RECEIPT, receipt.getId(), receipt.getUser(), receipt.getNumber(),
+                    receipt.getDate(), receipt.getGrandTotalMinor(), compress(snapshot)));
+            receiptRepository.delete(receipt);
+            publishArchived(DocumentType.RECEIPT, receipt.getId(), receipt.getUser());
+            moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * An archived invoice of the user's, rebuilt as a detached copy. Nothing written to it
+     * is saved.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Invoice> findInvoice(Long id, User user) {
+        return archivedDocumentRepository.findByDocumentAndUser(DocumentType.INVOICE, id, user).map(document -> {
+            fallbackReads.incrementAndGet();
+            InvoiceSnapshot snapshot = decompress(document.getPayload(), InvoiceSnapshot.class);
+            Invoice invoice = new Invoice();
+            invoice.setId(document.getDocumentId());
+            invoice.setUser(user);
+            invoice.setStatus(InvoiceStatus.PAID);
+            invoice.setNumber(snapshot.number());
+            invoice.setDate(snapshot.date());
+            invoice.setPaymentDate(snapshot.paymentDate());
+            invoice.setCompany(snapshot.company());
+            invoice.setBillTo(snapshot.billTo());
+            invoice.setShipTo(snapshot.shipTo());
+            invoice.setTaxPercentage(snapshot.taxPercentage());
+            invoice.setNotes(snapshot.notes());
+            invoice.setTemplateNumber(snapshot.templateNumber());
+            invoice.setLogoUrl(snapshot.logoUrl());
+            invoice.setLogoHash(snapshot.logoHash());
+            invoice.setPrimaryColor(snapshot.primaryColor());
+            invoice.setSecondaryColor(snapshot.secondaryColor());
+            List<InvoiceItem> items = new ArrayList<>(snapshot.items().size());
+            for (ItemSnapshot line : snapshot.items()) {
+                InvoiceItem item = new InvoiceItem(line.name(), line.description(), line.quantity(), line.amount());
+                item.setInvoice(invoice);
+                items.add(item);
+            }
+            invoice.setItems(items);
+            invoice.refreshStoredTotal();
+            return invoice;
+        });
+    }
+
+    /**
+     * An archived receipt of the user's, rebuilt as a detached copy.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Receipt> findReceipt(Long id, User user) {
+        return archivedDocumentRepository.findByDocumentAndUser(DocumentType.RECEIPT, id, user).map(document -> {
+            fallbackReads.incrementAndGet();
+            ReceiptSnapshot snapshot = decompress(document.getPayload(), ReceiptSnapshot.class);
+            Receipt receipt = new Receipt();
+            receipt.setId(document.getDocumentId());
+            receipt.setUser(user);
+            receipt.setNumber(snapshot.number());
+            receipt.setDate(snapshot.date());
+            receipt.setCompany(snapshot.company());
+            receipt.setBillTo(snapshot.billTo());
+            receipt.setCashier(snapshot.cashier());
+            receipt.setTaxPercentage(snapshot.taxPercentage());
+            receipt.setNotes(snapshot.notes());
+            receipt.setFooter(snapshot.footer());
+            receipt.setTemplateNumber(snapshot.templateNumber());
+            List<ReceiptItem> items = new ArrayList<>(snapshot.items().size());
+            for (ItemSnapshot line : snapshot.items()) {
+                ReceiptItem item = new ReceiptItem(line.name(), line.description(), line.quantity(), line.amount());
+                item.setReceipt(receipt);
+                items.add(item);
+            }
+            receipt.setItems(items);
+            return receipt;
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public Totals getTotals(User user) {
+        long invoiceCount = 0, invoiceTotal = 0, receiptCount = 0, receiptTotal = 0;
+        for (ArchivedDocument.Totals totals : archivedDocumentRepository.sumTotalsByUser(user)) {
+            if (totals.documentType() == DocumentType.INVOICE) {
+                invoiceCount = totals.count();
+                invoiceTotal = totals.totalMinor();
+            } else {
+                receiptCount = totals.count();
+                receiptTotal = totals.totalMinor();
+            }
+        }
+        return new Totals(invoiceCount, invoiceTotal, receiptCount, receiptTotal);
+    }
+
+    /**
+     * True if the user already has an archived document of this type with this number;
+     * new numbers must not reuse it.
+     */
+    @Transactional(readOnly = true)
+    public boolean isNumberArchived(DocumentType documentType, String number, User user) {
+        return archivedDocumentRepository.existsByNumberAndUser(documentType, number, user);
+    }
+
+    public long getArchivedCount(DocumentType documentType) { return archived.get(documentType).get(); }
+
+    public long getArchivedBytes() { return archivedBytes.get(); }
+
+    public long getFallbackReadCount() { return fallbackReads.get(); }
+
+    private void store(ArchivedDocument document) {
+        archivedDocumentRepository.save(document);
+        archived.get(document.getDocumentType()).incrementAndGet();
+        archivedBytes.addAndGet(document.getPayload().length);
+    }
+
+    // Listeners treat it like a delete: the live row is gone, caches keyed by it are stale
+    private void publishArchived(DocumentType documentType, Long documentId, User user) {
+        userDataVersionService.bump(user.getId());
+        eventPublisher.publishEvent(new DocumentChangedEvent(documentType, documentId, user.getId(),
+                DocumentChangedEvent.ChangeType.ARCHIVED));
+    }
+
+    private byte[] compress(Object snapshot) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, snapshot);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialise archived document", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private <T> T decompress(byte[] payload, Class<T> type) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(in, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archived document", e);
+        }
+    }
+
+    // The stored JSON: what the pages and PDFs print, by field name, so adding a field stays readable
+    private record InvoiceSnapshot(String number, LocalDate date, LocalDate paymentDate, Company company,
+                                   BillTo billTo, BillTo shipTo, List<ItemSnapshot> items, BigDecimal taxPercentage,
+                                   String notes, Integer templateNumber, String logoUrl, String logoHash,
+                                   String primaryColor, String secondaryColor) {}
+
+    private record ReceiptSnapshot(String number, LocalDate date, Company company, String billTo, String cashier,
+                                   List<ItemSnapshot> items, BigDecimal taxPercentage, String notes, String footer,
+                                   Integer templateNumber) {}
+
+    private record ItemSnapshot(String name, String description, Integer quantity, BigDecimal amount) {}
+}
@@ -0,0 +1,549 @@
+package com.billgenpro.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.billgenpro.config.WorkerThreads;
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.BillTo;
+import com.billgenpro.model.Company;
+import com.billgenpro.model.DocumentRevision;
+import com.billgenpro.model.DocumentRevision.Action;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceItem;
+import com.billgenpro.model.Receipt;
+import com.billgenpro.model.ReceiptItem;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.DocumentRevisionRepository;
+import com.billgenpro.repository.UserRepository;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only change history of invoices and receipts, kept as deltas.
+ *
+ * The document services hand {@link #record} the document as it was before and after each
+ * write, as flat {@link Snapshot}s. Nothing else happens on the request thread: once the
+ * transaction commits, the pair is queued, and a single writer thread diffs it and
+ * inserts the resulting {@link DocumentRevision} rows, as many as are waiting, in one
+ * transaction. A revision stores only the fields that changed and the changed line items
+ * as splices (a patience diff of the item lists), so editing, adding or removing one line
+ * of a 1000-line invoice stores one line. The first write to a document saved before history
+ * existed also stores a {@code BASELINE} with its full previous state, so every history
+ * starts from a complete document and {@link #getVersion} can replay it to any revision.
+ *
+ * Commits reach the queue in no particular order, so each revision carries the document
+ * version its write produced, and history is replayed in version order. The optimistic
+ * lock on the document makes that order the order the writes really happened in. A
+ * revision older than the start of its document's history is already part of the
+ * baseline and is not stored.
+ *
+ * The queue is in memory: revisions still waiting there when the process dies are lost.
+ * When it is full, saves wait up to {@code billgenpro.audit.enqueue-timeout-ms} for room
+ * rather than outrunning the writer.
+ */
+@Service
+public class AuditService {
+
+    /** One line item, with the amount as a plain decimal string so 10.0 and 10.00 compare equal. */
+    public record Line(String name, String description, Integer quantity, String amount) {}
+
+    /** A document as history sees it: its printed fields by name, and its line items in order. */
+    public record Snapshot(Map<String, String> fields, List<Line> items) {
+        public static final Snapshot EMPTY = new Snapshot(Map.of(), List.of());
+    }
+
+    /** Replaces {@code remove} lines starting at {@code at} with {@code insert}. */
+    public record Splice(int at, int remove, List<Line> insert) {}
+
+    /** What one revision changed: new values of changed fields (null = cleared), then item splices in order. */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public record Changes(Map<String, String> fields, List<Splice> items) {
+        boolean isEmpty() {
+            return fields.isEmpty() && items.isEmpty();
+        }
+    }
+
+    /** One entry of a document's history, numbered from 1. */
+    public record Revision(int number, Action action, Instant createdAt, Changes changes) {}
+
+    record PendingRevision(DocumentType documentType, Long documentId, long version, Long userId, Action action,
+                           Snapshot before, Snapshot after, Instant createdAt) {}
+
+    private static final Comparator<PendingRevision> DOCUMENT_ORDER = Comparator
+            .comparing(PendingRevision::documentType)
+            .thenComparing(PendingRevision::documentId)
+            .thenComparingLong(PendingRevision::version);
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditService.class);
+
+    @Autowired
+    private DocumentRevisionRepository revisionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Value("${billgenpro.audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${billgenpro.audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${billgenpro.audit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${billgenpro.audit.enqueue-timeout-ms:1000}")
+    private long enqueueTimeoutMillis;
+
+    private BlockingQueue<PendingRevision> queue;
+    private Thread writer;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (enabled) {
+            writer = workerThreads.factory("audit-writer-").newThread(this::writeLoop);
+            writer.start();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        // Whatever the writer had not taken yet
+        List<PendingRevision> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            write(rest);
+        }
+    }
+
+    public static Snapshot snapshotOf(Invoice invoice) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("number", invoice.getNumber());
+        fields.put("date", Objects.toString(invoice.getDate(), null));
+        fields.put("paymentDate", Objects.toString(invoice.getPaymentDate(), null));
+        fields.put("status", invoice.getStatus() != null ? invoice.getStatus().name() : null);
+        putCompany(fields, invoice.getCompany());
+        putBillTo(fields, "billTo.", invoice.getBillTo());
+        putBillTo(fields, "shipTo.", invoice.getShipTo());
+        fields.put("taxPercentage", decimal(invoice.getTaxPercentage()));
+        fields.put("notes", invoice.getNotes());
+        fields.put("templateNumber", Objects.toString(invoice.getTemplateNumber(), null));
+        fields.put("logoUrl", invoice.getLogoUrl());
+        fields.put("logoHash", invoice.getLogoHash());
+        fields.put("primaryColor", invoice.getPrimaryColor());
+        fields.put("secondaryColor", invoice.getSecondaryColor());
+        List<Line> items = new ArrayList<>(invoice.getItems().size());
+        for (InvoiceItem item : invoice.getItems()) {
+            items.add(new Line(item.getName(), item.getDescription(), item.getQuantity(), decimal(item.getAmount())));
+        }
+        return new Snapshot(fields, items);
+    }
+
+    public static Snapshot snapshotOf(Receipt receipt) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("number", receipt.getNumber());
+        fields.put("date", Objects.toString(receipt.getDate(), null));
+        putCompany(fields, receipt.getCompany());
+        fields.put("billTo", receipt.getBillTo());
+        fields.put("cashier", receipt.getCashier());
+        fields.put("taxPercentage", decimal(receipt.getTaxPercentage()));
+        fields.put("notes", receipt.getNotes());
+        fields.put("footer", receipt.getFooter());
+        fields.put("templateNumber", Objects.toString(receipt.getTemplateNumber(), null));
+        List<Line> items = new ArrayList<>(receipt.getItems().size());
+        for (ReceiptItem item : receipt.getItems()) {
+            items.add(new Line(item.getName(), item.getDescription(), item.getQuantity(), decimal(item.getAmount())));
+        }
+        return new Snapshot(fields, items);
+    }
+
+    /**
+     * Adds a revision to the document's history once the current transaction commits.
+     * {@code version} is the document version this write produces, which orders the history.
+     * {@code before} is null for {@code CREATED}; {@code after} is null for {@code DELETED}.
+     */
+    public void record(DocumentType documentType, Long documentId, long version, User user, Action action,
+                       Snapshot before, Snapshot after) {
+        if (enabled) {
+            eventPublisher.publishEvent(new PendingRevision(documentType, documentId, version, user.getId(), action,
+                    before, after, Instant.now()));
+        }
+    }
+
+    // After commit, so a save that rolls back leaves no history
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCommitted(PendingRevision revision) {
+        try {
+            if (!queue.offer(revision, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                dropped.incrementAndGet();
+                logger.error("Audit queue full; dropped {} revision of {} {}", revision.action(),
+                        revision.documentType(), revision.documentId());
+            }
+        } catch (InterruptedException e) {
+            dropped.incrementAndGet();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The user's history of one document, oldest first. Still available after the
+     * document is deleted or archived.
+     */
+    @Transactional(readOnly = true)
+    public List<Revision> getHistory(DocumentType documentType, Long documentId, User user) {
+        List<DocumentRevision> rows = revisionRepository.findByDocumentAndUser(documentType, documentId, user);
+        List<Revision> history = new ArrayList<>(rows.size());
+        for (DocumentRevision row : rows) {
+            history.add(new Revision(history.size() + 1, row.getAction(), row.getCreatedAt(),
+                    decompress(row.getChanges())));
+        }
+        return history;
+    }
+
+    /**
+     * The document as it was right after the given revision (numbered as in
+     * {@link #getHistory}), or empty if there is no such revision.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Snapshot> getVersion(DocumentType documentType, Long documentId, User user, int revision) {
+        List<DocumentRevision> rows = revisionRepository.findByDocumentAndUser(documentType, documentId, user);
+        if (revision < 1 || revision > rows.size()) {
+            return Optional.empty();
+        }
+        Snapshot state = Snapshot.EMPTY;
+        for (DocumentRevision row : rows.subList(0, revision)) {
+            if (row.getAction() == Action.CREATED || row.getAction() == Action.BASELINE) {
+                state = Snapshot.EMPTY;
+            }
+            state = apply(state, decompress(row.getChanges()));
+        }
+        return Optional.of(state);
+    }
+
+    public int getQueueDepth() { return queue.size(); }
+
+    public long getWrittenCount() { return written.get(); }
+
+    public long getUnchangedCount() { return unchanged.get(); }
+
+    public long getDroppedCount() { return dropped.get(); }
+
+    public long getFailedCount() { return failed.get(); }
+
+    public long getWrittenBytes() { return writtenBytes.get(); }
+
+    private void writeLoop() {
+        List<PendingRevision> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            // No waiting for a fuller batch: under load the queue fills while the previous batch is written
+            queue.drainTo(batch, batchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingRevision> batch) {
+        try {
+            Map<DocumentType, Map<Long, Long>> historyStarts = new LinkedHashMap<>();
+            for (DocumentType documentType : DocumentType.values()) {
+                Set<Long> ids = new HashSet<>();
+                for (PendingRevision pending : batch) {
+                    if (pending.documentType() == documentType) {
+                        ids.add(pending.documentId());
+                    }
+                }
+                Map<Long, Long> starts = new HashMap<>();
+                if (!ids.isEmpty()) {
+                    for (DocumentRevisionRepository.HistoryStart start
+                            : revisionRepository.findHistoryStarts(documentType, ids)) {
+                        starts.put(start.getDocumentId(), start.getStartVersion());
+                    }
+                }
+                historyStarts.put(documentType, starts);
+            }
+            // Each document's revisions oldest first, so a baseline is taken before the earliest of them
+            List<PendingRevision> ordered = new ArrayList<>(batch);
+            ordered.sort(DOCUMENT_ORDER);
+            List<DocumentRevision> rows = new ArrayList<>(batch.size());
+            long bytes = 0;
+            for (PendingRevision pending : ordered) {
+                Snapshot before = pending.before() != null ? pending.before() : Snapshot.EMPTY;
+                Snapshot after = pending.after() != null ? pending.after() : before;
+                Changes changes = diff(before, after);
+                Map<Long, Long> starts = historyStarts.get(pending.documentType());
+                Long start = starts.get(pending.documentId());
+                if ((changes.isEmpty() && pending.action() == Action.UPDATED)
+                        || (start != null && pending.version() <= start)) {
+                    // Saved without changing anything, or committed late and already in the baseline
+                    unchanged.incrementAndGet();
+                    continue;
+                }
+                User user = userRepository.getReferenceById(pending.userId());
+                if (start == null && pending.action() != Action.CREATED) {
+                    byte[] baseline = compress(diff(Snapshot.EMPTY, before));
+                    rows.add(new DocumentRevision(pending.documentType(), pending.documentId(), pending.version() - 1,
+                            user, Action.BASELINE, pending.createdAt(), baseline));
+                    bytes += baseline.length;
+                    starts.put(pending.documentId(), pending.version() - 1);
+                } else if (start == null) {
+                    starts.put(pending.documentId(), pending.version());
+                }
+                byte[] compressed = compress(changes);
+                rows.add(new DocumentRevision(pending.documentType(), pending.documentId(), pending.version(), user,
+                        pending.action(), pending.createdAt(), compressed));
+                bytes += compressed.length;
+            }
+            // One transaction for the whole batch
+            revisionRepository.saveAll(rows);
+            written.addAndGet(rows.size());
+            writtenBytes.addAndGet(bytes);
+        } catch (RuntimeException e) {
+            failed.addAndGet(batch.size());
+            logger.error("Could not write {} audit revisions", batch.size(), e);
+        }
+    }
+
+    static Changes diff(Snapshot before, Snapshot after) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (Map.Entry<String, String> field : after.fields().entrySet()) {
+            if (!before.fields().containsKey(field.getKey())
+                    || !Objects.equals(before.fields().get(field.getKey()), field.getValue())) {
+                fields.put(field.getKey(), field.getValue());
+            }
+        }
+        return new Changes(fields, diff(before.items(), after.items()));
+    }
+
+    private static List<Splice> diff(List<Line> before, List<Line> after) {
+        List<Splice> splices = new ArrayList<>();
+        diff(before, 0, before.size(), after, 0, after.size(), splices);
+        return splices;
+    }
+
+    /**
+     * Patience diff of before[fromB, toB) against after[fromA, toA): lines that occur once
+     * on each side and in the same order anchor the match, and the gaps between anchors are
+     * diffed the same way. Splice positions are in {@code after}'s numbering, which is what
+     * the list looks like up to that point when the splices are applied in order.
+     */
+    private static void diff(List<Line> before, int fromB, int toB, List<Line> after, int fromA, int toA,
+                             List<Splice> splices) {
+        while (fromB < toB && fromA < toA && before.get(fromB).equals(after.get(fromA))) {
+            fromB++;
+            fromA++;
+        }
+        while (fromB < toB && fromA < toA && before.get(toB - 1).equals(after.get(toA - 1))) {
+            toB--;
+            toA--;
+        }
+        if (fromB == toB && fromA == toA) {
+            return;
+        }
+        if (fromB == toB || fromA == toA) {
+            splices.add(new Splice(fromA, toB - fromB, List.copyOf(after.subList(fromA, toA))));
+            return;
+        }
+        List<int[]> anchors = uniqueCommonLines(before, fromB, toB, after, fromA, toA);
+        if (anchors.isEmpty()) {
+            replace(before, fromB, toB, after, fromA, toA, splices);
+            return;
+        }
+        int b = fromB;
+        int a = fromA;
+        for (int[] anchor : anchors) {
+            diff(before, b, anchor[0], after, a, anchor[1], splices);
+            b = anchor[0] + 1;
+            a = anchor[1] + 1;
+        }
+        diff(before, b, toB, after, a, toA, splices);
+    }
+
+    // Pairs of (before, after) positions of lines unique on both sides, longest run in the same order
+    private static List<int[]> uniqueCommonLines(List<Line> before, int fromB, int toB, List<Line> after,
+                                                 int fromA, int toA) {
+        // Per line: occurrences in before, occurrences in after, last position in each
+        Map<Line, int[]> counts = new HashMap<>();
+        for (int i = fromB; i < toB; i++) {
+            int[] count = counts.computeIfAbsent(before.get(i), line -> new int[4]);
+            count[0]++;
+            count[2] = i;
+        }
+        List<int[]> candidates = new ArrayList<>();
+        for (int i = fromA; i < toA; i++) {
+            int[] count = counts.get(after.get(i));
+            if (count != null) {
+                count[1]++;
+                count[3] = i;
+            }
+        }
+        for (int i = fromA; i < toA; i++) {
+            int[] count = counts.get(after.get(i));
+            if (count != null && count[0] == 1 && count[1] == 1) {
+                candidates.add(new int[] {count[2], i});
+            }
+        }
+        // Longest increasing subsequence of the before positions, candidates being in after order
+        int[] tails = new int[candidates.size()];
+        int[] previous = new int[candidates.size()];
+        int length = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (candidates.get(tails[middle])[0] < candidates.get(i)[0]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            length = Math.max(length, low + 1);
+        }
+        List<int[]> anchors = new ArrayList<>(length);
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            anchors.add(candidates.get(i));
+        }
+        Collections.reverse(anchors);
+        return anchors;
+    }
+
+    // No anchors: lines edited in place get one splice per changed run, anything else one splice
+    private static void replace(List<Line> before, int fromB, int toB, List<Line> after, int fromA, int toA,
+                                List<Splice> splices) {
+        if (toB - fromB != toA - fromA) {
+            splices.add(new Splice(fromA, toB - fromB, List.copyOf(after.subList(fromA, toA))));
+            return;
+        }
+        int offset = fromB - fromA;
+        int index = fromA;
+        while (index < toA) {
+            if (before.get(index + offset).equals(after.get(index))) {
+                index++;
+                continue;
+            }
+            int start = index;
+            while (index < toA && !before.get(index + offset).equals(after.get(index))) {
+                index++;
+            }
+            splices.add(new Splice(start, index - start, List.copyOf(after.subList(start, index))));
+        }
+    }
+
+    static Snapshot apply(Snapshot state, Changes changes) {
+        Map<String, String> fields = new LinkedHashMap<>(state.fields());
+        if (changes.fields() != null) {
+            fields.putAll(changes.fields());
+        }
+        List<Line> items = new ArrayList<>(state.items());
+        if (changes.items() != null) {
+            for (Splice splice : changes.items()) {
+                items.subList(splice.at(), splice.at() + splice.remove()).clear();
+                items.addAll(splice.at(), splice.insert());
+            }
+        }
+        return new Snapshot(fields, items);
+    }
+
+    private static void putCompany(Map<String, String> fields, Company company) {
+        fields.put("company.name", company != null ? company.getName() : null);
+        fields.put("company.address", company != null ? company.getAddress() : null);
+        fields.put("company.phone", company != null ? company.getPhone() : null);
+        fields.put("company.gst", company != null ? company.getGst() : null);
+    }
+
+    private static void putBillTo(Map<String, String> fields, String prefix, BillTo billTo) {
+        fields.put(prefix + "name", billTo != null ? billTo.getName() : null);
+        fields.put(prefix + "address", billTo != null ? billTo.getAddress() : null);
+        fields.put(prefix + "phone", billTo != null ? billTo.getPhone() : null);
+        fields.put(prefix + "email", billTo != null ? billTo.getEmail() : null);
+    }
+
+    private static String decimal(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros().toPlainString() : null;
+    }
+
+    private byte[] compress(Changes changes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, changes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialise revision", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Changes decompress(byte[] changes) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(changes))) {
+            Changes read = objectMapper.readValue(in, Changes.class);
+            // Empty parts are left out of the JSON
+            return new Changes(read.fields() != null ? read.fields() : Map.of(),
+                    read.items() != null ? read.items() : List.of());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read revision", e);
+        }
+    }
+}
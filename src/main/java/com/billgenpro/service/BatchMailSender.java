@@ -0,0 +1,95 @@
+package com.billgenpro.service;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Sends a batch of messages over a single SMTP connection. {@code JavaMailSender.send(MimeMessage...)}
+ * opens one {@code Transport} for the whole array, so callers should hand over as many
+ * messages as they have ready instead of sending them one by one.
+ *
+ * All senders share one rate limit ({@code billgenpro.mail.max-per-second}) so outbox
+ * deliveries and reminder runs together stay within the provider's sending quota.
+ */
+@Component
+public class BatchMailSender {
+
+    @Autowired(required = false)
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private DocumentMetrics documentMetrics;
+
+    @Value("${billgenpro.mail.max-per-second:0}")
+    private double maxPerSecond;
+
+    private final AtomicLong nextFreeSlotNanos = new AtomicLong(System.nanoTime());
+
+    public boolean isConfigured() {
+        return mailSender != null;
+    }
+
+    public MimeMessage createMimeMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    /**
+     * Returns the messages that could not be delivered together with the reason.
+     * An empty map means every message was accepted by the server.
+     */
+    public Map<MimeMessage, Exception> send(List<MimeMessage> messages) {
+        Map<MimeMessage, Exception> failures = new IdentityHashMap<>();
+        if (messages.isEmpty()) {
+            return failures;
+        }
+        long start = System.nanoTime();
+        try {
+            awaitRateLimit(messages.size());
+            // Time only the SMTP session, not the wait for a send slot
+            start = System.nanoTime();
+            mailSender.send(messages.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                messages.forEach(message -> failures.put(message, e));
+            } else {
+                e.getFailedMessages().forEach((message, cause) -> failures.put((MimeMessage) message, cause));
+            }
+        } catch (MailException e) {
+            // Authentication or preparation failure: nothing in the batch went out
+            messages.forEach(message -> failures.put(message, e));
+        }
+        documentMetrics.recordEmailBatch(messages.size(), failures.size(), System.nanoTime() - start);
+        return failures;
+    }
+
+    private void awaitRateLimit(int messageCount) {
+        if (maxPerSecond <= 0) {
+            return;
+        }
+        // Reserve consecutive send slots for the whole batch, then wait for the first one
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / maxPerSecond);
+        long now = System.nanoTime();
+        long reserved = nextFreeSlotNanos.getAndUpdate(next -> Math.max(next, now) + interval * messageCount);
+        long wait = Math.max(reserved, now) - now;
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MailSendException("Interrupted while waiting for the mail rate limit");
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.billgenpro.service;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import com.billgenpro.repository.InvoiceRepository;
+import com.billgenpro.repository.ReceiptRepository;
+
+/**
+ * One-time migration from embedded bill-to data to {@link com.billgenpro.model.Customer}
+ * rows. Runs at startup, before the app reports itself ready, and links documents that
+ * have no customer yet in keyset-paged batches. Each batch commits on its own, so an
+ * interrupted run resumes where it stopped, and once everything is linked a run costs
+ * one empty query per document type.
+ */
+@Component
+public class CustomerBackfill implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerBackfill.class);
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Value("${billgenpro.customers.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${billgenpro.customers.backfill.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        int invoices = backfill(invoiceRepository::findIdsWithoutCustomer, customerService::linkInvoices);
+        int receipts = backfill(receiptRepository::findIdsWithoutCustomer, customerService::linkReceipts);
+        if (invoices > 0 || receipts > 0) {
+            logger.info("Linked {} invoices and {} receipts to customers", invoices, receipts);
+        }
+    }
+
+    private int backfill(IdPage idPage, Function<List<Long>, Integer> link) {
+        int linked = 0;
+        long afterId = 0L;
+        while (true) {
+            List<Long> ids = idPage.next(afterId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                return linked;
+            }
+            afterId = ids.get(ids.size() - 1);
+            linked += link.apply(ids);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IdPage {
+        List<Long> next(Long afterId, Pageable pageable);
+    }
+}
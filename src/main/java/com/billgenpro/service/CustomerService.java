@@ -0,0 +1,233 @@
+package com.billgenpro.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.billgenpro.model.BillTo;
+import com.billgenpro.model.Customer;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceStatus;
+import com.billgenpro.model.Receipt;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.CustomerRepository;
+import com.billgenpro.repository.InvoiceRepository;
+import com.billgenpro.repository.ReceiptRepository;
+
+/**
+ * Resolves documents to their {@link Customer} and keeps the per-customer aggregates in
+ * step with document changes. Callers capture a {@link Contribution} before and after a
+ * change; only the difference is written.
+ */
+@Service
+@Transactional
+public class CustomerService {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    /**
+     * What one document adds to its customer's aggregates.
+     */
+    public record Contribution(Customer customer, long totalMinor, boolean paid) {
+
+        public static final Contribution NONE = new Contribution(null, 0, false);
+
+        public static Contribution of(Invoice invoice) {
+            return new Contribution(invoice.getCustomer(), invoice.getGrandTotalMinor(),
+                    invoice.getStatus() == InvoiceStatus.PAID);
+        }
+
+        public static Contribution of(Receipt receipt) {
+            return new Contribution(receipt.getCustomer(), receipt.getGrandTotalMinor(), true);
+        }
+
+        Long customerId() {
+            return customer != null ? customer.getId() : null;
+        }
+
+        long paidMinor() {
+            return paid ? totalMinor : 0;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<Customer> getCustomersByUser(User user) {
+        return customerRepository.findByUserOrderByOutstanding(user);
+    }
+
+    /**
+     * Ids of the user's customers whose name starts with {@code query}, ignoring case and
+     * repeated spaces.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findCustomerIds(User user, String query) {
+        String normalized = Customer.normalizeName(query);
+        if (normalized == null) {
+            return List.of();
+        }
+        String pattern = normalized.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        return customerRepository.findIdsByUserAndNamePattern(user, pattern);
+    }
+
+    public Customer resolve(User user, BillTo billTo) {
+        if (billTo == null) {
+            return null;
+        }
+        return resolve(user, billTo.getName(), billTo.getEmail(), billTo.getPhone(), billTo.getAddress());
+    }
+
+    /**
+     * Finds or creates the user's customer with this name; {@code null} for a blank name.
+     * Contact details are refreshed from the latest document that carries them.
+     */
+    public Customer resolve(User user, String name, String email, String phone, String address) {
+        String normalized = Customer.normalizeName(name);
+        if (normalized == null) {
+            return null;
+        }
+        Customer customer = customerRepository.findByUserAndNormalizedName(user, normalized).orElse(null);
+        if (customer == null) {
+            // Two first saves for the same new client can both get here; one inserts, the other reads its row
+            customerRepository.insertIfAbsent(user.getId(), name.trim(), normalized);
+            customer = customerRepository.findByUserAndNormalizedNameForUpdate(user, normalized)
+                    .orElseThrow(() -> new IllegalStateException("Customer insert was not visible: " + normalized));
+        }
+        if (hasText(email)) {
+            customer.setEmail(email);
+        }
+        if (hasText(phone)) {
+            customer.setPhone(phone);
+        }
+        if (hasText(address)) {
+            customer.setAddress(address);
+        }
+        return customerRepository.save(customer);
+    }
+
+    public void applyInvoiceChange(Contribution before, Contribution after) {
+        Long beforeId = before.customerId();
+        Long afterId = after.customerId();
+        if (Objects.equals(beforeId, afterId)) {
+            if (beforeId != null) {
+                addInvoiceTotals(beforeId, 0, after.totalMinor() - before.totalMinor(), after.paidMinor() - before.paidMinor());
+            }
+            return;
+        }
+        if (beforeId != null) {
+            addInvoiceTotals(beforeId, -1, -before.totalMinor(), -before.paidMinor());
+        }
+        if (afterId != null) {
+            addInvoiceTotals(afterId, 1, after.totalMinor(), after.paidMinor());
+        }
+    }
+
+    public void applyReceiptChange(Contribution before, Contribution after) {
+        Long beforeId = before.customerId();
+        Long afterId = after.customerId();
+        if (Objects.equals(beforeId, afterId)) {
+            if (beforeId != null && after.totalMinor() != before.totalMinor()) {
+                customerRepository.addReceiptTotals(beforeId, 0, after.totalMinor() - before.totalMinor());
+            }
+            return;
+        }
+        if (beforeId != null) {
+            customerRepository.addReceiptTotals(beforeId, -1, -before.totalMinor());
+        }
+        if (afterId != null) {
+            customerRepository.addReceiptTotals(afterId, 1, after.totalMinor());
+        }
+    }
+
+    private void addInvoiceTotals(Long customerId, long count, long billedMinor, long paidMinor) {
+        if (count != 0 || billedMinor != 0 || paidMinor != 0) {
+            customerRepository.addInvoiceTotals(customerId, count, billedMinor, paidMinor);
+        }
+    }
+
+    /**
+     * Links invoices that predate customers to one, creating customers from their bill-to
+     * details as needed. Safe to repeat: only invoices without a customer are touched.
+     */
+    public int linkInvoices(List<Long> ids) {
+        Map<CustomerKey, Customer> resolved = new HashMap<>();
+        Map<Long, long[]> totals = new HashMap<>();
+        int linked = 0;
+        for (Invoice invoice : invoiceRepository.findAllByIdWithItems(ids)) {
+            if (invoice.getCustomer() != null) {
+                continue;
+            }
+            Customer customer = resolveCached(resolved, invoice.getUser(), invoice.getBillTo() != null
+                    ? invoice.getBillTo().getName() : null, invoice.getBillTo());
+            if (customer == null) {
+                continue;
+            }
+            invoice.setCustomer(customer);
+            Contribution contribution = Contribution.of(invoice);
+            long[] sums = totals.computeIfAbsent(customer.getId(), id -> new long[3]);
+            sums[0]++;
+            sums[1] += contribution.totalMinor();
+            sums[2] += contribution.paidMinor();
+            linked++;
+        }
+        // One aggregate update per customer per batch
+        totals.forEach((customerId, sums) -> customerRepository.addInvoiceTotals(customerId, sums[0], sums[1], sums[2]));
+        return linked;
+    }
+
+    /**
+     * Receipt counterpart of {@link #linkInvoices(List)}.
+     */
+    public int linkReceipts(List<Long> ids) {
+        Map<CustomerKey, Customer> resolved = new HashMap<>();
+        Map<Long, long[]> totals = new HashMap<>();
+        int linked = 0;
+        for (Receipt receipt : receiptRepository.findAllByIdWithItems(ids)) {
+            if (receipt.getCustomer() != null) {
+                continue;
+            }
+            Customer customer = resolveCached(resolved, receipt.getUser(), receipt.getBillTo(), null);
+            if (customer == null) {
+                continue;
+            }
+            receipt.setCustomer(customer);
+            long[] sums = totals.computeIfAbsent(customer.getId(), id -> new long[2]);
+            sums[0]++;
+            sums[1] += receipt.getGrandTotalMinor();
+            linked++;
+        }
+        totals.forEach((customerId, sums) -> customerRepository.addReceiptTotals(customerId, sums[0], sums[1]));
+        return linked;
+    }
+
+    private Customer resolveCached(Map<CustomerKey, Customer> resolved, User user, String name, BillTo contact) {
+        String normalized = Customer.normalizeName(name);
+        if (normalized == null) {
+            return null;
+        }
+        CustomerKey key = new CustomerKey(user.getId(), normalized);
+        Customer customer = resolved.get(key);
+        if (customer == null) {
+            customer = contact != null ? resolve(user, contact) : resolve(user, name, null, null, null);
+            resolved.put(key, customer);
+        }
+        return customer;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private record CustomerKey(Long userId, String normalizedName) {}
+}
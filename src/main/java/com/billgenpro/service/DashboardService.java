@@ -0,0 +1,108 @@
+package com.billgenpro.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.billgenpro.config.BoundedLruCache;
+import com.billgenpro.model.InvoiceStatus;
+import com.billgenpro.model.Money;
+import com.billgenpro.model.User;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * The figures shown on the dashboard. They only change when the user writes a document,
+ * so they are cached per user and day in a bounded LRU map, stamped with the user's
+ * {@link UserDataVersionService} version, the same way as {@link AgingReportService}.
+ * The day is part of the key because "today's revenue" rolls over at midnight.
+ *
+ * Archived documents (see {@link ArchiveService}) are all paid and never from today, so
+ * their stored totals are added to the paid figures and counts only.
+ */
+@Service
+@Transactional(readOnly = true)
+public class DashboardService {
+
+    public record DashboardStats(BigDecimal totalRevenuePaid, BigDecimal totalRevenueUnpaid, Long totalInvoices,
+                                 Long paidCount, Long pendingCount, Long overdueCount, Long totalReceipts,
+                                 BigDecimal totalDailyRevenue) {}
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private UserDataVersionService userDataVersionService;
+
+    @Value("${billgenpro.dashboard.cache-max-entries:10000}")
+    private int cacheMaxEntries;
+
+    private BoundedLruCache<StatsKey, CachedStats> cache;
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        cache = new BoundedLruCache<>(cacheMaxEntries);
+    }
+
+    public DashboardStats getStats(User user) {
+        LocalDate today = LocalDate.now();
+        StatsKey key = new StatsKey(user.getId(), today);
+        // Read before querying: a write that commits meanwhile leaves the entry already stale
+        long version = userDataVersionService.currentVersion(user.getId());
+        DashboardStats cached = lookup(key, version);
+        if (cached != null) {
+            return cached;
+        }
+        ArchiveService.Totals archived = archiveService.getTotals(user);
+        DashboardStats stats = new DashboardStats(
+                invoiceService.getTotalRevenueByUser(user).add(Money.toBigDecimal(archived.invoiceTotalMinor())),
+                invoiceService.getUnpaidRevenueByUser(user),
+                invoiceService.getInvoiceCountByUser(user) + archived.invoiceCount(),
+                invoiceService.getInvoiceCountByUserAndStatus(user, InvoiceStatus.PAID) + archived.invoiceCount(),
+                invoiceService.getInvoiceCountByUserAndStatus(user, InvoiceStatus.PENDING),
+                invoiceService.getInvoiceCountByUserAndStatus(user, InvoiceStatus.OVERDUE),
+                receiptService.getReceiptCountByUser(user) + archived.receiptCount(),
+                // Daily revenue from both invoices and receipts
+                invoiceService.getDailyRevenueByUser(user, today).add(receiptService.getDailyRevenueByUser(user, today)));
+        store(key, version, stats);
+        return stats;
+    }
+
+    public long getCacheHitCount() { return cacheHits.get(); }
+
+    public long getCacheMissCount() { return cacheMisses.get(); }
+
+    public int getCacheSize() { return cache.size(); }
+
+    private DashboardStats lookup(StatsKey key, long version) {
+        CachedStats entry = cache.get(key);
+        if (entry != null && entry.version() == version) {
+            cacheHits.incrementAndGet();
+            return entry.stats();
+        }
+        cacheMisses.incrementAndGet();
+        return null;
+    }
+
+    private void store(StatsKey key, long version, DashboardStats stats) {
+        cache.put(key, new CachedStats(version, stats));
+    }
+
+    private record StatsKey(Long userId, LocalDate day) {}
+
+    private record CachedStats(long version, DashboardStats stats) {}
+}
@@ -0,0 +1,417 @@
+package com.billgenpro.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.billgenpro.config.WorkerThreads;
+import com.billgenpro.event.DocumentChangedEvent;
+import com.billgenpro.model.User;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pushes dashboard figures to open dashboards over Server-Sent Events, so they stay
+ * current without reloading the page.
+ *
+ * A new stream starts with a {@code snapshot} event holding every figure. After each
+ * committed write by the user, the figures are recomputed once (through
+ * {@link DashboardService}, so the result is cached for the next page view too) and
+ * every stream of that user gets a {@code delta} event with only the figures that
+ * changed. Writes that arrive while a recompute is queued are folded into it.
+ *
+ * Streams are async requests, so an idle one holds no thread, only a small object.
+ * Events are handed to a stream through a buffer of
+ * {@code billgenpro.dashboard.events.buffer-size} entries and written by a small pool.
+ * A stream whose buffer fills up (the client stopped reading) is closed rather than
+ * left to grow; the browser reconnects and resynchronises from a fresh snapshot, so a
+ * delta is never lost silently. Idle streams get a comment every
+ * {@code billgenpro.dashboard.events.heartbeat-ms}, which keeps proxies from closing
+ * them and finds dead clients.
+ */
+@Service
+public class DashboardUpdateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardUpdateService.class);
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Value("${billgenpro.dashboard.events.max-connections:10000}")
+    private int maxConnections;
+
+    @Value("${billgenpro.dashboard.events.max-connections-per-user:8}")
+    private int maxConnectionsPerUser;
+
+    @Value("${billgenpro.dashboard.events.buffer-size:16}")
+    private int bufferSize;
+
+    @Value("${billgenpro.dashboard.events.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${billgenpro.dashboard.events.retry-ms:5000}")
+    private long retryMillis;
+
+    @Value("${billgenpro.dashboard.events.threads:2}")
+    private int threads;
+
+    private final ConcurrentHashMap<Long, UserChannel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        // At most one queued task per stream (registration or write) plus one recompute per user
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxConnections * 2)), workerThreads.factory("dashboard-events-"));
+    }
+
+    /**
+     * Ends the open streams before the web server stops, so a graceful shutdown doesn't
+     * wait for them to time out. Browsers reconnect to another instance.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void closeStreams() {
+        for (UserChannel channel : channels.values()) {
+            channel.subscribers.forEach(this::close);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Opens a stream for the user's dashboard, or returns empty when
+     * {@code billgenpro.dashboard.events.max-connections} streams are already open.
+     * Beyond the per-user limit the user's oldest stream is closed instead, since it
+     * usually belongs to a tab that was left open.
+     *
+     * The user is looked up and the snapshot computed on the pool rather than in the
+     * request: with open-in-view, a query on the request thread would keep its database
+     * connection for as long as the stream stays open.
+     */
+    public Optional<SseEmitter> subscribe(String email) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            rejected.incrementAndGet();
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+        try {
+            executor.execute(() -> register(subscriber, email));
+        } catch (RejectedExecutionException e) {
+            remove(subscriber);
+            rejected.incrementAndGet();
+            return Optional.empty();
+        }
+        return Optional.of(emitter);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        UserChannel channel = channels.get(event.getUserId());
+        if (channel == null || !channel.refreshPending.compareAndSet(false, true)) {
+            // Nobody is watching, or a recompute is already queued and will see this write
+            return;
+        }
+        try {
+            executor.execute(() -> refresh(channel));
+        } catch (RejectedExecutionException e) {
+            // The streams would miss this change; close them so the browsers resynchronise
+            channel.refreshPending.set(false);
+            for (Subscriber subscriber : channel.subscribers) {
+                overflowed.incrementAndGet();
+                close(subscriber);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${billgenpro.dashboard.events.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (UserChannel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                if (subscriber.isIdle()) {
+                    offer(subscriber, SseEmitter.event().comment("keepalive"));
+                }
+            }
+        }
+    }
+
+    public int getConnectionCount() { return connections.get(); }
+
+    public long getSentCount() { return sent.get(); }
+
+    public long getOverflowCount() { return overflowed.get(); }
+
+    public long getRejectedCount() { return rejected.get(); }
+
+    private void register(Subscriber subscriber, String email) {
+        User user;
+        try {
+            user = userService.findByEmail(email);
+        } catch (RuntimeException e) {
+            logger.warn("Could not open a dashboard stream for {}", email, e);
+            close(subscriber);
+            return;
+        }
+        subscriber.userId = user.getId();
+        UserChannel channel = channels.compute(user.getId(), (id, existing) -> {
+            UserChannel target = existing != null ? existing : new UserChannel(user);
+            target.subscribers.add(subscriber);
+            return target;
+        });
+        if (subscriber.closed.get()) {
+            // Closed while being looked up, before remove() could find it in the channel
+            detach(subscriber);
+            return;
+        }
+        List<Subscriber> current = channel.subscribers;
+        if (current.size() > maxConnectionsPerUser) {
+            close(current.get(0));
+        }
+
+        channel.lock.lock();
+        try {
+            // Bring the user's other streams up to date first, so they and the new one share a baseline
+            publish(channel);
+            offer(subscriber, SseEmitter.event().name("snapshot").reconnectTime(retryMillis)
+                    .data(toMap(channel.last), MediaType.APPLICATION_JSON));
+            subscriber.synced = true;
+        } catch (RuntimeException e) {
+            logger.warn("Could not load dashboard figures for user {}", user.getId(), e);
+            close(subscriber);
+        } finally {
+            channel.lock.unlock();
+        }
+    }
+
+    private void refresh(UserChannel channel) {
+        // Cleared before recomputing, so a write committed meanwhile queues another pass
+        channel.refreshPending.set(false);
+        channel.lock.lock();
+        try {
+            publish(channel);
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh dashboard figures for user {}", channel.user.getId(), e);
+        } finally {
+            channel.lock.unlock();
+        }
+    }
+
+    // Called with channel.lock held
+    private void publish(UserChannel channel) {
+        DashboardService.DashboardStats stats = dashboardService.getStats(channel.user);
+        Map<String, Object> delta = diff(channel.last, stats);
+        channel.last = stats;
+        if (delta.isEmpty()) {
+            return;
+        }
+        for (Subscriber subscriber : channel.subscribers) {
+            if (subscriber.synced) {
+                offer(subscriber, SseEmitter.event().name("delta").data(delta, MediaType.APPLICATION_JSON));
+            }
+        }
+    }
+
+    private void offer(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        boolean overflow = false;
+        boolean schedule = false;
+        subscriber.lock.lock();
+        try {
+            if (subscriber.closed.get()) {
+                return;
+            }
+            if (subscriber.buffer.size() >= bufferSize) {
+                overflow = true;
+            } else {
+                subscriber.buffer.add(event);
+                schedule = !subscriber.draining;
+                subscriber.draining = true;
+            }
+        } finally {
+            subscriber.lock.unlock();
+        }
+        if (overflow) {
+            // The client stopped reading; it resynchronises from a snapshot when it reconnects
+            overflowed.incrementAndGet();
+            close(subscriber);
+        } else if (schedule) {
+            try {
+                executor.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                overflowed.incrementAndGet();
+                close(subscriber);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+            subscriber.lock.lock();
+            try {
+                event = subscriber.buffer.poll();
+                if (event == null) {
+                    subscriber.draining = false;
+                    return;
+                }
+            } finally {
+                subscriber.lock.unlock();
+            }
+            try {
+                subscriber.emitter.send(event);
+                sent.incrementAndGet();
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the emitter's error callback may not fire outside a request
+                remove(subscriber);
+                return;
+            }
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            try {
+                subscriber.emitter.complete();
+            } catch (IllegalStateException e) {
+                // The container already finished the request, e.g. while shutting down
+            }
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        connections.decrementAndGet();
+        detach(subscriber);
+        subscriber.lock.lock();
+        try {
+            subscriber.buffer.clear();
+        } finally {
+            subscriber.lock.unlock();
+        }
+        return true;
+    }
+
+    private void detach(Subscriber subscriber) {
+        Long userId = subscriber.userId;
+        if (userId == null) {
+            return;
+        }
+        channels.computeIfPresent(userId, (id, channel) -> {
+            channel.subscribers.remove(subscriber);
+            return channel.subscribers.isEmpty() ? null : channel;
+        });
+    }
+
+    private static Map<String, Object> diff(DashboardService.DashboardStats previous, DashboardService.DashboardStats current) {
+        Map<String, Object> figures = toMap(current);
+        if (previous != null) {
+            Map<String, Object> before = toMap(previous);
+            figures.entrySet().removeIf(entry -> Objects.equals(before.get(entry.getKey()), entry.getValue()));
+        }
+        return figures;
+    }
+
+    // Keys match the dashboard's model attributes and its data-stat markers
+    private static Map<String, Object> toMap(DashboardService.DashboardStats stats) {
+        Map<String, Object> figures = new LinkedHashMap<>();
+        figures.put("totalRevenuePaid", stats.totalRevenuePaid());
+        figures.put("totalRevenueUnpaid", stats.totalRevenueUnpaid());
+        figures.put("totalDailyRevenue", stats.totalDailyRevenue());
+        figures.put("totalInvoices", stats.totalInvoices());
+        figures.put("paidCount", stats.paidCount());
+        figures.put("pendingCount", stats.pendingCount());
+        figures.put("overdueCount", stats.overdueCount());
+        figures.put("totalReceipts", stats.totalReceipts());
+        return figures;
+    }
+
+    private static final class UserChannel {
+        final User user;
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        final AtomicBoolean refreshPending = new AtomicBoolean();
+        // Guarded by lock: the figures every synced stream of this user has been sent
+        final ReentrantLock lock = new ReentrantLock();
+        DashboardService.DashboardStats last;
+
+        UserChannel(User user) {
+            this.user = user;
+        }
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        // Set once the user is looked up
+        volatile Long userId;
+        final AtomicBoolean closed = new AtomicBoolean();
+        // Guarded by lock
+        final ReentrantLock lock = new ReentrantLock();
+        final ArrayDeque<SseEmitter.SseEventBuilder> buffer = new ArrayDeque<>(4);
+        boolean draining;
+        // Set once the snapshot is queued; written under the channel lock
+        volatile boolean synced;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        boolean isIdle() {
+            lock.lock();
+            try {
+                return !draining && buffer.isEmpty();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
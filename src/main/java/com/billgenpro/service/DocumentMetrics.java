@@ -0,0 +1,172 @@
+package com.billgenpro.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.billgenpro.event.DocumentType;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timers and output-size counters for generated documents.
+ *
+ * Every PDF, Excel export and email body is timed with its document type, template
+ * number and a size bucket as tags, so a slow template can be told apart from a
+ * large document. The produced bytes are counted per format.
+ *
+ * Meters are looked up once per tag combination and kept in local maps or fields; building
+ * a meter id on every call costs more than the recording itself.
+ */
+@Component
+public class DocumentMetrics {
+
+    @FunctionalInterface
+    public interface Generation<E extends Exception> {
+        byte[] generate() throws E;
+    }
+
+    // Simple, Modern and Business
+    private static final int MAX_TEMPLATE_NUMBER = 3;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<BytesKey, Counter> byteCounters = new ConcurrentHashMap<>();
+    private volatile EmailBatchMeters emailBatchMeters;
+
+    public <E extends Exception> byte[] recordPdf(DocumentType type, Integer templateNumber, int itemCount,
+                                                  Generation<E> generation) throws E {
+        return record("billgenpro.pdf.render", "pdf", type, templateTag(templateNumber), "items", sizeBucket(itemCount),
+                generation);
+    }
+
+    public <E extends Exception> byte[] recordExcel(DocumentType type, int rowCount, Generation<E> generation) throws E {
+        return record("billgenpro.excel.export", "xlsx", type, null, "rows", sizeBucket(rowCount), generation);
+    }
+
+    public String recordEmailBody(DocumentType type, Integer templateNumber, Supplier<String> render) {
+        long start = System.nanoTime();
+        String body = render.get();
+        timer(new TimerKey("billgenpro.email.render", type, templateTag(templateNumber), null, null, null))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        outputBytes("email", type).increment(body.getBytes(StandardCharsets.UTF_8).length);
+        return body;
+    }
+
+    /**
+     * One SMTP session that sent {@code messageCount} messages, {@code failureCount} of which failed.
+     */
+    public void recordEmailBatch(int messageCount, int failureCount, long elapsedNanos) {
+        EmailBatchMeters meters = emailBatchMeters();
+        meters.send().record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meters.sent().increment(messageCount - failureCount);
+        meters.failed().increment(failureCount);
+    }
+
+    // The template tag is null for documents that have no template (Excel exports)
+    private <E extends Exception> byte[] record(String timerName, String format, DocumentType type, String template,
+                                                String sizeTag, String sizeBucket, Generation<E> generation) throws E {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            byte[] bytes = generation.generate();
+            outcome = "success";
+            outputBytes(format, type).increment(bytes.length);
+            return bytes;
+        } finally {
+            timer(new TimerKey(timerName, type, template, sizeTag, sizeBucket, outcome))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(TimerKey key) {
+        Timer timer = timers.get(key);
+        if (timer != null) {
+            return timer;
+        }
+        return timers.computeIfAbsent(key, k -> {
+            Timer.Builder builder = Timer.builder(k.name())
+                    .tag("type", tag(k.type()))
+                    .publishPercentileHistogram();
+            if (k.template() != null) {
+                builder.tag("template", k.template());
+            }
+            if (k.sizeTag() != null) {
+                builder.tag(k.sizeTag(), k.sizeBucket());
+            }
+            if (k.outcome() != null) {
+                builder.tag("outcome", k.outcome());
+            }
+            return builder.register(meterRegistry);
+        });
+    }
+
+    private EmailBatchMeters emailBatchMeters() {
+        EmailBatchMeters meters = emailBatchMeters;
+        if (meters == null) {
+            // Two threads racing here get the same meters back from the registry
+            meters = new EmailBatchMeters(
+                    Timer.builder("billgenpro.email.send").publishPercentileHistogram().register(meterRegistry),
+                    Counter.builder("billgenpro.email.messages").tag("outcome", "sent").register(meterRegistry),
+                    Counter.builder("billgenpro.email.messages").tag("outcome", "failed").register(meterRegistry));
+            emailBatchMeters = meters;
+        }
+        return meters;
+    }
+
+    private Counter outputBytes(String format, DocumentType type) {
+        BytesKey key = new BytesKey(format, type);
+        Counter counter = byteCounters.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        return byteCounters.computeIfAbsent(key, k -> Counter.builder("billgenpro.output.bytes")
+                .baseUnit("bytes")
+                .tags("format", k.format(), "type", tag(k.type()))
+                .register(meterRegistry));
+    }
+
+    private static String tag(DocumentType type) {
+        return type.name().toLowerCase();
+    }
+
+    // The template number is posted with the form unchecked (and may be missing); only the styles
+    // the forms offer get their own tag, so a client cannot create timers (each with a histogram)
+    // at will, and every timer of a name carries the same tag keys
+    static String templateTag(Integer templateNumber) {
+        boolean offered = templateNumber != null && templateNumber >= 1 && templateNumber <= MAX_TEMPLATE_NUMBER;
+        return offered ? templateNumber.toString() : "other";
+    }
+
+    // Coarse, fixed buckets keep the tag cardinality bounded
+    static String sizeBucket(int count) {
+        if (count <= 1) {
+            return count <= 0 ? "0" : "1";
+        } else if (count <= 10) {
+            return "2-10";
+        } else if (count <= 100) {
+            return "11-100";
+        } else if (count <= 1_000) {
+            return "101-1000";
+        } else if (count <= 10_000) {
+            return "1001-10000";
+        }
+        return "10000+";
+    }
+
+    private record TimerKey(String name, DocumentType type, String template,
+                            String sizeTag, String sizeBucket, String outcome) {}
+
+    private record BytesKey(String format, DocumentType type) {}
+
+    private record EmailBatchMeters(Timer send, Counter sent, Counter failed) {}
+}
@@ -0,0 +1,87 @@
+package com.billgenpro.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.billgenpro.event.DocumentChangedEvent;
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.Receipt;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.InvoiceRepository;
+
+/**
+ * Resolves the company name and colors used in outgoing emails. A user's branding is
+ * taken from their most recently created invoice and cached until they change an
+ * invoice; values set on the document being sent take precedence. Receipts have no
+ * color fields of their own, so receipt emails rely on the cached user branding.
+ */
+@Service
+public class EmailBrandingService {
+
+    public record Branding(String companyName, String primaryColor, String secondaryColor) {}
+
+    private static final Branding DEFAULT_BRANDING = new Branding("Billgen Pro", "#6366f1", "#0ea5e9");
+
+    // Colors are written into the email's CSS unescaped, so only plain hex values are accepted
+    private static final Pattern HEX_COLOR = Pattern.compile("^#[0-9a-fA-F]{3}([0-9a-fA-F]{3})?$");
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    private final ConcurrentHashMap<Long, Branding> userBranding = new ConcurrentHashMap<>();
+
+    public Branding forInvoice(Invoice invoice) {
+        Branding base = forUser(invoice.getUser());
+        return new Branding(
+                companyNameOr(invoice.getCompany() != null ? invoice.getCompany().getName() : null, base.companyName()),
+                colorOr(invoice.getPrimaryColor(), base.primaryColor()),
+                colorOr(invoice.getSecondaryColor(), base.secondaryColor()));
+    }
+
+    public Branding forReceipt(Receipt receipt) {
+        Branding base = forUser(receipt.getUser());
+        return new Branding(
+                companyNameOr(receipt.getCompany() != null ? receipt.getCompany().getName() : null, base.companyName()),
+                base.primaryColor(),
+                base.secondaryColor());
+    }
+
+    private Branding forUser(User user) {
+        if (user == null || user.getId() == null) {
+            return DEFAULT_BRANDING;
+        }
+        Branding cached = userBranding.get(user.getId());
+        if (cached == null) {
+            cached = invoiceRepository.findFirstByUserIdOrderByIdDesc(user.getId())
+                    .map(latest -> new Branding(
+                            companyNameOr(latest.getCompany() != null ? latest.getCompany().getName() : null,
+                                    DEFAULT_BRANDING.companyName()),
+                            colorOr(latest.getPrimaryColor(), DEFAULT_BRANDING.primaryColor()),
+                            colorOr(latest.getSecondaryColor(), DEFAULT_BRANDING.secondaryColor())))
+                    .orElse(DEFAULT_BRANDING);
+            userBranding.put(user.getId(), cached);
+        }
+        return cached;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        if (event.getDocumentType() == DocumentType.INVOICE && event.getUserId() != null) {
+            userBranding.remove(event.getUserId());
+        }
+    }
+
+    private static String companyNameOr(String companyName, String fallback) {
+        return companyName != null && !companyName.isBlank() ? companyName : fallback;
+    }
+
+    private static String colorOr(String color, String fallback) {
+        return color != null && HEX_COLOR.matcher(color).matches() ? color : fallback;
+    }
+}
@@ -0,0 +1,104 @@
+package com.billgenpro.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.EmailOutboxMessage;
+import com.billgenpro.model.EmailStatus;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.EmailOutboxRepository;
+
+/**
+ * Persistent queue of outgoing document emails. Requests only insert a row here;
+ * {@link EmailOutboxWorker} claims due rows in batches, sends them and records the
+ * outcome. Failed sends are retried with exponential backoff until the attempt
+ * limit is reached.
+ */
+@Service
+@Transactional
+public class EmailOutboxService {
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Value("${billgenpro.mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${billgenpro.mail.outbox.backoff-base-seconds:30}")
+    private long backoffBaseSeconds;
+
+    @Value("${billgenpro.mail.outbox.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    public EmailOutboxMessage enqueue(DocumentType documentType, Long documentId, User user, String recipientEmail) {
+        return emailOutboxRepository.save(new EmailOutboxMessage(documentType, documentId, user, recipientEmail));
+    }
+
+    public List<EmailOutboxMessage> claimDueBatch(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> claimed = new ArrayList<>();
+        for (Long id : emailOutboxRepository.findDueIds(now, PageRequest.of(0, batchSize))) {
+            if (emailOutboxRepository.claim(id, now) == 1) {
+                claimed.add(id);
+            }
+        }
+        return claimed.isEmpty() ? List.of() : emailOutboxRepository.findAllById(claimed);
+    }
+
+    public void markSent(Collection<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        for (EmailOutboxMessage message : emailOutboxRepository.findAllById(ids)) {
+            message.setStatus(EmailStatus.SENT);
+            message.setAttempts(message.getAttempts() + 1);
+            message.setSentAt(now);
+            message.setLastError(null);
+        }
+    }
+
+    public void markFailed(Long id, String error, boolean retryable) {
+        emailOutboxRepository.findById(id).ifPresent(message -> {
+            int attempts = message.getAttempts() + 1;
+            message.setAttempts(attempts);
+            message.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (!retryable || attempts >= maxAttempts) {
+                message.setStatus(EmailStatus.FAILED);
+            } else {
+                message.setStatus(EmailStatus.QUEUED);
+                message.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+            }
+        });
+    }
+
+    /**
+     * Returns rows stuck in SENDING (for example after a crash mid-batch) to the queue.
+     */
+    public int releaseStaleClaims(Duration olderThan) {
+        return emailOutboxRepository.releaseStaleClaims(LocalDateTime.now().minus(olderThan));
+    }
+
+    @Transactional(readOnly = true)
+    public List<EmailOutboxMessage> getRecentDeliveries(DocumentType documentType, Long documentId) {
+        return emailOutboxRepository.findRecentForDocument(documentType, documentId, PageRequest.of(0, 5));
+    }
+
+    @Transactional(readOnly = true)
+    public long getQueuedCount() {
+        return emailOutboxRepository.countByStatus(EmailStatus.QUEUED);
+    }
+
+    private Duration backoff(int attempts) {
+        // 30s, 60s, 120s, ... capped at backoffMaxSeconds
+        long delay = backoffBaseSeconds << Math.min(attempts - 1, 20);
+        return Duration.ofSeconds(Math.min(delay, backoffMaxSeconds));
+    }
+}
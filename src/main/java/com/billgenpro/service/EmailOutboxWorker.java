@@ -0,0 +1,169 @@
+package com.billgenpro.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.billgenpro.config.WorkerThreads;
+import com.billgenpro.model.EmailOutboxMessage;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.Receipt;
+import com.billgenpro.repository.InvoiceRepository;
+import com.billgenpro.repository.ReceiptRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Drains the email outbox on a bounded pool. Each worker claims a batch of due
+ * messages and sends the whole batch over one SMTP connection.
+ */
+@Component
+public class EmailOutboxWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxWorker.class);
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private BatchMailSender batchMailSender;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Value("${billgenpro.mail.outbox.workers:2}")
+    private int workers;
+
+    @Value("${billgenpro.mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    private ThreadPoolExecutor executor;
+    private Semaphore permits;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        permits = new Semaphore(workers);
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                // Bounded in practice by the permits: at most one batch per worker is ever submitted
+                new LinkedBlockingQueue<>(), workerThreads.factory("email-outbox-"));
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${billgenpro.mail.outbox.poll-interval-ms:2000}")
+    public void poll() {
+        if (!batchMailSender.isConfigured()) {
+            return;
+        }
+        // Only claim as many batches as there are idle workers; the rest stay queued in the table
+        while (permits.tryAcquire()) {
+            List<EmailOutboxMessage> batch;
+            try {
+                batch = emailOutboxService.claimDueBatch(batchSize);
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            if (batch.isEmpty()) {
+                permits.release();
+                return;
+            }
+            executor.execute(() -> {
+                try {
+                    deliver(batch);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${billgenpro.mail.outbox.stale-check-interval-ms:60000}")
+    public void releaseStaleClaims() {
+        int released = emailOutboxService.releaseStaleClaims(Duration.ofMinutes(10));
+        if (released > 0) {
+            logger.warn("Returned {} stale outbox messages to the queue", released);
+        }
+    }
+
+    private void deliver(List<EmailOutboxMessage> batch) {
+        Map<MimeMessage, EmailOutboxMessage> prepared = new IdentityHashMap<>();
+        for (EmailOutboxMessage outboxMessage : batch) {
+            try {
+                prepared.put(prepare(outboxMessage), outboxMessage);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                emailOutboxService.markFailed(outboxMessage.getId(), "Failed to prepare email: " + e.getMessage(), false);
+            }
+        }
+
+        Map<MimeMessage, Exception> failures = batchMailSender.send(new ArrayList<>(prepared.keySet()));
+
+        List<Long> sentIds = new ArrayList<>();
+        prepared.forEach((mimeMessage, outboxMessage) -> {
+            Exception failure = failures.get(mimeMessage);
+            if (failure == null) {
+                sentIds.add(outboxMessage.getId());
+            } else {
+                failed.incrementAndGet();
+                emailOutboxService.markFailed(outboxMessage.getId(), failure.getMessage(), true);
+            }
+        });
+        if (!sentIds.isEmpty()) {
+            emailOutboxService.markSent(sentIds);
+            sent.addAndGet(sentIds.size());
+        }
+    }
+
+    private MimeMessage prepare(EmailOutboxMessage outboxMessage) throws Exception {
+        switch (outboxMessage.getDocumentType()) {
+            case INVOICE:
+                Invoice invoice = invoiceRepository.findByIdWithItems(outboxMessage.getDocumentId())
+                        .orElseThrow(() -> new IllegalStateException("Invoice no longer exists"));
+                return emailService.createInvoiceMessage(invoice, outboxMessage.getRecipientEmail());
+            case RECEIPT:
+                Receipt receipt = receiptRepository.findByIdWithItems(outboxMessage.getDocumentId())
+                        .orElseThrow(() -> new IllegalStateException("Receipt no longer exists"));
+                return emailService.createReceiptMessage(receipt, outboxMessage.getRecipientEmail());
+            default:
+                throw new IllegalStateException("Unsupported document type: " + outboxMessage.getDocumentType());
+        }
+    }
+
+    public long getSentCount() { return sent.get(); }
+
+    public long getFailedCount() { return failed.get(); }
+
+    public int getBusyWorkers() { return workers - permits.availablePermits(); }
+}
@@ -1,9 +1,13 @@
 package com.billgenpro.service;
 
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.AgingReport;
 import com.billgenpro.model.Invoice;
+import com.billgenpro.model.Money;
 import com.billgenpro.model.Receipt;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
@@ -16,7 +20,22 @@ public class ExcelService {
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
+    @Autowired
+    private DocumentMetrics documentMetrics;
+
     public byte[] generateReceiptsExcel(List<Receipt> receipts) throws IOException {
+        return documentMetrics.recordExcel(DocumentType.RECEIPT, receipts.size(), () -> writeReceiptsExcel(receipts));
+    }
+
+    public byte[] generateInvoicesExcel(List<Invoice> invoices) throws IOException {
+        return documentMetrics.recordExcel(DocumentType.INVOICE, invoices.size(), () -> writeInvoicesExcel(invoices));
+    }
+
+    public byte[] generateAgingExcel(AgingReport report) throws IOException {
+        return documentMetrics.recordExcel(DocumentType.INVOICE, report.getRows().size(), () -> writeAgingExcel(report));
+    }
+
+    private byte[] writeReceiptsExcel(List<Receipt> receipts) throws IOException {
         try (Workbook workbook = new XSSFWorkbook()) {
             Sheet sheet = workbook.createSheet("Receipts");
 
@@ -46,12 +65,14 @@ public class ExcelService {
                     dataStyle);
                 createCell(row, colNum++, receipt.getBillTo() != null ? receipt.getBillTo() : "", dataStyle);
                 createCell(row, colNum++, receipt.getCashier() != null ? receipt.getCashier() : "", dataStyle);
-                createCell(row, colNum++, receipt.getSubTotal(), currencyStyle);
+                long subTotal = receipt.getSubTotalMinor();
+                long grandTotal = receipt.getGrandTotalMinor();
+                createCell(row, colNum++, Money.toDouble(subTotal), currencyStyle);
                 createCell(row, colNum++, 
                     receipt.getTaxPercentage() != null ? receipt.getTaxPercentage().doubleValue() : 0.0, 
                     dataStyle);
-                createCell(row, colNum++, receipt.getTaxAmount(), currencyStyle);
-                createCell(row, colNum++, receipt.getGrandTotal(), currencyStyle);
+                createCell(row, colNum++, Money.toDouble(grandTotal - subTotal), currencyStyle);
+                createCell(row, colNum++, Money.toDouble(grandTotal), currencyStyle);
             }
 
             // Auto-size columns
@@ -66,7 +87,7 @@ public class ExcelService {
         }
     }
 
-    public byte[] generateInvoicesExcel(List<Invoice> invoices) throws IOException {
+    private byte[] writeInvoicesExcel(List<Invoice> invoices) throws IOException {
         try (Workbook workbook = new XSSFWorkbook()) {
             Sheet sheet = workbook.createSheet("Invoices");
 
@@ -104,12 +125,14 @@ public class ExcelService {
                 createCell(row, colNum++, 
                     invoice.getStatus() != null ? invoice.getStatus().name() : "", 
                     dataStyle);
-                createCell(row, colNum++, invoice.getSubTotal(), currencyStyle);
+                long subTotal = invoice.getSubTotalMinor();
+                long grandTotal = invoice.getGrandTotalMinor();
+                createCell(row, colNum++, Money.toDouble(subTotal), currencyStyle);
                 createCell(row, colNum++, 
                     invoice.getTaxPercentage() != null ? invoice.getTaxPercentage().doubleValue() : 0.0, 
                     dataStyle);
-                createCell(row, colNum++, invoice.getTaxAmount(), currencyStyle);
-                createCell(row, colNum++, invoice.getGrandTotal(), currencyStyle);
+                createCell(row, colNum++, Money.toDouble(grandTotal - subTotal), currencyStyle);
+                createCell(row, colNum++, Money.toDouble(grandTotal), currencyStyle);
             }
 
             // Auto-size columns
@@ -124,6 +147,53 @@ public class ExcelService {
         }
     }
 
+    private byte[] writeAgingExcel(AgingReport report) throws IOException {
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("Aging " + report.getAsOf().format(DateTimeFormatter.ISO_DATE));
+
+            CellStyle headerStyle = createHeaderStyle(workbook);
+            CellStyle dataStyle = createDataStyle(workbook);
+            CellStyle currencyStyle = createCurrencyStyle(workbook);
+
+            Row headerRow = sheet.createRow(0);
+            int columns = AgingReport.BUCKET_LABELS.length + 3;
+            String[] headers = new String[columns];
+            headers[0] = "Customer";
+            headers[1] = "Invoices";
+            System.arraycopy(AgingReport.BUCKET_LABELS, 0, headers, 2, AgingReport.BUCKET_LABELS.length);
+            headers[columns - 1] = "Total";
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+            }
+
+            int rowNum = 1;
+            for (AgingReport.Row agingRow : report.getRows()) {
+                writeAgingRow(sheet.createRow(rowNum++), agingRow, dataStyle, currencyStyle);
+            }
+            writeAgingRow(sheet.createRow(rowNum), report.getTotal(), headerStyle, currencyStyle);
+
+            for (int i = 0; i < headers.length; i++) {
+                sheet.autoSizeColumn(i);
+            }
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            workbook.write(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+
+    private void writeAgingRow(Row row, AgingReport.Row agingRow, CellStyle labelStyle, CellStyle currencyStyle) {
+        int colNum = 0;
+        createCell(row, colNum++, agingRow.getCustomerName(), labelStyle);
+        createCell(row, colNum++, agingRow.getInvoiceCount(), labelStyle);
+        for (int b = 0; b < AgingReport.BUCKET_LABELS.length; b++) {
+            createCell(row, colNum++, Money.toDouble(agingRow.getBucketMinor(b)), currencyStyle);
+        }
+        createCell(row, colNum, Money.toDouble(agingRow.getTotalMinor()), currencyStyle);
+    }
+
     private CellStyle createHeaderStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         Font font = workbook.createFont();
@@ -170,11 +240,5 @@ public class ExcelService {
         cell.setCellValue(value);
         cell.setCellStyle(style);
     }
-
-    private void createCell(Row row, int column, java.math.BigDecimal value, CellStyle style) {
-        Cell cell = row.createCell(column);
-        cell.setCellValue(value != null ? value.doubleValue() : 0.0);
-        cell.setCellStyle(style);
-    }
 }
 
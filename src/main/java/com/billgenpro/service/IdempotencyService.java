@@ -0,0 +1,163 @@
+package com.billgenpro.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.billgenpro.config.BoundedLruCache;
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.IdempotencyKey;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.IdempotencyKeyRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Client-supplied idempotency keys for invoice and receipt saves. A save that carries a
+ * key stores it in {@code idempotency_keys} in its own transaction, so the key is taken
+ * exactly when the save commits; a retry with the same key finds it and gets the first
+ * save's result without running again. Two attempts racing with the same key both save,
+ * but the unique index lets only one of them commit, so no lock is held across a save.
+ *
+ * Keys that were seen recently are answered from a bounded LRU map in front of the table,
+ * filled only after commit so it never holds a key whose save was rolled back.
+ */
+@Service
+public class IdempotencyService {
+
+    /** The header API clients send the key in; forms post it as {@code idempotencyKey}. */
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    // UUIDs, ULIDs and the like; the column holds 64 characters
+    private static final Pattern VALID_KEY = Pattern.compile("[A-Za-z0-9_.:-]{1,64}");
+
+    private record CacheKey(Long userId, DocumentType documentType, String key) {}
+
+    private record CachedResult(Long documentId, Instant expiresAt) {}
+
+    // Published inside the saving transaction; cached once it commits
+    record Claimed(CacheKey cacheKey, CachedResult result) {}
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${billgenpro.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${billgenpro.idempotency.cache-max-entries:10000}")
+    private int cacheMaxEntries;
+
+    private BoundedLruCache<CacheKey, CachedResult> cache;
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong claimed = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        cache = new BoundedLruCache<>(cacheMaxEntries);
+    }
+
+    public static String newKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * The key a request carries: the header if there is one, else the form field; null
+     * when it has neither.
+     *
+     * @throws IllegalArgumentException if the key is longer than 64 characters or has
+     *         characters other than letters, digits and {@code _ . : -}
+     */
+    public static String resolveKey(String header, String formField) {
+        String key = header != null && !header.isBlank() ? header.trim()
+                : formField != null && !formField.isBlank() ? formField.trim() : null;
+        if (key != null && !VALID_KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid " + HEADER + ": use up to 64 letters, digits, '_', '.', ':' or '-'");
+        }
+        return key;
+    }
+
+    /**
+     * The id of the document an earlier save with this key produced, if there was one.
+     */
+    public Optional<Long> findResult(DocumentType documentType, User user, String key) {
+        CacheKey cacheKey = new CacheKey(user.getId(), documentType, key);
+        Instant now = Instant.now();
+        CachedResult cached = cache.get(cacheKey);
+        if (cached != null && cached.expiresAt().isAfter(now)) {
+            cacheHits.incrementAndGet();
+            return Optional.of(cached.documentId());
+        }
+        Optional<IdempotencyKey> stored = idempotencyKeyRepository.findByKey(user.getId(), documentType, key);
+        if (stored.isEmpty()) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        storeHits.incrementAndGet();
+        cache.put(cacheKey, new CachedResult(stored.get().getDocumentId(), stored.get().getExpiresAt()));
+        return Optional.of(stored.get().getDocumentId());
+    }
+
+    /**
+     * Takes the key for a document saved in the current transaction. If another save
+     * already took it, the insert fails with a
+     * {@link org.springframework.dao.DataIntegrityViolationException} and that save's
+     * transaction rolls back; the caller then answers with the other save's result.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void claim(DocumentType documentType, User user, String key, Long documentId) {
+        Instant expiresAt = Instant.now().plus(Duration.ofHours(ttlHours));
+        idempotencyKeyRepository.save(new IdempotencyKey(user, documentType, key, documentId, expiresAt));
+        eventPublisher.publishEvent(new Claimed(new CacheKey(user.getId(), documentType, key),
+                new CachedResult(documentId, expiresAt)));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onClaimed(Claimed event) {
+        claimed.incrementAndGet();
+        cache.put(event.cacheKey(), event.result());
+    }
+
+    @Scheduled(fixedDelayString = "${billgenpro.idempotency.purge-ms:3600000}",
+               initialDelayString = "${billgenpro.idempotency.purge-ms:3600000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        int purged = idempotencyKeyRepository.deleteExpired(now);
+        cache.removeIf(result -> !result.expiresAt().isAfter(now));
+        if (purged > 0) {
+            logger.debug("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    public long getCacheHitCount() { return cacheHits.get(); }
+
+    public long getStoreHitCount() { return storeHits.get(); }
+
+    public long getMissCount() { return misses.get(); }
+
+    public long getClaimedCount() { return claimed.get(); }
+
+    public int getCacheSize() { return cache.size(); }
+}
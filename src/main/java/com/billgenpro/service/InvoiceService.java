@@ -1,20 +1,34 @@
 package com.billgenpro.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.billgenpro.event.DocumentChangedEvent;
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.DocumentRevision;
 import com.billgenpro.model.Invoice;
 import com.billgenpro.model.InvoiceItem;
 import com.billgenpro.model.InvoiceStatus;
+import com.billgenpro.model.Money;
 import com.billgenpro.model.User;
 import com.billgenpro.repository.InvoiceRepository;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
 
 @Service
 @Transactional
@@ -23,23 +37,59 @@ public class InvoiceService {
     @Autowired
     private InvoiceRepository invoiceRepository;
 
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private AuditService auditService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private UserDataVersionService userDataVersionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
     public List<Invoice> getAllInvoices() {
         return invoiceRepository.findAllOrderByDateDesc();
     }
 
+    // Read-only methods skip dirty checking and the flush on commit. The flush would also take
+    // still-lazy item collections out of Hibernate's batch-fetch queue before the view reads them
+    @Transactional(readOnly = true)
     public List<Invoice> getAllInvoicesByUser(User user) {
         return invoiceRepository.findByUserOrderByDateDesc(user);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Invoice> getInvoiceById(Long id) {
         return invoiceRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Invoice> getInvoiceByIdAndUser(Long id, User user) {
         return invoiceRepository.findByIdAndUserWithItems(id, user);
     }
 
     public Invoice saveInvoice(Invoice invoice, User user) {
+        return saveInvoice(invoice, user, null);
+    }
+
+    /**
+     * Saves the invoice, rejecting an edit of an out-of-date version. With an idempotency
+     * key, also takes the key for the saved invoice in the same transaction; see
+     * {@link IdempotencyService#claim}.
+     */
+    public Invoice saveInvoice(Invoice invoice, User user, String idempotencyKey) {
         // Associate invoice with user
         invoice.setUser(user);
         
@@ -47,6 +97,16 @@ public class InvoiceService {
         if (invoice.getId() != null) {
             Invoice existingInvoice = invoiceRepository.findByIdAndUserWithItems(invoice.getId(), user)
                     .orElseThrow(() -> new RuntimeException("Invoice not found or you don't have permission to access it"));
+            // The form posts back the version it was loaded at; a different one means someone else saved since.
+            // Edits that race past this check are caught by the versioned UPDATE when the transaction flushes
+            if (invoice.getVersion() != null && !invoice.getVersion().equals(existingInvoice.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Invoice.class, invoice.getId());
+            }
+            // Bump the version on commit even when only line items change, which leaves the invoice row itself clean
+            entityManager.lock(existingInvoice, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            long version = existingInvoice.getVersion() + 1;
+            CustomerService.Contribution before = CustomerService.Contribution.of(existingInvoice);
+            AuditService.Snapshot previous = AuditService.snapshotOf(existingInvoice);
             // Clear existing items - orphanRemoval will handle deletion
             existingInvoice.getItems().clear();
             // Set invoice reference for all new items
@@ -62,11 +122,13 @@ public class InvoiceService {
             existingInvoice.setPaymentDate(invoice.getPaymentDate());
             existingInvoice.setCompany(invoice.getCompany());
             existingInvoice.setBillTo(invoice.getBillTo());
+            existingInvoice.setCustomer(customerService.resolve(user, invoice.getBillTo()));
             existingInvoice.setShipTo(invoice.getShipTo());
             existingInvoice.setTaxPercentage(invoice.getTaxPercentage());
             existingInvoice.setNotes(invoice.getNotes());
             existingInvoice.setTemplateNumber(invoice.getTemplateNumber());
             existingInvoice.setLogoUrl(invoice.getLogoUrl());
+            existingInvoice.setLogoHash(invoice.getLogoHash());
             existingInvoice.setPrimaryColor(invoice.getPrimaryColor());
             existingInvoice.setSecondaryColor(invoice.getSecondaryColor());
             // Auto-update status based on payment date (only if payment date is set)
@@ -80,7 +142,14 @@ public class InvoiceService {
             }
             // Ensure user is set (security check)
             existingInvoice.setUser(user);
-            return invoiceRepository.save(existingInvoice);
+            existingInvoice.refreshStoredTotal();
+            Invoice saved = invoiceRepository.save(existingInvoice);
+            claimIdempotencyKey(idempotencyKey, saved, user);
+            customerService.applyInvoiceChange(before, CustomerService.Contribution.of(saved));
+            auditService.record(DocumentType.INVOICE, saved.getId(), version, user, DocumentRevision.Action.UPDATED,
+                    previous, AuditService.snapshotOf(saved));
+            publishChange(saved, user, DocumentChangedEvent.ChangeType.SAVED);
+            return saved;
         } else {
             // New invoice - just set invoice reference for all items
             if (invoice.getItems() != null) {
@@ -97,20 +166,50 @@ public class InvoiceService {
             } else if (invoice.getStatus() == null) {
                 invoice.setStatus(InvoiceStatus.PENDING);
             }
-            return invoiceRepository.save(invoice);
+            // Always resolved here, never taken from the submitted form
+            invoice.setCustomer(customerService.resolve(user, invoice.getBillTo()));
+            // A version posted with a new invoice would make the repository merge instead of persist
+            invoice.setVersion(null);
+            Invoice saved = invoiceRepository.save(invoice);
+            claimIdempotencyKey(idempotencyKey, saved, user);
+            customerService.applyInvoiceChange(CustomerService.Contribution.NONE, CustomerService.Contribution.of(saved));
+            auditService.record(DocumentType.INVOICE, saved.getId(), saved.getVersion(), user,
+                    DocumentRevision.Action.CREATED, null, AuditService.snapshotOf(saved));
+            publishChange(saved, user, DocumentChangedEvent.ChangeType.SAVED);
+            return saved;
         }
     }
 
     public void deleteInvoice(Long id, User user) {
         Invoice invoice = invoiceRepository.findByIdAndUserWithItems(id, user)
                 .orElseThrow(() -> new RuntimeException("Invoice not found or you don't have permission to delete it"));
+        // The versioned DELETE fails if anyone saved since, so nothing can come after this version
+        long version = invoice.getVersion() + 1;
         invoiceRepository.delete(invoice);
+        customerService.applyInvoiceChange(CustomerService.Contribution.of(invoice), CustomerService.Contribution.NONE);
+        auditService.record(DocumentType.INVOICE, invoice.getId(), version, user, DocumentRevision.Action.DELETED,
+                AuditService.snapshotOf(invoice), null);
+        publishChange(invoice, user, DocumentChangedEvent.ChangeType.DELETED);
+    }
+
+    private void claimIdempotencyKey(String idempotencyKey, Invoice saved, User user) {
+        if (idempotencyKey != null) {
+            idempotencyService.claim(DocumentType.INVOICE, user, idempotencyKey, saved.getId());
+        }
     }
 
+    // Last in every write: the data-version bump holds the user's row lock until commit
+    private void publishChange(Invoice invoice, User user, DocumentChangedEvent.ChangeType changeType) {
+        userDataVersionService.bump(user.getId());
+        eventPublisher.publishEvent(new DocumentChangedEvent(DocumentType.INVOICE, invoice.getId(), user.getId(), changeType));
+    }
+
+    @Transactional(readOnly = true)
     public List<Invoice> searchInvoices(String query) {
         return invoiceRepository.findByNumberContainingIgnoreCase(query);
     }
 
+    @Transactional(readOnly = true)
     public List<Invoice> searchInvoicesByUser(String query, User user) {
         return invoiceRepository.findByUserAndNumberContainingIgnoreCase(user, query);
     }
@@ -127,7 +226,8 @@ public class InvoiceService {
         String number;
         do {
             number = generateRandomInvoiceNumber();
-        } while (invoiceRepository.existsByNumberAndUser(number, user));
+        } while (invoiceRepository.existsByNumberAndUser(number, user)
+                || archiveService.isNumberArchived(DocumentType.INVOICE, number, user));
         return number;
     }
 
@@ -153,22 +253,31 @@ public class InvoiceService {
     }
 
     // Filter methods
+    @Transactional(readOnly = true)
     public List<Invoice> filterInvoicesByUser(User user, LocalDate startDate, LocalDate endDate, 
                                              String clientName, InvoiceStatus status) {
-        return invoiceRepository.findByUserWithFilters(user, startDate, endDate, clientName, status);
+        if (clientName == null || clientName.isBlank()) {
+            return invoiceRepository.findByUserWithFilters(user, startDate, endDate, status);
+        }
+        // Match the name against the user's customers, then seek invoices by customer id
+        List<Long> customerIds = customerService.findCustomerIds(user, clientName);
+        if (customerIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return invoiceRepository.findByUserAndCustomersWithFilters(user, customerIds, startDate, endDate, status);
     }
 
+    @Transactional(readOnly = true)
     public BigDecimal getTotalRevenueByUser(User user) {
-        List<Invoice> paidInvoices = invoiceRepository.findPaidInvoicesByUserWithItems(user);
-        return paidInvoices.stream()
-                .map(Invoice::getGrandTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return Money.toBigDecimal(invoiceRepository.sumPaidTotalsByUser(user));
     }
 
+    @Transactional(readOnly = true)
     public Long getInvoiceCountByUser(User user) {
         return invoiceRepository.countByUser(user);
     }
 
+    @Transactional(readOnly = true)
     public Long getInvoiceCountByUserAndStatus(User user, InvoiceStatus status) {
         return invoiceRepository.countByUserAndStatus(user, status);
     }
@@ -176,38 +285,56 @@ public class InvoiceService {
     public void updateInvoiceStatus(Long id, User user, InvoiceStatus status) {
         Invoice invoice = invoiceRepository.findByIdAndUserWithItems(id, user)
                 .orElseThrow(() -> new RuntimeException("Invoice not found or you don't have permission to update it"));
+        // Bump the version even if the status is unchanged, so every audited write has its own
+        entityManager.lock(invoice, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        long version = invoice.getVersion() + 1;
+        CustomerService.Contribution before = CustomerService.Contribution.of(invoice);
+        AuditService.Snapshot previous = AuditService.snapshotOf(invoice);
         invoice.setStatus(status);
         invoiceRepository.save(invoice);
+        customerService.applyInvoiceChange(before, CustomerService.Contribution.of(invoice));
+        auditService.record(DocumentType.INVOICE, invoice.getId(), version, user,
+                DocumentRevision.Action.STATUS_CHANGED, previous, AuditService.snapshotOf(invoice));
+        publishChange(invoice, user, DocumentChangedEvent.ChangeType.STATUS_CHANGED);
+    }
+
+    /**
+     * Fills in the stored grand total of invoices saved before it existed.
+     */
+    public int storeTotals(List<Long> ids) {
+        List<Invoice> invoices = invoiceRepository.findAllByIdWithItems(ids);
+        for (Invoice invoice : invoices) {
+            invoice.refreshStoredTotal();
+        }
+        return invoices.size();
+    }
+
+    /**
+     * Claims invoices for a reminder by stamping them with {@code claimedAt}, skipping any
+     * that were reminded at or after {@code remindedBefore} (by another run, say). Returns
+     * the ids this call claimed. {@code claimedAt} must be unique to the run and at the
+     * column's microsecond precision.
+     */
+    public List<Long> claimForReminder(Collection<Long> ids, LocalDateTime claimedAt, LocalDateTime remindedBefore) {
+        invoiceRepository.claimForReminder(ids, claimedAt, remindedBefore);
+        return invoiceRepository.findIdsRemindedAt(ids, claimedAt);
+    }
+
+    /**
+     * Gives back the claims on reminders that were not sent, restoring each invoice's
+     * previous reminder time (by id) unless something has stamped it since.
+     */
+    public void releaseReminderClaims(Map<Long, LocalDateTime> previous, LocalDateTime claimedAt) {
+        previous.forEach((id, remindedAt) -> invoiceRepository.releaseReminderClaim(id, claimedAt, remindedAt));
     }
 
+    @Transactional(readOnly = true)
     public BigDecimal getUnpaidRevenueByUser(User user) {
-        List<Invoice> allInvoices = invoiceRepository.findByUserOrderByDateDesc(user);
-        return allInvoices.stream()
-                .filter(invoice -> invoice.getStatus() != InvoiceStatus.PAID)
-                .map(invoice -> {
-                    // Load items if needed for calculation
-                    if (invoice.getItems() == null || invoice.getItems().isEmpty()) {
-                        invoice = invoiceRepository.findByIdAndUserWithItems(invoice.getId(), user)
-                                .orElse(invoice);
-                    }
-                    return invoice.getGrandTotal();
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return Money.toBigDecimal(invoiceRepository.sumUnpaidTotalsByUser(user));
     }
 
+    @Transactional(readOnly = true)
     public BigDecimal getDailyRevenueByUser(User user, LocalDate date) {
-        List<Invoice> allInvoices = invoiceRepository.findByUserOrderByDateDesc(user);
-        return allInvoices.stream()
-                .filter(invoice -> invoice.getDate() != null && invoice.getDate().equals(date))
-                .filter(invoice -> invoice.getStatus() == InvoiceStatus.PAID)
-                .map(invoice -> {
-                    // Load items if needed for calculation
-                    if (invoice.getItems() == null || invoice.getItems().isEmpty()) {
-                        invoice = invoiceRepository.findByIdAndUserWithItems(invoice.getId(), user)
-                                .orElse(invoice);
-                    }
-                    return invoice.getGrandTotal();
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return Money.toBigDecimal(invoiceRepository.sumPaidTotalsByUserAndDate(user, date));
     }
 }
\ No newline at end of file
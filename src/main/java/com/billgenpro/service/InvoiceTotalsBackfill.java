@@ -0,0 +1,57 @@
+package com.billgenpro.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.billgenpro.repository.InvoiceRepository;
+
+/**
+ * One-time migration that fills the stored grand total of invoices saved before the
+ * column existed, so reports that sum it see every invoice. Same shape as
+ * {@link CustomerBackfill}: keyset-paged batches at startup, one transaction each.
+ */
+@Component
+public class InvoiceTotalsBackfill implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoiceTotalsBackfill.class);
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Value("${billgenpro.invoices.totals-backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${billgenpro.invoices.totals-backfill.batch-size:500}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        int stored = 0;
+        long afterId = 0L;
+        while (true) {
+            List<Long> ids = invoiceRepository.findIdsWithoutStoredTotal(afterId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+            stored += invoiceService.storeTotals(ids);
+        }
+        if (stored > 0) {
+            logger.info("Stored grand totals for {} invoices", stored);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.billgenpro.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.billgenpro.config.BoundedLruCache;
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Uploaded business logos, stored on local disk under the SHA-256 of the uploaded file.
+ * Uploading the same file again (the usual case: one logo on every invoice) finds the
+ * existing files and stores nothing. Each upload is decoded and resized once, to the
+ * sizes the pages and PDFs show it at, so nothing is scaled at render time.
+ *
+ * PDFs read the logo through {@link #getPdfImage}, which keeps the decoded iText
+ * {@link ImageData} in a bounded LRU map. The PDF copy is an opaque RGB PNG (flattened
+ * onto white, which is what paper shows anyway), so iText can write its compressed
+ * pixel data into each PDF as it is instead of decoding and re-compressing it.
+ */
+@Service
+public class LogoStore {
+
+    /** The stored sizes: each is the uploaded image scaled down to fit the given box. */
+    public enum Variant {
+        // 2x the 150 x 60 pt box the PDF header draws it in
+        PDF(300, 120),
+        // 2x the 120 x 48 px the invoice pages show it at
+        WEB(240, 96);
+
+        private final int maxWidth;
+        private final int maxHeight;
+
+        Variant(int maxWidth, int maxHeight) {
+            this.maxWidth = maxWidth;
+            this.maxHeight = maxHeight;
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(LogoStore.class);
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    @Value("${billgenpro.logos.dir:data/logos}")
+    private String directory;
+
+    @Value("${billgenpro.logos.max-pixels:25000000}")
+    private long maxPixels;
+
+    @Value("${billgenpro.logos.cache-max-entries:256}")
+    private int cacheMaxEntries;
+
+    private Path root;
+
+    private BoundedLruCache<String, ImageData> cache;
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    @PostConstruct
+    void init() throws IOException {
+        root = Paths.get(directory).toAbsolutePath();
+        Files.createDirectories(root);
+        cache = new BoundedLruCache<>(cacheMaxEntries);
+    }
+
+    /**
+     * Stores an uploaded logo and returns its hash, the id invoices refer to it by.
+     *
+     * @throws IllegalArgumentException if the file is not a PNG, JPEG, GIF or BMP image,
+     *         or has more than {@code billgenpro.logos.max-pixels} pixels
+     */
+    public String store(byte[] upload) {
+        String hash = sha256(upload);
+        if (exists(hash)) {
+            deduplicated.incrementAndGet();
+            return hash;
+        }
+        BufferedImage source = decode(upload);
+        try {
+            for (Variant variant : Variant.values()) {
+                BufferedImage scaled = resize(source, variant);
+                Path target = path(hash, variant);
+                Files.createDirectories(target.getParent());
+                // Written aside and moved into place, so readers never see half a file.
+                // Two uploads of the same file racing here write identical bytes.
+                Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+                try {
+                    ImageIO.write(scaled, "png", temp.toFile());
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store logo " + hash, e);
+        }
+        stored.incrementAndGet();
+        return hash;
+    }
+
+    /**
+     * The stored file for a logo, if the hash is well-formed and known.
+     */
+    public Optional<Path> find(String hash, Variant variant) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = path(hash, variant);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * The decoded PDF-size logo, or null when there is no such logo. Safe to share: iText
+     * only reads an {@link ImageData} when adding it to a document.
+     */
+    public ImageData getPdfImage(String hash) {
+        ImageData cached = cache.get(hash);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+        cacheMisses.incrementAndGet();
+        Optional<Path> path = find(hash, Variant.PDF);
+        if (path.isEmpty()) {
+            return null;
+        }
+        ImageData image;
+        try {
+            image = ImageDataFactory.create(Files.readAllBytes(path.get()));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read logo {}; rendering without it", hash, e);
+            return null;
+        }
+        cache.put(hash, image);
+        return image;
+    }
+
+    public long getStoredCount() { return stored.get(); }
+
+    public long getDeduplicatedCount() { return deduplicated.get(); }
+
+    public long getCacheHitCount() { return cacheHits.get(); }
+
+    public long getCacheMissCount() { return cacheMisses.get(); }
+
+    public int getCacheSize() { return cache.size(); }
+
+    private boolean exists(String hash) {
+        for (Variant variant : Variant.values()) {
+            if (!Files.isRegularFile(path(hash, variant))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Fanned out by the first two hex digits so no directory grows too large
+    private Path path(String hash, Variant variant) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash + "-" + variant.name().toLowerCase() + ".png");
+    }
+
+    private BufferedImage decode(byte[] upload) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(upload))) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("The logo must be a PNG, JPEG, GIF or BMP image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // Checked from the header before decoding, so a small file can't claim a huge canvas
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    throw new IllegalArgumentException("The logo image is too large");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The logo image could not be read", e);
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, Variant variant) {
+        double scale = Math.min(1.0, Math.min((double) variant.maxWidth / source.getWidth(),
+                (double) variant.maxHeight / source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // Halve first while far too big: one bilinear step straight down skips pixels and aliases
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, BufferedImage.TYPE_INT_ARGB, null);
+        }
+        boolean opaque = variant == Variant.PDF;
+        return draw(current, width, height, opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB,
+                opaque ? Color.WHITE : null);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, int type, Color background) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            if (background != null) {
+                graphics.setColor(background);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.billgenpro.service;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.billgenpro.config.BoundedLruCache;
+import com.billgenpro.config.WorkerThreads;
+import com.billgenpro.event.DocumentChangedEvent;
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.Receipt;
+import com.billgenpro.repository.InvoiceRepository;
+import com.billgenpro.repository.ReceiptRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Renders invoice and receipt PDFs ahead of time so downloads and email sends
+ * don't pay the iText cost in the request thread.
+ *
+ * Every committed save queues a render on a small bounded pool. A document that is
+ * saved again while its render is still queued is coalesced into the queued render,
+ * which always reloads the latest state.
+ *
+ * Rendered PDFs are kept in a bounded LRU cache tagged with the document's
+ * {@code @Version}. A lookup only hits when the cached copy was rendered from the
+ * version the caller has just loaded, so a save made on another instance turns the
+ * next download into a miss without any event reaching this one. Local saves also drop
+ * the stale copy straight away and queue a fresh render, which saves memory but is not
+ * needed for correctness. A render never replaces a copy of a newer version. Archived
+ * copies carry no version and are rendered without the cache.
+ */
+@Service
+public class PdfPrerenderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfPrerenderService.class);
+
+    @Autowired
+    private PdfService pdfService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Value("${billgenpro.pdf.prerender.enabled:true}")
+    private boolean enabled;
+
+    @Value("${billgenpro.pdf.prerender.threads:1}")
+    private int threads;
+
+    @Value("${billgenpro.pdf.prerender.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${billgenpro.pdf.prerender.cache-max-entries:1000}")
+    private int cacheMaxEntries;
+
+    @Value("${billgenpro.pdf.prerender.cache-max-bytes:67108864}")
+    private long cacheMaxBytes;
+
+    private final Map<DocumentKey, Long> pending = new ConcurrentHashMap<>();
+    private BoundedLruCache<DocumentKey, RenderedPdf> cache;
+
+    private final AtomicLong rendered = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private volatile long lastRenderLagMillis;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        cache = new BoundedLruCache<>(cacheMaxEntries, cacheMaxBytes, RenderedPdf::weight);
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), workerThreads.factory("pdf-prerender-"));
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    public byte[] getInvoicePdf(Invoice invoice) {
+        if (invoice.getId() == null || invoice.getVersion() == null) {
+            return pdfService.generateInvoicePdf(invoice);
+        }
+        DocumentKey key = new DocumentKey(DocumentType.INVOICE, invoice.getId());
+        byte[] cached = lookup(key, invoice.getVersion());
+        if (cached != null) {
+            return cached;
+        }
+        byte[] pdfBytes = pdfService.generateInvoicePdf(invoice);
+        store(key, invoice.getVersion(), pdfBytes);
+        return pdfBytes;
+    }
+
+    public byte[] getReceiptPdf(Receipt receipt) {
+        if (receipt.getId() == null || receipt.getVersion() == null) {
+            return pdfService.generateReceiptPdf(receipt);
+        }
+        DocumentKey key = new DocumentKey(DocumentType.RECEIPT, receipt.getId());
+        byte[] cached = lookup(key, receipt.getVersion());
+        if (cached != null) {
+            return cached;
+        }
+        byte[] pdfBytes = pdfService.generateReceiptPdf(receipt);
+        store(key, receipt.getVersion(), pdfBytes);
+        return pdfBytes;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        // Every write bumps the version, status changes included, so the cached copy is stale either way
+        DocumentKey key = new DocumentKey(event.getDocumentType(), event.getDocumentId());
+        cache.remove(key);
+        if (event.getChangeType() == DocumentChangedEvent.ChangeType.DELETED
+                || event.getChangeType() == DocumentChangedEvent.ChangeType.ARCHIVED) {
+            return;
+        }
+        if (enabled) {
+            enqueue(key);
+        }
+    }
+
+    private void enqueue(DocumentKey key) {
+        if (pending.putIfAbsent(key, System.nanoTime()) != null) {
+            // A render for this document is already queued and will pick up the latest version
+            coalesced.incrementAndGet();
+            return;
+        }
+        try {
+            executor.execute(() -> render(key));
+        } catch (RejectedExecutionException e) {
+            // Queue is full; the next download renders on demand instead
+            pending.remove(key);
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void render(DocumentKey key) {
+        Long enqueuedAt = pending.remove(key);
+        try {
+            byte[] pdfBytes;
+            long version;
+            if (key.type() == DocumentType.INVOICE) {
+                Invoice invoice = invoiceRepository.findByIdWithItems(key.id()).orElse(null);
+                if (invoice == null) {
+                    return;
+                }
+                pdfBytes = pdfService.generateInvoicePdf(invoice);
+                version = invoice.getVersion();
+            } else {
+                Receipt receipt = receiptRepository.findByIdWithItems(key.id()).orElse(null);
+                if (receipt == null) {
+                    return;
+                }
+                pdfBytes = pdfService.generateReceiptPdf(receipt);
+                version = receipt.getVersion();
+            }
+            store(key, version, pdfBytes);
+            rendered.incrementAndGet();
+            if (enqueuedAt != null) {
+                lastRenderLagMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedAt);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Background PDF render failed for {} {}", key.type(), key.id(), e);
+        }
+    }
+
+    /**
+     * The cached PDF of the document at {@code version}, or null if there is none; a copy
+     * of any other version is a miss.
+     */
+    private byte[] lookup(DocumentKey key, long version) {
+        RenderedPdf entry = cache.get(key);
+        if (entry != null && entry.version() == version) {
+            cacheHits.incrementAndGet();
+            return entry.bytes();
+        }
+        cacheMisses.incrementAndGet();
+        return null;
+    }
+
+    private void store(DocumentKey key, long version, byte[] pdfBytes) {
+        if (pdfBytes.length > cacheMaxBytes) {
+            return;
+        }
+        // A render that loaded an older version finishes after one of a newer version: keep the newer
+        cache.compute(key, (k, entry) -> entry != null && entry.version() > version
+                ? entry : new RenderedPdf(version, pdfBytes));
+    }
+
+    // Observability
+    public int getQueueDepth() { return executor.getQueue().size(); }
+
+    public int getPendingCount() { return pending.size(); }
+
+    public long getLastRenderLagMillis() { return lastRenderLagMillis; }
+
+    public long getRenderedCount() { return rendered.get(); }
+
+    public long getCoalescedCount() { return coalesced.get(); }
+
+    public long getDroppedCount() { return dropped.get(); }
+
+    public long getCacheHitCount() { return cacheHits.get(); }
+
+    public long getCacheMissCount() { return cacheMisses.get(); }
+
+    public long getCachedBytes() { return cache.weight(); }
+
+    private record DocumentKey(DocumentType type, Long id) {}
+
+    private record RenderedPdf(long version, byte[] bytes) {
+        long weight() {
+            return bytes.length;
+        }
+    }
+}
@@ -3,16 +3,21 @@ package com.billgenpro.service;
 import java.io.ByteArrayOutputStream;
 import java.time.format.DateTimeFormatter;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.billgenpro.event.DocumentType;
 import com.billgenpro.model.Invoice;
 import com.billgenpro.model.InvoiceItem;
+import com.billgenpro.model.Money;
 import com.billgenpro.model.Receipt;
 import com.billgenpro.model.ReceiptItem;
+import com.itextpdf.io.image.ImageData;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Image;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.properties.TextAlignment;
@@ -21,13 +26,41 @@ import com.itextpdf.layout.properties.UnitValue;
 @Service
 public class PdfService {
 
+    // Box the logo is scaled into at the top of an invoice, in points
+    private static final float LOGO_WIDTH = 150;
+    private static final float LOGO_HEIGHT = 60;
+
+    @Autowired
+    private DocumentMetrics documentMetrics;
+
+    @Autowired
+    private LogoStore logoStore;
+
     public byte[] generateInvoicePdf(Invoice invoice) {
+        int itemCount = invoice.getItems() != null ? invoice.getItems().size() : 0;
+        return documentMetrics.recordPdf(DocumentType.INVOICE, invoice.getTemplateNumber(), itemCount,
+                () -> renderInvoicePdf(invoice));
+    }
+
+    public byte[] generateReceiptPdf(Receipt receipt) {
+        int itemCount = receipt.getItems() != null ? receipt.getItems().size() : 0;
+        return documentMetrics.recordPdf(DocumentType.RECEIPT, receipt.getTemplateNumber(), itemCount,
+                () -> renderReceiptPdf(receipt));
+    }
+
+    private byte[] renderInvoicePdf(Invoice invoice) {
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             PdfWriter writer = new PdfWriter(baos);
             PdfDocument pdfDoc = new PdfDocument(writer);
             Document document = new Document(pdfDoc);
 
+            // Logo
+            ImageData logo = invoice.getLogoHash() != null ? logoStore.getPdfImage(invoice.getLogoHash()) : null;
+            if (logo != null) {
+                document.add(new Image(logo).scaleToFit(LOGO_WIDTH, LOGO_HEIGHT));
+            }
+
             // Header
             document.add(new Paragraph("INVOICE")
                     .setTextAlignment(TextAlignment.CENTER)
@@ -116,8 +149,8 @@ public class PdfService {
                 }
                 itemsTable.addCell(new Cell().add(new Paragraph(description)));
                 itemsTable.addCell(new Cell().add(new Paragraph(String.valueOf(item.getQuantity()))));
-                itemsTable.addCell(new Cell().add(new Paragraph("₹" + item.getAmount())));
-                itemsTable.addCell(new Cell().add(new Paragraph("₹" + item.getTotal())));
+                itemsTable.addCell(new Cell().add(new Paragraph("₹" + Money.format(item.getAmountMinor()))));
+                itemsTable.addCell(new Cell().add(new Paragraph("₹" + Money.format(item.getTotalMinor()))));
             }
 
             document.add(itemsTable);
@@ -128,13 +161,16 @@ public class PdfService {
             totalsTable.setWidth(UnitValue.createPercentValue(100));
 
             totalsTable.addCell(new Cell().add(new Paragraph("Sub Total:")));
-            totalsTable.addCell(new Cell().add(new Paragraph("₹" + invoice.getSubTotal())));
+            // Sum the items once; tax and grand total derive from the same subtotal
+            long subTotal = invoice.getSubTotalMinor();
+            long grandTotal = invoice.getGrandTotalMinor();
+            totalsTable.addCell(new Cell().add(new Paragraph("₹" + Money.format(subTotal))));
 
             totalsTable.addCell(new Cell().add(new Paragraph("Tax (" + invoice.getTaxPercentage() + "%):")));
-            totalsTable.addCell(new Cell().add(new Paragraph("₹" + invoice.getTaxAmount())));
+            totalsTable.addCell(new Cell().add(new Paragraph("₹" + Money.format(grandTotal - subTotal))));
 
             totalsTable.addCell(new Cell().add(new Paragraph("Grand Total:").setBold()));
-            totalsTable.addCell(new Cell().add(new Paragraph("₹" + invoice.getGrandTotal()).setBold()));
+            totalsTable.addCell(new Cell().add(new Paragraph("₹" + Money.format(grandTotal)).setBold()));
 
             document.add(totalsTable);
 
@@ -153,7 +189,7 @@ public class PdfService {
         }
     }
 
-    public byte[] generateReceiptPdf(Receipt receipt) {
+    private byte[] renderReceiptPdf(Receipt receipt) {
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             PdfWriter writer = new PdfWriter(baos);
@@ -200,15 +236,18 @@ public class PdfService {
 
             // Items
             for (ReceiptItem item : receipt.getItems()) {
-                document.add(new Paragraph(item.getName() + " x" + item.getQuantity() + " @ ₹" + item.getAmount() + " = ₹" + item.getTotal()));
+                document.add(new Paragraph(item.getName() + " x" + item.getQuantity() + " @ ₹" + Money.format(item.getAmountMinor())
+                        + " = ₹" + Money.format(item.getTotalMinor())));
             }
 
             document.add(new Paragraph("\n"));
 
             // Totals
-            document.add(new Paragraph("Sub Total: ₹" + receipt.getSubTotal()));
-            document.add(new Paragraph("Tax (" + receipt.getTaxPercentage() + "%): ₹" + receipt.getTaxAmount()));
-            document.add(new Paragraph("Total: ₹" + receipt.getGrandTotal()).setBold());
+            long subTotal = receipt.getSubTotalMinor();
+            long grandTotal = receipt.getGrandTotalMinor();
+            document.add(new Paragraph("Sub Total: ₹" + Money.format(subTotal)));
+            document.add(new Paragraph("Tax (" + receipt.getTaxPercentage() + "%): ₹" + Money.format(grandTotal - subTotal)));
+            document.add(new Paragraph("Total: ₹" + Money.format(grandTotal)).setBold());
 
             // Footer
             if (receipt.getFooter() != null && !receipt.getFooter().isEmpty()) {
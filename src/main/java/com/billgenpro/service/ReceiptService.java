@@ -5,9 +5,15 @@ import java.util.Optional;
 import java.util.Random;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.billgenpro.event.DocumentChangedEvent;
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.DocumentRevision;
+import com.billgenpro.model.Money;
 import com.billgenpro.model.Receipt;
 import com.billgenpro.model.ReceiptItem;
 import com.billgenpro.model.User;
@@ -15,6 +21,10 @@ import com.billgenpro.repository.ReceiptRepository;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
 @Service
 @Transactional
 public class ReceiptService {
@@ -22,23 +32,59 @@ public class ReceiptService {
     @Autowired
     private ReceiptRepository receiptRepository;
 
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private AuditService auditService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private UserDataVersionService userDataVersionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
     public List<Receipt> getAllReceipts() {
         return receiptRepository.findAllOrderByDateDesc();
     }
 
+    // Read-only methods skip dirty checking and the flush on commit. The flush would also take
+    // still-lazy item collections out of Hibernate's batch-fetch queue before the view reads them
+    @Transactional(readOnly = true)
     public List<Receipt> getAllReceiptsByUser(User user) {
         return receiptRepository.findByUserOrderByDateDesc(user);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Receipt> getReceiptById(Long id) {
         return receiptRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Receipt> getReceiptByIdAndUser(Long id, User user) {
         return receiptRepository.findByIdAndUserWithItems(id, user);
     }
 
     public Receipt saveReceipt(Receipt receipt, User user) {
+        return saveReceipt(receipt, user, null);
+    }
+
+    /**
+     * Saves the receipt, rejecting an edit of an out-of-date version. With an idempotency
+     * key, also takes the key for the saved receipt in the same transaction; see
+     * {@link IdempotencyService#claim}.
+     */
+    public Receipt saveReceipt(Receipt receipt, User user, String idempotencyKey) {
         // Associate receipt with user
         receipt.setUser(user);
         
@@ -46,6 +92,16 @@ public class ReceiptService {
         if (receipt.getId() != null) {
             Receipt existingReceipt = receiptRepository.findByIdAndUserWithItems(receipt.getId(), user)
                     .orElseThrow(() -> new RuntimeException("Receipt not found or you don't have permission to access it"));
+            // The form posts back the version it was loaded at; a different one means someone else saved since.
+            // Edits that race past this check are caught by the versioned UPDATE when the transaction flushes
+            if (receipt.getVersion() != null && !receipt.getVersion().equals(existingReceipt.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Receipt.class, receipt.getId());
+            }
+            // Bump the version on commit even when only line items change, which leaves the receipt row itself clean
+            entityManager.lock(existingReceipt, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            long version = existingReceipt.getVersion() + 1;
+            CustomerService.Contribution before = CustomerService.Contribution.of(existingReceipt);
+            AuditService.Snapshot previous = AuditService.snapshotOf(existingReceipt);
             // Clear existing items - orphanRemoval will handle deletion
             existingReceipt.getItems().clear();
             // Set receipt reference for all new items
@@ -60,6 +116,7 @@ public class ReceiptService {
             existingReceipt.setDate(receipt.getDate());
             existingReceipt.setCompany(receipt.getCompany());
             existingReceipt.setBillTo(receipt.getBillTo());
+            existingReceipt.setCustomer(customerService.resolve(user, receipt.getBillTo(), null, null, null));
             existingReceipt.setCashier(receipt.getCashier());
             existingReceipt.setTaxPercentage(receipt.getTaxPercentage());
             existingReceipt.setNotes(receipt.getNotes());
@@ -67,7 +124,13 @@ public class ReceiptService {
             existingReceipt.setTemplateNumber(receipt.getTemplateNumber());
             // Ensure user is set (security check)
             existingReceipt.setUser(user);
-            return receiptRepository.save(existingReceipt);
+            Receipt saved = receiptRepository.save(existingReceipt);
+            claimIdempotencyKey(idempotencyKey, saved, user);
+            customerService.applyReceiptChange(before, CustomerService.Contribution.of(saved));
+            auditService.record(DocumentType.RECEIPT, saved.getId(), version, user, DocumentRevision.Action.UPDATED,
+                    previous, AuditService.snapshotOf(saved));
+            publishChange(saved, user, DocumentChangedEvent.ChangeType.SAVED);
+            return saved;
         } else {
             // New receipt - just set receipt reference for all items
             if (receipt.getItems() != null) {
@@ -75,20 +138,50 @@ public class ReceiptService {
                     item.setReceipt(receipt);
                 }
             }
-            return receiptRepository.save(receipt);
+            // Always resolved here, never taken from the submitted form
+            receipt.setCustomer(customerService.resolve(user, receipt.getBillTo(), null, null, null));
+            // A version posted with a new receipt would make the repository merge instead of persist
+            receipt.setVersion(null);
+            Receipt saved = receiptRepository.save(receipt);
+            claimIdempotencyKey(idempotencyKey, saved, user);
+            customerService.applyReceiptChange(CustomerService.Contribution.NONE, CustomerService.Contribution.of(saved));
+            auditService.record(DocumentType.RECEIPT, saved.getId(), saved.getVersion(), user,
+                    DocumentRevision.Action.CREATED, null, AuditService.snapshotOf(saved));
+            publishChange(saved, user, DocumentChangedEvent.ChangeType.SAVED);
+            return saved;
         }
     }
 
     public void deleteReceipt(Long id, User user) {
         Receipt receipt = receiptRepository.findByIdAndUserWithItems(id, user)
                 .orElseThrow(() -> new RuntimeException("Receipt not found or you don't have permission to delete it"));
+        // The versioned DELETE fails if anyone saved since, so nothing can come after this version
+        long version = receipt.getVersion() + 1;
         receiptRepository.delete(receipt);
+        customerService.applyReceiptChange(CustomerService.Contribution.of(receipt), CustomerService.Contribution.NONE);
+        auditService.record(DocumentType.RECEIPT, receipt.getId(), version, user, DocumentRevision.Action.DELETED,
+                AuditService.snapshotOf(receipt), null);
+        publishChange(receipt, user, DocumentChangedEvent.ChangeType.DELETED);
     }
 
+    private void claimIdempotencyKey(String idempotencyKey, Receipt saved, User user) {
+        if (idempotencyKey != null) {
+            idempotencyService.claim(DocumentType.RECEIPT, user, idempotencyKey, saved.getId());
+        }
+    }
+
+    // Last in every write: the data-version bump holds the user's row lock until commit
+    private void publishChange(Receipt receipt, User user, DocumentChangedEvent.ChangeType changeType) {
+        userDataVersionService.bump(user.getId());
+        eventPublisher.publishEvent(new DocumentChangedEvent(DocumentType.RECEIPT, receipt.getId(), user.getId(), changeType));
+    }
+
+    @Transactional(readOnly = true)
     public List<Receipt> searchReceipts(String query) {
         return receiptRepository.findByNumberContainingIgnoreCase(query);
     }
 
+    @Transactional(readOnly = true)
     public List<Receipt> searchReceiptsByUser(String query, User user) {
         return receiptRepository.findByUserAndNumberContainingIgnoreCase(user, query);
     }
@@ -105,7 +198,8 @@ public class ReceiptService {
         String number;
         do {
             number = generateRandomReceiptNumber();
-        } while (receiptRepository.existsByNumberAndUser(number, user));
+        } while (receiptRepository.existsByNumberAndUser(number, user)
+                || archiveService.isNumberArchived(DocumentType.RECEIPT, number, user));
         return number;
     }
 
@@ -130,22 +224,15 @@ public class ReceiptService {
         return result.toString();
     }
 
+    @Transactional(readOnly = true)
     public Long getReceiptCountByUser(User user) {
-        return (long) receiptRepository.findByUserOrderByDateDesc(user).size();
+        return receiptRepository.countByUser(user);
     }
 
+    @Transactional(readOnly = true)
     public BigDecimal getDailyRevenueByUser(User user, LocalDate date) {
-        List<Receipt> allReceipts = receiptRepository.findByUserOrderByDateDesc(user);
-        return allReceipts.stream()
-                .filter(receipt -> receipt.getDate() != null && receipt.getDate().equals(date))
-                .map(receipt -> {
-                    // Load items if needed for calculation
-                    if (receipt.getItems() == null || receipt.getItems().isEmpty()) {
-                        receipt = receiptRepository.findByIdAndUserWithItems(receipt.getId(), user)
-                                .orElse(receipt);
-                    }
-                    return receipt.getGrandTotal();
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-}
\ No newline at end of file
+        return Money.toBigDecimal(receiptRepository.findByUserAndDateWithItems(user, date).stream()
+                .mapToLong(Receipt::getGrandTotalMinor)
+                .sum());
+    }
+}
@@ -0,0 +1,50 @@
+package com.billgenpro.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for one overdue-reminder run. Updated concurrently by the sender threads
+ * while the run is in progress. {@code skipped} counts the overdue invoices the run left
+ * out: those without a client email, those reminded too recently, and those another
+ * instance's run claimed first.
+ */
+public class ReminderRunStats {
+
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startedNanos = System.nanoTime();
+    private volatile LocalDateTime finishedAt;
+    private volatile long durationMillis;
+
+    final AtomicLong sent = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong skipped = new AtomicLong();
+
+    void finish() {
+        durationMillis = Duration.ofNanos(System.nanoTime() - startedNanos).toMillis();
+        finishedAt = LocalDateTime.now();
+    }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+
+    public boolean isFinished() { return finishedAt != null; }
+
+    public long getSent() { return sent.get(); }
+
+    public long getFailed() { return failed.get(); }
+
+    public long getSkipped() { return skipped.get(); }
+
+    public long getDurationMillis() {
+        return isFinished() ? durationMillis : Duration.ofNanos(System.nanoTime() - startedNanos).toMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "sent=" + getSent() + ", failed=" + getFailed() + ", skipped=" + getSkipped()
+                + ", duration=" + getDurationMillis() + "ms";
+    }
+}
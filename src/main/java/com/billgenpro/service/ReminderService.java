@@ -0,0 +1,219 @@
+package com.billgenpro.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.billgenpro.config.WorkerThreads;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceStatus;
+import com.billgenpro.repository.InvoiceRepository;
+
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Emails payment reminders for every unpaid invoice older than the configured threshold
+ * that has a client email, across all users. Candidates are read by keyset (id &gt; last seen id) in fixed-size
+ * pages, so a run never holds more than a page of invoices plus the batches being sent.
+ * Each invoice's body and PDF are rendered once by the sender thread that delivers it,
+ * and every batch goes out over a single SMTP connection through {@link BatchMailSender},
+ * which also applies the shared sending rate limit.
+ *
+ * Every instance runs the same cron, so each page is claimed before anything is sent:
+ * a conditional UPDATE stamps {@code last_reminder_at} with the run's start time, and only
+ * the invoices this run stamped are sent. A reminder that fails gets its previous time back
+ * and is retried by the next run; claimed reminders still unsent when the process dies
+ * wait for {@code repeat-after-days}.
+ */
+@Service
+public class ReminderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReminderService.class);
+
+    private static final Set<InvoiceStatus> REMINDABLE_STATUSES = Set.of(InvoiceStatus.PENDING, InvoiceStatus.OVERDUE);
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private BatchMailSender batchMailSender;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Value("${billgenpro.reminders.overdue-after-days:30}")
+    private int overdueAfterDays;
+
+    @Value("${billgenpro.reminders.repeat-after-days:7}")
+    private int repeatAfterDays;
+
+    @Value("${billgenpro.reminders.page-size:500}")
+    private int pageSize;
+
+    @Value("${billgenpro.reminders.batch-size:50}")
+    private int batchSize;
+
+    @Value("${billgenpro.reminders.senders:4}")
+    private int senders;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ReminderRunStats lastRun;
+
+    @Scheduled(cron = "${billgenpro.reminders.cron:-}")
+    public void scheduledRun() {
+        if (!batchMailSender.isConfigured()) {
+            logger.warn("Skipping reminder run: email service is not configured");
+            return;
+        }
+        runReminders();
+    }
+
+    /**
+     * Starts a run in the background, for an on-demand trigger. Returns false if email is
+     * not configured or a run is already in progress on this instance.
+     */
+    public boolean startRun() {
+        if (!batchMailSender.isConfigured() || !running.compareAndSet(false, true)) {
+            return false;
+        }
+        workerThreads.factory("reminder-run-").newThread(this::run).start();
+        return true;
+    }
+
+    public ReminderRunStats runReminders() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A reminder run is already in progress");
+        }
+        return run();
+    }
+
+    // Called with running set
+    private ReminderRunStats run() {
+        ReminderRunStats stats = new ReminderRunStats();
+        lastRun = stats;
+        ExecutorService pool = Executors.newFixedThreadPool(senders, workerThreads.factory("reminder-sender-"));
+        // Caps the number of batches (and therefore rendered PDFs) held in memory at once
+        Semaphore inFlight = new Semaphore(senders * 2);
+        try {
+            LocalDate dueBefore = LocalDate.now().minusDays(overdueAfterDays);
+            // At the column's precision, so the claimed rows can be found by it
+            LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+            LocalDateTime remindedBefore = claimedAt.minusDays(repeatAfterDays);
+            stats.skipped.addAndGet(invoiceRepository.countReminderSkips(REMINDABLE_STATUSES, dueBefore,
+                    remindedBefore));
+            long afterId = 0L;
+            List<Invoice> batch = new ArrayList<>(batchSize);
+            while (true) {
+                List<Long> ids = invoiceRepository.findReminderCandidateIds(afterId, REMINDABLE_STATUSES,
+                        dueBefore, remindedBefore, PageRequest.of(0, pageSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                afterId = ids.get(ids.size() - 1);
+                // Loaded before claiming, so a failed send can put back the previous reminder time
+                List<Invoice> invoices = invoiceRepository.findAllByIdWithItems(ids);
+                Set<Long> claimed = new HashSet<>(invoiceService.claimForReminder(ids, claimedAt, remindedBefore));
+                // Claimed by another instance's run since the page was read
+                stats.skipped.addAndGet(ids.size() - claimed.size());
+                for (Invoice invoice : invoices) {
+                    if (!claimed.contains(invoice.getId())) {
+                        continue;
+                    }
+                    batch.add(invoice);
+                    if (batch.size() == batchSize) {
+                        submit(pool, inFlight, batch, claimedAt, stats);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(pool, inFlight, batch, claimedAt, stats);
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+            stats.finish();
+            running.set(false);
+            logger.info("Reminder run finished: {}", stats);
+        }
+        return stats;
+    }
+
+    public ReminderRunStats getLastRun() {
+        return lastRun;
+    }
+
+    private void submit(ExecutorService pool, Semaphore inFlight, List<Invoice> batch, LocalDateTime claimedAt,
+                        ReminderRunStats stats) throws InterruptedException {
+        inFlight.acquire();
+        pool.execute(() -> {
+            try {
+                deliver(batch, claimedAt, stats);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void deliver(List<Invoice> batch, LocalDateTime claimedAt, ReminderRunStats stats) {
+        Map<MimeMessage, Invoice> prepared = new IdentityHashMap<>();
+        // Previous reminder time (null if never reminded) of each invoice whose reminder did not go out
+        Map<Long, LocalDateTime> unsent = new HashMap<>();
+        for (Invoice invoice : batch) {
+            try {
+                prepared.put(emailService.createReminderMessage(invoice, recipientOf(invoice)), invoice);
+            } catch (Exception e) {
+                unsent.put(invoice.getId(), invoice.getLastReminderAt());
+                logger.warn("Could not prepare reminder for invoice {}", invoice.getId(), e);
+            }
+        }
+
+        Map<MimeMessage, Exception> failures = batchMailSender.send(new ArrayList<>(prepared.keySet()));
+
+        prepared.forEach((message, invoice) -> {
+            if (failures.containsKey(message)) {
+                unsent.put(invoice.getId(), invoice.getLastReminderAt());
+            } else {
+                stats.sent.incrementAndGet();
+            }
+        });
+        if (!unsent.isEmpty()) {
+            stats.failed.addAndGet(unsent.size());
+            invoiceService.releaseReminderClaims(unsent, claimedAt);
+        }
+    }
+
+    private String recipientOf(Invoice invoice) {
+        // Never blank: findReminderCandidateIds only returns invoices with a client email
+        return invoice.getBillTo().getEmail().trim();
+    }
+}
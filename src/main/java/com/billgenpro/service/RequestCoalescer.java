@@ -0,0 +1,73 @@
+package com.billgenpro.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-flight execution for expensive, idempotent work such as PDF rendering and
+ * Excel exports. Concurrent calls with an equal key share one in-flight computation
+ * and all receive its result (or its exception). Nothing is cached once the
+ * computation finishes; the next call with the same key runs again.
+ */
+@Component
+public class RequestCoalescer {
+
+    /**
+     * Identifies a computation: the operation, the user it runs for, the document id or
+     * filter set it covers, and a version of the data it reads (the document's, or the
+     * user's) so requests made after a write never join a computation that started before it.
+     */
+    public record Key(String operation, Long userId, Object subject, long version) {}
+
+    private final ConcurrentHashMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Key key, Supplier<T> work) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return (T) await(existing);
+        }
+
+        executed.incrementAndGet();
+        try {
+            T result = work.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    public long getExecutedCount() { return executed.get(); }
+
+    public long getCoalescedCount() { return coalesced.get(); }
+
+    public int getInFlightCount() { return inFlight.size(); }
+}
@@ -0,0 +1,36 @@
+package com.billgenpro.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.billgenpro.repository.UserRepository;
+
+/**
+ * A per-user counter, kept in {@code users.data_version}, that every invoice or receipt
+ * write bumps inside its own transaction. It moves exactly when the write commits, and
+ * every instance reads the same value, so anything derived from a user's documents can
+ * use it as a cheap version stamp: a cache entry stamped with it goes stale on every node
+ * as soon as any node commits a write.
+ */
+@Service
+public class UserDataVersionService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Transactional(readOnly = true)
+    public long currentVersion(Long userId) {
+        return userRepository.findDataVersion(userId).orElse(0L);
+    }
+
+    /**
+     * Bumps the user's counter as part of the caller's write transaction. The row lock it
+     * takes is held until that transaction ends, so call it last.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bump(Long userId) {
+        userRepository.incrementDataVersion(userId);
+    }
+}
@@ -0,0 +1,21 @@
+// Keep the figures current from the server's event stream instead of reloading the page
+const eventsUrl = document.body.dataset.eventsUrl;
+
+function applyStats(event) {
+    const stats = JSON.parse(event.data);
+    Object.keys(stats).forEach(name => {
+        const element = document.querySelector(`[data-stat="${name}"]`);
+        if (!element) {
+            return;
+        }
+        const value = stats[name] ?? 0;
+        element.textContent = element.dataset.format === 'money' ? Number(value).toFixed(2) : value;
+    });
+}
+
+if (eventsUrl && window.EventSource) {
+    // The browser reconnects on its own and the server starts every stream with a full snapshot
+    const events = new EventSource(eventsUrl);
+    events.addEventListener('snapshot', applyStats);
+    events.addEventListener('delta', applyStats);
+}
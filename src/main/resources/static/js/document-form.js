@@ -0,0 +1,98 @@
+let itemIndex = document.querySelectorAll('#items-container .item-row').length;
+
+function addItem() {
+    const container = document.getElementById('items-container');
+    const newItem = document.createElement('div');
+    newItem.className = 'item-row new-item';
+    newItem.innerHTML = `
+        <div class="row">
+            <div class="col-md-2 mb-2">
+                <label class="form-label small">Item Name *</label>
+                <input type="text" class="form-control" name="items[${itemIndex}].name" placeholder="Product/Service" required>
+            </div>
+            <div class="col-md-2 mb-2">
+                <label class="form-label small">Description</label>
+                <input type="text" class="form-control" name="items[${itemIndex}].description" placeholder="Details">
+            </div>
+            <div class="col-md-2 mb-2">
+                <label class="form-label small">Quantity</label>
+                <input type="number" class="form-control quantity" name="items[${itemIndex}].quantity" placeholder="1" min="0" step="1" value="0">
+            </div>
+            <div class="col-md-2 mb-2">
+                <label class="form-label small">Rate (₹)</label>
+                <input type="number" class="form-control amount" name="items[${itemIndex}].amount" placeholder="0.00" min="0" step="0.01" value="0">
+            </div>
+            <div class="col-md-3 mb-2">
+                <label class="form-label small">Total</label>
+                <input type="text" class="form-control total" placeholder="0.00" readonly style="background-color: #f8fafc; font-weight: 600;">
+            </div>
+            <div class="col-md-1 mb-2">
+                <label class="form-label small">&nbsp;</label>
+                <button type="button" class="btn btn-danger btn-sm w-100 remove-item">
+                    <i class="fas fa-trash"></i>
+                </button>
+            </div>
+        </div>
+    `;
+    container.appendChild(newItem);
+
+    // Add event listeners to new inputs
+    const quantityInput = newItem.querySelector('.quantity');
+    const amountInput = newItem.querySelector('.amount');
+    quantityInput.addEventListener('input', function() { calculateItemTotal(newItem); });
+    amountInput.addEventListener('input', function() { calculateItemTotal(newItem); });
+
+    itemIndex++;
+}
+
+function calculateItemTotal(row) {
+    const quantity = parseFloat(row.querySelector('.quantity').value) || 0;
+    const amount = parseFloat(row.querySelector('.amount').value) || 0;
+    const total = quantity * amount;
+    row.querySelector('.total').value = total.toFixed(2);
+    calculateGrandTotal();
+}
+
+function calculateGrandTotal() {
+    const totals = document.querySelectorAll('.total');
+    let subTotal = 0;
+    totals.forEach(total => {
+        subTotal += parseFloat(total.value) || 0;
+    });
+
+    const taxPercentage = parseFloat(document.getElementById('taxPercentage').value) || 0;
+    const taxAmount = (subTotal * taxPercentage) / 100;
+    const grandTotal = subTotal + taxAmount;
+
+    document.getElementById('subTotal').textContent = '₹' + subTotal.toFixed(2);
+    document.getElementById('taxAmount').textContent = '₹' + taxAmount.toFixed(2);
+    document.getElementById('grandTotal').textContent = '₹' + grandTotal.toFixed(2);
+}
+
+// Initialize event listeners
+document.addEventListener('DOMContentLoaded', function() {
+    // Initialize totals for existing items
+    document.querySelectorAll('.item-row').forEach(row => {
+        calculateItemTotal(row);
+    });
+
+    // Add event listeners to existing quantity and amount inputs
+    document.querySelectorAll('.quantity, .amount').forEach(input => {
+        input.addEventListener('input', function() {
+            calculateItemTotal(this.closest('.item-row'));
+        });
+    });
+
+    // Add listener to tax percentage
+    document.getElementById('taxPercentage').addEventListener('input', calculateGrandTotal);
+
+    // Remove item functionality
+    document.addEventListener('click', function(e) {
+        if (e.target.classList.contains('remove-item') || e.target.closest('.remove-item')) {
+            e.target.closest('.item-row').remove();
+            calculateGrandTotal();
+        }
+    });
+    // Initial calculation
+    calculateGrandTotal();
+});
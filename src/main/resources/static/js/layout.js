@@ -0,0 +1,83 @@
+// Auto-calculate totals
+function calculateItemTotal(row) {
+    const quantity = parseFloat(row.querySelector('.quantity').value) || 0;
+    const amount = parseFloat(row.querySelector('.amount').value) || 0;
+    const total = quantity * amount;
+    row.querySelector('.total').value = total.toFixed(2);
+    calculateGrandTotal();
+}
+
+function calculateGrandTotal() {
+    const totals = document.querySelectorAll('.total');
+    let subTotal = 0;
+    totals.forEach(total => {
+        subTotal += parseFloat(total.value) || 0;
+    });
+
+    const taxPercentage = parseFloat(document.getElementById('taxPercentage')?.value) || 0;
+    const taxAmount = (subTotal * taxPercentage) / 100;
+    const grandTotal = subTotal + taxAmount;
+
+    if (document.getElementById('subTotal')) {
+        document.getElementById('subTotal').textContent = '₹' + subTotal.toFixed(2);
+    }
+    if (document.getElementById('taxAmount')) {
+        document.getElementById('taxAmount').textContent = '₹' + taxAmount.toFixed(2);
+    }
+    if (document.getElementById('grandTotal')) {
+        document.getElementById('grandTotal').textContent = '₹' + grandTotal.toFixed(2);
+    }
+}
+
+// Add event listeners when document loads
+document.addEventListener('DOMContentLoaded', function() {
+    // Add listeners to existing quantity and amount inputs
+    document.querySelectorAll('.quantity, .amount').forEach(input => {
+        input.addEventListener('input', function() {
+            calculateItemTotal(this.closest('.item-row'));
+        });
+    });
+
+    // Add listener to tax percentage
+    const taxInput = document.getElementById('taxPercentage');
+    if (taxInput) {
+        taxInput.addEventListener('input', calculateGrandTotal);
+    }
+
+    // Remove item functionality
+    document.addEventListener('click', function(e) {
+        if (e.target.classList.contains('remove-item')) {
+            e.target.closest('.item-row').remove();
+            calculateGrandTotal();
+        }
+    });
+
+    // Initial calculation
+    calculateGrandTotal();
+
+    // Add smooth scroll behavior
+    document.querySelectorAll('a[href^="#"]').forEach(anchor => {
+        anchor.addEventListener('click', function (e) {
+            e.preventDefault();
+            const target = document.querySelector(this.getAttribute('href'));
+            if (target) {
+                target.scrollIntoView({ behavior: 'smooth', block: 'start' });
+            }
+        });
+    });
+
+    // Auto-dismiss alerts after 5 seconds
+    setTimeout(function() {
+        const alerts = document.querySelectorAll('.alert');
+        alerts.forEach(alert => {
+            const bsAlert = new bootstrap.Alert(alert);
+            bsAlert.close();
+        });
+    }, 5000);
+});
+
+// Add loading state to buttons
+function showLoading(button) {
+    button.disabled = true;
+    button.innerHTML = '<span class="spinner-border spinner-border-sm me-2" role="status" aria-hidden="true"></span>Loading...';
+}
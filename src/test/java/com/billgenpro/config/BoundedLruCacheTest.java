@@ -0,0 +1,64 @@
+package com.billgenpro.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedLruCacheTest {
+
+    @Test
+    void dropsTheLeastRecentlyUsedEntryPastMaxEntries() {
+        BoundedLruCache<String, String> cache = new BoundedLruCache<>(2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("3");
+    }
+
+    @Test
+    void dropsEntriesUntilTheWeightFits() {
+        BoundedLruCache<String, byte[]> cache = new BoundedLruCache<>(100, 10, bytes -> bytes.length);
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[4]);
+        cache.put("c", new byte[4]);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.weight()).isEqualTo(8);
+
+        cache.put("b", new byte[1]);
+        assertThat(cache.weight()).isEqualTo(5);
+    }
+
+    @Test
+    void removalsGiveBackTheirWeight() {
+        BoundedLruCache<String, byte[]> cache = new BoundedLruCache<>(100, 100, bytes -> bytes.length);
+        cache.put("a", new byte[3]);
+        cache.put("b", new byte[5]);
+        cache.put("c", new byte[7]);
+
+        assertThat(cache.remove("a")).hasSize(3);
+        assertThat(cache.remove("a")).isNull();
+        cache.removeIf(bytes -> bytes.length > 6);
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.weight()).isEqualTo(5);
+    }
+
+    @Test
+    void computeReplacesOrRemovesAtomically() {
+        BoundedLruCache<String, Integer> cache = new BoundedLruCache<>(10);
+        cache.put("a", 1);
+
+        assertThat(cache.compute("a", (key, value) -> value + 1)).isEqualTo(2);
+        assertThat(cache.compute("b", (key, value) -> value == null ? 5 : value)).isEqualTo(5);
+        assertThat(cache.compute("a", (key, value) -> null)).isNull();
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isEqualTo(5);
+    }
+}
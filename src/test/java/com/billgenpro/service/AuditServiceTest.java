@@ -0,0 +1,168 @@
+package com.billgenpro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.DocumentRevision.Action;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.UserRepository;
+import com.billgenpro.service.AuditService.Line;
+import com.billgenpro.service.AuditService.PendingRevision;
+import com.billgenpro.service.AuditService.Snapshot;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:audit;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN"
+})
+class AuditServiceTest {
+
+    private static final int CASES = 20_000;
+
+    // A small alphabet, so lists are full of repeated lines and the patience diff has to fall back
+    private static final List<Line> LINES = List.of(
+            new Line("Work", "Consulting", 1, "10"),
+            new Line("Work", "Consulting", 2, "10"),
+            new Line("Travel", null, 1, "45.5"),
+            new Line("Hosting", "Monthly", 1, "20"),
+            new Line("Support", "", 3, "0"));
+
+    private static final List<String> VALUES = Arrays.asList(null, "", "a", "b");
+
+    @Autowired
+    private AuditService auditService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("Audit Test", "audit-" + System.nanoTime() + "@example.com", "secret"));
+    }
+
+    @Test
+    void applyingADiffRebuildsTheLaterSnapshot() {
+        Random random = new Random(42);
+        for (int i = 0; i < CASES; i++) {
+            Snapshot before = randomSnapshot(random);
+            Snapshot after = random.nextInt(4) == 0 ? mutate(before, random) : randomSnapshot(random);
+
+            AuditService.Changes changes = AuditService.diff(before, after);
+
+            assertThat(AuditService.apply(before, changes))
+                    .as("case %d: %s -> %s", i, before, after)
+                    .isEqualTo(after);
+        }
+    }
+
+    @Test
+    void replaysRevisionsInVersionOrderWhateverOrderTheyCommittedIn() throws Exception {
+        long documentId = System.nanoTime();
+        Snapshot created = snapshot("INV-1", LINES.get(0));
+        Snapshot second = snapshot("INV-1", LINES.get(0), LINES.get(2));
+        Snapshot third = snapshot("INV-2", LINES.get(2));
+
+        commit(pending(documentId, 0, Action.CREATED, null, created));
+        // The later write's transaction reaches the queue first
+        commit(pending(documentId, 2, Action.UPDATED, second, third));
+        commit(pending(documentId, 1, Action.UPDATED, created, second));
+
+        assertThat(auditService.getVersion(DocumentType.INVOICE, documentId, user, 1)).contains(created);
+        assertThat(auditService.getVersion(DocumentType.INVOICE, documentId, user, 2)).contains(second);
+        assertThat(auditService.getVersion(DocumentType.INVOICE, documentId, user, 3)).contains(third);
+    }
+
+    @Test
+    void leavesOutRevisionsOlderThanTheBaseline() throws Exception {
+        long documentId = System.nanoTime();
+        Snapshot old = snapshot("INV-1", LINES.get(0));
+        Snapshot second = snapshot("INV-1", LINES.get(1));
+        Snapshot third = snapshot("INV-1", LINES.get(1), LINES.get(3));
+
+        // A document from before history existed, whose first two edits commit in the opposite order
+        commit(pending(documentId, 6, Action.UPDATED, second, third));
+        long unchanged = auditService.getUnchangedCount();
+        auditService.onCommitted(pending(documentId, 5, Action.UPDATED, old, second));
+        await(auditService::getUnchangedCount, unchanged + 1);
+
+        assertThat(auditService.getHistory(DocumentType.INVOICE, documentId, user))
+                .extracting(AuditService.Revision::action)
+                .containsExactly(Action.BASELINE, Action.UPDATED);
+        assertThat(auditService.getVersion(DocumentType.INVOICE, documentId, user, 1)).contains(second);
+        assertThat(auditService.getVersion(DocumentType.INVOICE, documentId, user, 2)).contains(third);
+    }
+
+    private PendingRevision pending(long documentId, long version, Action action, Snapshot before, Snapshot after) {
+        return new PendingRevision(DocumentType.INVOICE, documentId, version, user.getId(), action, before, after,
+                Instant.now());
+    }
+
+    // Queues the revision and waits for the writer to store it, so each lands in its own batch
+    private void commit(PendingRevision revision) throws InterruptedException {
+        long written = auditService.getWrittenCount();
+        auditService.onCommitted(revision);
+        await(auditService::getWrittenCount, written + 1);
+    }
+
+    private static void await(LongSupplier count, long atLeast) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count.getAsLong() < atLeast) {
+            assertThat(System.nanoTime()).as("writer did not catch up").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static Snapshot snapshot(String number, Line... items) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("number", number);
+        return new Snapshot(fields, List.of(items));
+    }
+
+    private static Snapshot randomSnapshot(Random random) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (String name : List.of("number", "date", "notes")) {
+            fields.put(name, VALUES.get(random.nextInt(VALUES.size())));
+        }
+        List<Line> items = new ArrayList<>();
+        for (int i = random.nextInt(13); i > 0; i--) {
+            items.add(LINES.get(random.nextInt(LINES.size())));
+        }
+        return new Snapshot(fields, items);
+    }
+
+    // A few inserts, removals and edits, the way a real save changes a document
+    private static Snapshot mutate(Snapshot snapshot, Random random) {
+        Map<String, String> fields = new LinkedHashMap<>(snapshot.fields());
+        fields.put("notes", VALUES.get(random.nextInt(VALUES.size())));
+        List<Line> items = new ArrayList<>(snapshot.items());
+        for (int i = random.nextInt(4); i > 0; i--) {
+            Line line = LINES.get(random.nextInt(LINES.size()));
+            switch (items.isEmpty() ? 0 : random.nextInt(3)) {
+                case 0 -> items.add(random.nextInt(items.size() + 1), line);
+                case 1 -> items.remove(random.nextInt(items.size()));
+                default -> items.set(random.nextInt(items.size()), line);
+            }
+        }
+        return new Snapshot(fields, items);
+    }
+}
@@ -0,0 +1,113 @@
+package com.billgenpro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.billgenpro.model.BillTo;
+import com.billgenpro.model.Company;
+import com.billgenpro.model.Customer;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceItem;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.CustomerRepository;
+import com.billgenpro.repository.UserRepository;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:customers;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN"
+})
+class CustomerServiceTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("Customer Test", "customers-" + System.nanoTime() + "@example.com", "secret"));
+    }
+
+    @Test
+    void concurrentFirstSavesForANewClientShareOneCustomer() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Invoice>> saves = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                String number = "C-" + i;
+                saves.add(pool.submit(() -> {
+                    start.await();
+                    return invoiceService.saveInvoice(newInvoice(number, "Acme  Traders"), user);
+                }));
+            }
+            start.countDown();
+            for (Future<Invoice> save : saves) {
+                save.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Customer customer = customerRepository.findByUserAndNormalizedName(user, "acme traders").orElseThrow();
+        assertThat(customerRepository.findByUserOrderByOutstanding(user)).hasSize(1);
+        assertThat(customer.getName()).isEqualTo("Acme  Traders");
+        assertThat(customer.getInvoiceCount()).isEqualTo(THREADS);
+    }
+
+    @Test
+    void findsCustomersByNamePrefix() {
+        Long acme = customerService.resolve(user, "Acme Traders", null, null, null).getId();
+        Long cotton = customerService.resolve(user, "100% Cotton", null, null, null).getId();
+        Long underscore = customerService.resolve(user, "a_b Supplies", null, null, null).getId();
+        Long plain = customerService.resolve(user, "axb Supplies", null, null, null).getId();
+
+        assertThat(customerService.findCustomerIds(user, "  ACME ")).containsExactly(acme);
+        assertThat(customerService.findCustomerIds(user, "traders")).isEmpty();
+        // Wildcards in the search are matched literally
+        assertThat(customerService.findCustomerIds(user, "100%")).containsExactly(cotton);
+        assertThat(customerService.findCustomerIds(user, "%")).isEmpty();
+        assertThat(customerService.findCustomerIds(user, "a_b")).containsExactly(underscore);
+        assertThat(customerService.findCustomerIds(user, "a")).containsExactlyInAnyOrder(acme, underscore, plain);
+    }
+
+    private static Invoice newInvoice(String number, String clientName) {
+        Invoice invoice = new Invoice();
+        invoice.setNumber(number);
+        invoice.setDate(LocalDate.now());
+        invoice.setCompany(new Company("Seller", "Street 1", "555", "GST1"));
+        invoice.setBillTo(new BillTo(clientName, "Road 2", "666"));
+        invoice.setShipTo(new BillTo());
+        invoice.setItems(new ArrayList<>(List.of(new InvoiceItem("Work", "Consulting", 1, new BigDecimal("10.00")))));
+        return invoice;
+    }
+}
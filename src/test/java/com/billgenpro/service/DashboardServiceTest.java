@@ -0,0 +1,112 @@
+package com.billgenpro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.billgenpro.model.BillTo;
+import com.billgenpro.model.Company;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceItem;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.UserRepository;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:dashboard;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN",
+        "billgenpro.pdf.prerender.enabled=false"
+})
+class DashboardServiceTest {
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private UserDataVersionService userDataVersionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("Dashboard Test", "dashboard-" + System.nanoTime() + "@example.com", "secret"));
+    }
+
+    @Test
+    void everyWriteBumpsTheStoredDataVersion() {
+        assertThat(userDataVersionService.currentVersion(user.getId())).isZero();
+
+        Invoice saved = invoiceService.saveInvoice(newInvoice("D-1", LocalDate.now(), null), user);
+        invoiceService.deleteInvoice(saved.getId(), user);
+
+        assertThat(userDataVersionService.currentVersion(user.getId())).isEqualTo(2);
+        // Saving the user does not write back the copy of the counter it was loaded with
+        User reloaded = userRepository.findById(user.getId()).orElseThrow();
+        reloaded.setName("Renamed");
+        userRepository.save(reloaded);
+        assertThat(userDataVersionService.currentVersion(user.getId())).isEqualTo(2);
+    }
+
+    @Test
+    void aWriteCommittedElsewhereInvalidatesTheCachedStats() {
+        dashboardService.getStats(user);
+        long hits = dashboardService.getCacheHitCount();
+        long misses = dashboardService.getCacheMissCount();
+        dashboardService.getStats(user);
+        assertThat(dashboardService.getCacheHitCount()).isEqualTo(hits + 1);
+
+        // What another instance's write leaves behind: only the stored counter moves here
+        transactionTemplate.executeWithoutResult(status -> userDataVersionService.bump(user.getId()));
+        dashboardService.getStats(user);
+
+        assertThat(dashboardService.getCacheMissCount()).isEqualTo(misses + 1);
+    }
+
+    @Test
+    void sumsRevenueFromStoredTotals() {
+        LocalDate today = LocalDate.now();
+        invoiceService.saveInvoice(newInvoice("D-2", today, today), user);
+        invoiceService.saveInvoice(newInvoice("D-3", today.minusDays(3), today), user);
+        invoiceService.saveInvoice(newInvoice("D-4", today, null), user);
+
+        DashboardService.DashboardStats stats = dashboardService.getStats(user);
+
+        assertThat(stats.totalRevenuePaid()).isEqualByComparingTo("40.00");
+        assertThat(stats.totalRevenueUnpaid()).isEqualByComparingTo("20.00");
+        assertThat(stats.totalDailyRevenue()).isEqualByComparingTo("20.00");
+        assertThat(stats.paidCount()).isEqualTo(2);
+    }
+
+    private static Invoice newInvoice(String number, LocalDate date, LocalDate paymentDate) {
+        Invoice invoice = new Invoice();
+        invoice.setNumber(number);
+        invoice.setDate(date);
+        invoice.setPaymentDate(paymentDate);
+        invoice.setCompany(new Company("Seller", "Street 1", "555", "GST1"));
+        invoice.setBillTo(new BillTo("Client", "Road 2", "666"));
+        invoice.setShipTo(new BillTo());
+        invoice.setItems(new ArrayList<>(List.of(new InvoiceItem("Work", "Consulting", 2, new BigDecimal("10.00")))));
+        return invoice;
+    }
+}
@@ -0,0 +1,248 @@
+package com.billgenpro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.billgenpro.event.DocumentType;
+import com.billgenpro.model.BillTo;
+import com.billgenpro.model.Company;
+import com.billgenpro.model.EmailOutboxMessage;
+import com.billgenpro.model.EmailStatus;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceItem;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.EmailOutboxRepository;
+import com.billgenpro.repository.UserRepository;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * The email outbox end to end against an in-process GreenMail SMTP server: claiming due
+ * rows, sending a batch over one connection, backing off after a failed send, and how
+ * many messages a second the workers get through.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.mail.host=127.0.0.1",
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN",
+        // The tests call poll() themselves; the scheduled poll only runs once, at startup
+        "billgenpro.mail.outbox.poll-interval-ms=3600000",
+        "billgenpro.mail.outbox.workers=2",
+        "billgenpro.mail.outbox.batch-size=20",
+        "billgenpro.mail.outbox.max-attempts=3",
+        "billgenpro.mail.outbox.backoff-base-seconds=30"
+})
+class EmailOutboxDeliveryTest {
+
+    private static final GreenMail greenMail = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+
+    static {
+        greenMail.start();
+    }
+
+    @DynamicPropertySource
+    static void mailServer(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.port", () -> greenMail.getSmtp().getPort());
+    }
+
+    @AfterAll
+    static void stopMailServer() {
+        greenMail.stop();
+    }
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private EmailOutboxWorker emailOutboxWorker;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @SpyBean
+    private JavaMailSender mailSender;
+
+    private User user;
+    private Invoice invoice;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        emailOutboxRepository.deleteAll();
+        greenMail.purgeEmailFromAllMailboxes();
+        user = userRepository.findByEmail("outbox@example.com")
+                .orElseGet(() -> userRepository.save(new User("Outbox Test", "outbox@example.com", "secret")));
+        if (invoice == null) {
+            invoice = invoiceService.saveInvoice(newInvoice(), user);
+        }
+    }
+
+    @Test
+    void sendsAClaimedBatchOverOneConnection() throws Exception {
+        List<Long> ids = enqueue(3);
+
+        emailOutboxWorker.poll();
+        awaitCondition(() -> countByStatus(EmailStatus.SENT) == 3);
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(3);
+        assertThat(greenMail.getReceivedMessages()[0].getSubject()).startsWith("Invoice #" + invoice.getNumber());
+        // JavaMailSenderImpl opens one Transport per send(MimeMessage...) call
+        verify(mailSender, times(1)).send(any(MimeMessage[].class));
+        for (EmailOutboxMessage message : emailOutboxRepository.findAllById(ids)) {
+            assertThat(message.getAttempts()).isEqualTo(1);
+            assertThat(message.getSentAt()).isNotNull();
+            assertThat(message.getLastError()).isNull();
+        }
+    }
+
+    @Test
+    void retriesAFailedSendWithBackoff() {
+        doThrow(new MailSendException("Connection refused"))
+                .doThrow(new MailSendException("Connection refused"))
+                .doCallRealMethod()
+                .when(mailSender).send(any(MimeMessage[].class));
+        Long id = enqueue(1).get(0);
+
+        LocalDateTime before = LocalDateTime.now();
+        emailOutboxWorker.poll();
+        EmailOutboxMessage failed = awaitAttempts(id, 1);
+        assertThat(failed.getStatus()).isEqualTo(EmailStatus.QUEUED);
+        assertThat(failed.getLastError()).contains("Connection refused");
+        assertThat(failed.getNextAttemptAt()).isBetween(before.plusSeconds(29), LocalDateTime.now().plusSeconds(31));
+
+        // Not due yet: polling again claims nothing
+        emailOutboxWorker.poll();
+        assertThat(emailOutboxRepository.findById(id).orElseThrow().getAttempts()).isEqualTo(1);
+
+        makeDue(id);
+        before = LocalDateTime.now();
+        emailOutboxWorker.poll();
+        failed = awaitAttempts(id, 2);
+        // The delay doubles with every failed attempt
+        assertThat(failed.getNextAttemptAt()).isBetween(before.plusSeconds(59), LocalDateTime.now().plusSeconds(61));
+
+        makeDue(id);
+        emailOutboxWorker.poll();
+        EmailOutboxMessage sent = awaitAttempts(id, 3);
+        assertThat(sent.getStatus()).as(sent.getLastError()).isEqualTo(EmailStatus.SENT);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+    }
+
+    @Test
+    void givesUpAfterTheLastAttempt() {
+        doThrow(new MailSendException("Mailbox unavailable")).when(mailSender).send(any(MimeMessage[].class));
+        Long id = enqueue(1).get(0);
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            makeDue(id);
+            emailOutboxWorker.poll();
+            awaitAttempts(id, attempt);
+        }
+
+        EmailOutboxMessage message = emailOutboxRepository.findById(id).orElseThrow();
+        assertThat(message.getStatus()).isEqualTo(EmailStatus.FAILED);
+        assertThat(message.getLastError()).contains("Mailbox unavailable");
+    }
+
+    @Test
+    void deliversInBatchesOfTheConfiguredSize() {
+        int count = 200;
+        enqueue(count);
+
+        long start = System.nanoTime();
+        awaitCondition(() -> {
+            emailOutboxWorker.poll();
+            return countByStatus(EmailStatus.SENT) == count;
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(count);
+        // 20 per batch, each batch one SMTP session
+        verify(mailSender, times(count / 20)).send(any(MimeMessage[].class));
+        System.out.printf("Outbox delivered %d messages in %.2fs (%.0f messages/s)%n", count, seconds, count / seconds);
+    }
+
+    private List<Long> enqueue(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(emailOutboxService.enqueue(DocumentType.INVOICE, invoice.getId(), user,
+                    "client" + i + "@example.com").getId());
+        }
+        return ids;
+    }
+
+    private void makeDue(Long id) {
+        EmailOutboxMessage message = emailOutboxRepository.findById(id).orElseThrow();
+        message.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        emailOutboxRepository.save(message);
+    }
+
+    private EmailOutboxMessage awaitAttempts(Long id, int attempts) {
+        awaitCondition(() -> {
+            EmailOutboxMessage message = emailOutboxRepository.findById(id).orElseThrow();
+            return message.getAttempts() == attempts && message.getStatus() != EmailStatus.SENDING;
+        });
+        return emailOutboxRepository.findById(id).orElseThrow();
+    }
+
+    private long countByStatus(EmailStatus status) {
+        return emailOutboxRepository.countByStatus(status);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out waiting for the outbox").isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static Invoice newInvoice() {
+        Invoice invoice = new Invoice();
+        invoice.setNumber("OUTBOX-1");
+        invoice.setDate(LocalDate.now());
+        invoice.setCompany(new Company("Acme", "Street 1", "555", "GST1"));
+        invoice.setBillTo(new BillTo("Client", "Road 2", "666"));
+        invoice.setShipTo(new BillTo());
+        invoice.setItems(new ArrayList<>(List.of(new InvoiceItem("Work", "Consulting", 2, new BigDecimal("50.00")))));
+        return invoice;
+    }
+}
@@ -0,0 +1,70 @@
+package com.billgenpro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.billgenpro.model.BillTo;
+import com.billgenpro.model.Company;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceItem;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:prerender;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN",
+        "billgenpro.pdf.prerender.enabled=false"
+})
+class PdfPrerenderServiceTest {
+
+    @Autowired
+    private PdfPrerenderService pdfPrerenderService;
+
+    @Test
+    void aCopyOfAnotherVersionIsAMiss() {
+        // Saved elsewhere: no change event reaches this instance, only the newer version
+        Invoice loaded = invoice(7L, 0L, "INV-1");
+        Invoice edited = invoice(7L, 1L, "INV-1b");
+
+        long misses = pdfPrerenderService.getCacheMissCount();
+        long hits = pdfPrerenderService.getCacheHitCount();
+        byte[] original = pdfPrerenderService.getInvoicePdf(loaded);
+        assertThat(pdfPrerenderService.getInvoicePdf(loaded)).isSameAs(original);
+
+        byte[] newer = pdfPrerenderService.getInvoicePdf(edited);
+        assertThat(newer).isNotSameAs(original);
+        // A reader still holding the old version renders it, but does not push out the newer copy
+        assertThat(pdfPrerenderService.getInvoicePdf(loaded)).isNotSameAs(original);
+        assertThat(pdfPrerenderService.getInvoicePdf(edited)).isSameAs(newer);
+
+        assertThat(pdfPrerenderService.getCacheMissCount() - misses).isEqualTo(3);
+        assertThat(pdfPrerenderService.getCacheHitCount() - hits).isEqualTo(2);
+    }
+
+    private static Invoice invoice(Long id, Long version, String number) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setVersion(version);
+        invoice.setNumber(number);
+        invoice.setDate(LocalDate.of(2026, 1, 15));
+        invoice.setCompany(new Company("Seller", "Street 1", "555", "GST1"));
+        invoice.setBillTo(new BillTo("Client", "Road 2", "666"));
+        invoice.setShipTo(new BillTo());
+        invoice.setTaxPercentage(new BigDecimal("10"));
+        List<InvoiceItem> items = new ArrayList<>(
+                List.of(new InvoiceItem("Work", "Consulting", 1, new BigDecimal("10.00"))));
+        items.forEach(item -> item.setInvoice(invoice));
+        invoice.setItems(items);
+        return invoice;
+    }
+}
@@ -0,0 +1,152 @@
+package com.billgenpro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.billgenpro.model.BillTo;
+import com.billgenpro.model.Company;
+import com.billgenpro.model.Invoice;
+import com.billgenpro.model.InvoiceItem;
+import com.billgenpro.model.User;
+import com.billgenpro.repository.InvoiceRepository;
+import com.billgenpro.repository.UserRepository;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Reminder runs against an in-process GreenMail SMTP server: what a run sends, what it
+ * counts as skipped, and that an invoice claimed by one run is not sent by another.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reminders;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.mail.host=127.0.0.1",
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN",
+        "billgenpro.pdf.prerender.enabled=false"
+})
+class ReminderServiceTest {
+
+    private static final GreenMail greenMail = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+
+    static {
+        greenMail.start();
+    }
+
+    @DynamicPropertySource
+    static void mailServer(DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.port", () -> greenMail.getSmtp().getPort());
+    }
+
+    @AfterAll
+    static void stopMailServer() {
+        greenMail.stop();
+    }
+
+    @Autowired
+    private ReminderService reminderService;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @SpyBean
+    private JavaMailSender mailSender;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        invoiceRepository.deleteAll();
+        greenMail.purgeEmailFromAllMailboxes();
+        user = userRepository.save(new User("Reminder Test", "reminder-" + System.nanoTime() + "@example.com", "secret"));
+    }
+
+    @Test
+    void sendsEachOverdueInvoiceOnceAndCountsTheRestAsSkipped() {
+        invoiceService.saveInvoice(overdueInvoice("R-1", "client@example.com"), user);
+        invoiceService.saveInvoice(overdueInvoice("R-2", null), user);
+        Invoice recent = invoiceService.saveInvoice(overdueInvoice("R-3", "recent@example.com"), user);
+        LocalDateTime yesterday = LocalDateTime.now().minusDays(1).truncatedTo(ChronoUnit.MICROS);
+        invoiceService.claimForReminder(List.of(recent.getId()), yesterday, yesterday.minusDays(7));
+
+        ReminderRunStats first = reminderService.runReminders();
+
+        assertThat(first.getSent()).isEqualTo(1);
+        assertThat(first.getFailed()).isZero();
+        assertThat(first.getSkipped()).isEqualTo(2);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(reminderService.getLastRun()).isSameAs(first);
+
+        ReminderRunStats second = reminderService.runReminders();
+
+        assertThat(second.getSent()).isZero();
+        assertThat(second.getSkipped()).isEqualTo(3);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+    }
+
+    @Test
+    void anInvoiceClaimedByOneRunIsLeftOutOfAnother() {
+        Long id = invoiceService.saveInvoice(overdueInvoice("R-4", "client@example.com"), user).getId();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+
+        assertThat(invoiceService.claimForReminder(List.of(id), now, now.minusDays(7))).containsExactly(id);
+        // Another instance on the same cron, a moment later
+        LocalDateTime later = now.plusNanos(1_000);
+        assertThat(invoiceService.claimForReminder(List.of(id), later, later.minusDays(7))).isEmpty();
+        assertThat(invoiceRepository.findById(id).orElseThrow().getLastReminderAt()).isEqualTo(now);
+    }
+
+    @Test
+    void aFailedSendGivesTheClaimBack() {
+        doThrow(new MailSendException("Connection refused")).when(mailSender).send(any(MimeMessage[].class));
+        Long id = invoiceService.saveInvoice(overdueInvoice("R-5", "client@example.com"), user).getId();
+
+        ReminderRunStats stats = reminderService.runReminders();
+
+        assertThat(stats.getSent()).isZero();
+        assertThat(stats.getFailed()).isEqualTo(1);
+        assertThat(invoiceRepository.findById(id).orElseThrow().getLastReminderAt()).isNull();
+    }
+
+    private static Invoice overdueInvoice(String number, String clientEmail) {
+        Invoice invoice = new Invoice();
+        invoice.setNumber(number);
+        invoice.setDate(LocalDate.now().minusDays(40));
+        invoice.setCompany(new Company("Seller", "Street 1", "555", "GST1"));
+        BillTo billTo = new BillTo("Client", "Road 2", "666");
+        billTo.setEmail(clientEmail);
+        invoice.setBillTo(billTo);
+        invoice.setShipTo(new BillTo());
+        invoice.setItems(new ArrayList<>(List.of(new InvoiceItem("Work", "Consulting", 2, new BigDecimal("10.00")))));
+        return invoice;
+    }
+}
@@ -0,0 +1,113 @@
+package com.billgenpro.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RequestCoalescerTest {
+
+    private static final int THREADS = 16;
+
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+    @AfterEach
+    void shutDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallsWithTheSameKeyShareOneRender() throws Exception {
+        RequestCoalescer.Key key = new RequestCoalescer.Key("invoice-pdf", 1L, 42L, 7L);
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<byte[]>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return coalescer.execute(key, () -> {
+                    renders.incrementAndGet();
+                    // Hold the render open until every other caller has joined it
+                    awaitCoalesced(THREADS - 1);
+                    return new byte[]{1, 2, 3};
+                });
+            }));
+        }
+        start.countDown();
+
+        byte[] first = results.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<byte[]> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(first);
+        }
+        assertThat(renders).hasValue(1);
+        assertThat(coalescer.getExecutedCount()).isEqualTo(1);
+        assertThat(coalescer.getCoalescedCount()).isEqualTo(THREADS - 1);
+        assertThat(coalescer.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void waitersReceiveTheRendersException() throws Exception {
+        RequestCoalescer.Key key = new RequestCoalescer.Key("invoice-pdf", 1L, 42L, 7L);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return coalescer.execute(key, () -> {
+                    awaitCoalesced(THREADS - 1);
+                    throw new IllegalStateException("render failed");
+                });
+            }));
+        }
+        start.countDown();
+
+        for (Future<Object> result : results) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("render failed");
+        }
+        assertThat(coalescer.getExecutedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void finishedRendersAreNotReused() {
+        RequestCoalescer.Key key = new RequestCoalescer.Key("invoice-pdf", 1L, 42L, 7L);
+        AtomicInteger renders = new AtomicInteger();
+
+        coalescer.execute(key, renders::incrementAndGet);
+        coalescer.execute(key, renders::incrementAndGet);
+
+        assertThat(renders).hasValue(2);
+        assertThat(coalescer.getCoalescedCount()).isZero();
+    }
+
+    @Test
+    void differentKeysRenderSeparately() {
+        AtomicInteger renders = new AtomicInteger();
+
+        coalescer.execute(new RequestCoalescer.Key("invoice-pdf", 1L, 42L, 7L), renders::incrementAndGet);
+        coalescer.execute(new RequestCoalescer.Key("invoice-pdf", 1L, 42L, 8L), renders::incrementAndGet);
+
+        assertThat(renders).hasValue(2);
+    }
+
+    private void awaitCoalesced(int waiters) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (coalescer.getCoalescedCount() < waiters && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+}